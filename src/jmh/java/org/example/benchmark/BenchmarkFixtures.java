@@ -0,0 +1,87 @@
+package org.example.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.example.generator.DataGenerator;
+
+/**
+ * Creates the input files of the benchmarks. The files are generated by a seeded DataGenerator,
+ * so every run and every fork measures the same data.
+ */
+final class BenchmarkFixtures {
+
+  static final long SEED = 42;
+  private static final String[] NESTED_ARTISTS = {"Queen", "Led Zeppelin", "Eagles", "Nirvana"};
+  private static final String[] NESTED_GENRES = {"Rock", "Pop, Rock", "Grunge",
+      "Soft Rock, Folk Rock"};
+
+  private BenchmarkFixtures() {
+  }
+
+  /**
+   * Generates a single JSON file with the given number of records in a new temporary directory.
+   */
+  static File generateFile(int records) throws IOException {
+    Path directory = Files.createTempDirectory("benchmark");
+    new DataGenerator(SEED).generateJson(directory, 1, records);
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.findFirst().orElseThrow().toFile();
+    }
+  }
+
+  /**
+   * Generates a single JSON file of wide records in a new temporary directory. Besides the
+   * counted attributes, every record holds a nested album with an array of tracks, a long lyrics
+   * string, an array of credits and an array of tags, before and after the counted attributes.
+   */
+  static File generateNestedFile(int records) throws IOException {
+    Path directory = Files.createTempDirectory("benchmark");
+    Path file = directory.resolve("nested.json");
+    Random random = new Random(SEED);
+    String lyrics = "la ".repeat(150);
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("[\n");
+      for (int i = 0; i < records; i++) {
+        writer.write(i == 0 ? "" : ",\n");
+        writer.write("{\"id\": " + i + ", \"title\": \"Song " + random.nextInt(1000)
+            + "\", \"album\": {\"name\": \"Album " + random.nextInt(100)
+            + "\", \"label\": \"Label\", \"tracks\": [");
+        for (int track = 0; track < 3; track++) {
+          writer.write((track == 0 ? "" : ", ") + "{\"title\": \"Track " + track
+              + "\", \"duration\": " + (120 + random.nextInt(200)) + "}");
+        }
+        writer.write("]}, \"artist\": \"" + NESTED_ARTISTS[random.nextInt(NESTED_ARTISTS.length)]
+            + "\", \"year_released\": " + (1950 + random.nextInt(75))
+            + ", \"genre\": \"" + NESTED_GENRES[random.nextInt(NESTED_GENRES.length)]
+            + "\", \"lyrics\": \"" + lyrics + "\", \"credits\": [{\"name\": \"Producer\", "
+            + "\"role\": \"producer\"}, {\"name\": \"Engineer\", \"role\": \"mixing\"}], "
+            + "\"tags\": [\"live\", \"remastered\", \"single\"]}");
+      }
+      writer.write("\n]\n");
+    }
+    return file.toFile();
+  }
+
+  /**
+   * Deletes a directory created for a benchmark together with its contents.
+   */
+  static void delete(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package org.example.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.example.processor.CountTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the CountTable with the HashMap and ConcurrentHashMap based counting it replaced.
+ * Every benchmark counts the same sequence of values drawn from a fixed number of distinct
+ * values, results are reported per counted value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountTableBenchmark {
+
+  private static final int VALUES = 1 << 16;
+
+  @Param({"4", "1000", "100000"})
+  private int cardinality;
+
+  private String[] values;
+  private char[] chars;
+  private int[] offsets;
+  private int[] lengths;
+  private HashMap<String, Integer> localMap;
+  private CountTable localTable;
+
+  /**
+   * Draws the values deterministically and prepares the local results that are merged.
+   */
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    values = new String[VALUES];
+    offsets = new int[VALUES];
+    lengths = new int[VALUES];
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < VALUES; i++) {
+      values[i] = "value " + random.nextInt(cardinality);
+      offsets[i] = text.length();
+      lengths[i] = values[i].length();
+      text.append(values[i]);
+    }
+    chars = text.toString().toCharArray();
+    localMap = hashMapIncrement();
+    localTable = countTableIncrementString();
+  }
+
+  /**
+   * The counting FileProcessor used before: containsKey, get and put with boxed counts.
+   */
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public HashMap<String, Integer> hashMapIncrement() {
+    HashMap<String, Integer> map = new HashMap<>();
+    for (String value : values) {
+      if (map.containsKey(value)) {
+        map.put(value, map.get(value) + 1);
+      } else {
+        map.put(value, 1);
+      }
+    }
+    return map;
+  }
+
+  /**
+   * The full path FileProcessor used before, including the String created by parser.getText().
+   */
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public HashMap<String, Integer> hashMapIncrementFromSlice() {
+    HashMap<String, Integer> map = new HashMap<>();
+    for (int i = 0; i < VALUES; i++) {
+      String value = new String(chars, offsets[i], lengths[i]);
+      if (map.containsKey(value)) {
+        map.put(value, map.get(value) + 1);
+      } else {
+        map.put(value, 1);
+      }
+    }
+    return map;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public CountTable countTableIncrementString() {
+    CountTable table = new CountTable();
+    for (String value : values) {
+      table.increment(value);
+    }
+    return table;
+  }
+
+  /**
+   * The path used by FileProcessor now: values are passed as slices of the parser buffer.
+   */
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public CountTable countTableIncrementSlice() {
+    CountTable table = new CountTable();
+    for (int i = 0; i < VALUES; i++) {
+      table.increment(chars, offsets[i], lengths[i]);
+    }
+    return table;
+  }
+
+  /**
+   * The merge FileProcessor used before: every local entry is merged into the shared map.
+   */
+  @Benchmark
+  public ConcurrentHashMap<String, Integer> concurrentHashMapMerge() {
+    ConcurrentHashMap<String, Integer> resultMap = new ConcurrentHashMap<>();
+    for (int i = 0; i < 4; i++) {
+      for (Map.Entry<String, Integer> entry : localMap.entrySet()) {
+        resultMap.merge(entry.getKey(), entry.getValue(), Integer::sum);
+      }
+    }
+    return resultMap;
+  }
+
+  @Benchmark
+  public CountTable countTableMerge() {
+    CountTable resultTable = new CountTable();
+    for (int i = 0; i < 4; i++) {
+      resultTable.mergeFrom(localTable);
+    }
+    return resultTable;
+  }
+}
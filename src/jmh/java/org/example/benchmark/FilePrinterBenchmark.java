@@ -0,0 +1,82 @@
+package org.example.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+import org.example.output.FilePrinter;
+import org.example.processor.CountTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing the statistics of an attribute with different numbers of distinct values,
+ * once as the full print to a file and once without any I/O, and the selection of the top
+ * values that precedes printing with --top.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilePrinterBenchmark {
+
+  private static final int TOP = 100;
+
+  @Param({"10", "10000", "1000000"})
+  private int cardinality;
+
+  private Path directory;
+  private CountTable table;
+  private List<Map.Entry<String, Long>> entries;
+
+  /**
+   * Counts deterministic values and sorts them the way the application does before printing.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("benchmark");
+    Random random = new Random(BenchmarkFixtures.SEED);
+    table = new CountTable();
+    for (int i = 0; i < cardinality; i++) {
+      table.add("value " + i, 1 + random.nextInt(1000));
+    }
+    entries = table.top(cardinality);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    BenchmarkFixtures.delete(directory);
+  }
+
+  @Benchmark
+  public void print() throws IOException, XMLStreamException {
+    new FilePrinter(entries, directory.toString(), "artist").print();
+  }
+
+  @Benchmark
+  public void write() throws IOException, XMLStreamException {
+    new FilePrinter(entries, directory.toString(), "artist").write(Writer.nullWriter());
+  }
+
+  @Benchmark
+  public List<Map.Entry<String, Long>> top() {
+    return table.top(TOP);
+  }
+}
@@ -0,0 +1,83 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.example.constants.Constants;
+import org.example.processor.ByteFileProcessor;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and counting a generated file per attribute with both engines, reported per
+ * record. Genre is the only multiple attribute, so the difference between genre and artist is
+ * the cost of splitting values by handleMultipleAttribute. "all" counts every attribute in a
+ * single pass. The "nested" layout adds a nested album, a long string and arrays of objects to
+ * every record, which are skipped, so its score shows the cost of skipping irrelevant values. The
+ * file is small enough to stay in the page cache, so disk reads are not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileProcessorBenchmark {
+
+  private static final int RECORDS = 200_000;
+
+  @Param({"artist", "year_released", "genre", "all"})
+  private String attribute;
+
+  @Param({"flat", "nested"})
+  private String layout;
+
+  private final JsonFactory factory = new JsonFactory();
+  private File file;
+  private FileRange range;
+  private List<String> attributes;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = layout.equals("nested") ? BenchmarkFixtures.generateNestedFile(RECORDS)
+        : BenchmarkFixtures.generateFile(RECORDS);
+    range = new FileRange(0, file.length());
+    attributes = attribute.equals(Constants.ALL_ATTRIBUTES) ? Constants.ATTRIBUTES
+        : List.of(attribute);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    BenchmarkFixtures.delete(file.toPath().getParent());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public Map<String, CountTable> jackson() throws IOException {
+    return FileProcessor.builder(file, factory).attributes(attributes).range(range).build()
+        .process();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public Map<String, CountTable> bytes() throws IOException {
+    return new ByteFileProcessor(attributes, file, range).process();
+  }
+}
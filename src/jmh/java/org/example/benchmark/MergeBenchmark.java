@@ -0,0 +1,123 @@
+package org.example.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.example.processor.CountTable;
+import org.example.processor.FileRange;
+import org.example.processor.FileResult;
+import org.example.processor.ProcessingTask;
+import org.example.processor.RangeProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures combining the partial counts of many ranges at different thread counts. The
+ * processors return precomputed results, so only the merge is measured: the merge tree of the
+ * ProcessingTask, and the shared ConcurrentHashMap every thread merged its local map into before,
+ * whose contention grows with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+  private static final int RANGES = 64;
+  private static final int VALUES_PER_RANGE = 20_000;
+
+  @Param({"1", "2", "4", "8"})
+  private int threads;
+
+  @Param({"100", "100000"})
+  private int cardinality;
+
+  private ForkJoinPool pool;
+  private List<RangeProcessor> processors;
+
+  /**
+   * Counts deterministic values into the partial result of every range.
+   */
+  @Setup
+  public void setUp() {
+    pool = new ForkJoinPool(threads);
+    Random random = new Random(BenchmarkFixtures.SEED);
+    processors = new ArrayList<>();
+    for (int i = 0; i < RANGES; i++) {
+      CountTable table = new CountTable();
+      for (int j = 0; j < VALUES_PER_RANGE; j++) {
+        table.increment("value " + random.nextInt(cardinality));
+      }
+      processors.add(new PrecomputedProcessor(new File("range" + i + ".json"), table));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public Map<String, CountTable> processingTask() {
+    return pool.invoke(new ProcessingTask(processors));
+  }
+
+  @Benchmark
+  public Map<String, Long> sharedConcurrentMap() {
+    ConcurrentHashMap<String, Long> resultMap = new ConcurrentHashMap<>();
+    pool.submit(() -> IntStream.range(0, RANGES).parallel().forEach(i ->
+        processors.get(i).call().tables().get(PrecomputedProcessor.ATTRIBUTE)
+            .forEach((value, count) -> resultMap.merge(value, count, Long::sum)))).join();
+    return resultMap;
+  }
+
+  /**
+   * A processor that returns the same partial result on every call.
+   */
+  private static final class PrecomputedProcessor implements RangeProcessor {
+
+    private static final String ATTRIBUTE = "artist";
+
+    private final File file;
+    private final FileRange range = new FileRange(0, 1);
+    private final Map<String, CountTable> tables;
+
+    private PrecomputedProcessor(File file, CountTable table) {
+      this.file = file;
+      this.tables = Map.of(ATTRIBUTE, table);
+    }
+
+    @Override
+    public FileResult call() {
+      return FileResult.success(file, range, tables, VALUES_PER_RANGE);
+    }
+
+    @Override
+    public File getFile() {
+      return file;
+    }
+
+    @Override
+    public FileRange getRange() {
+      return range;
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package org.example.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import org.example.processor.CountTable;
+
+/**
+ * The ResultCache class stores the counts of every processed file in a binary sidecar file, so
+ * files that did not change since the previous run do not have to be parsed again.
+ * A file is identified by its absolute path, and a cached entry is only used while the size and
+ * the modification time of the file are unchanged. Optionally a CRC32C checksum of the contents
+ * is part of the key as well, which detects changes that keep size and modification time but
+ * requires reading every file.
+ * A cache can also be kept in memory only, for example by a server answering many queries. Such
+ * a cache is bounded by an estimate of the memory of its counts: when a stored file exceeds the
+ * bound, the files that were looked up least recently are evicted.
+ * The cache is not thread-safe, it is meant to be used by the thread that schedules the work.
+ */
+public class ResultCache {
+
+  private static final int MAGIC = 0x46534331;
+  private static final int VERSION = 1;
+  private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
+  private final Path path;
+  private final boolean hashContents;
+  private final Map<String, Entry> entries;
+  private final Map<String, Fingerprint> pending = new HashMap<>();
+  private final long maxBytes;
+  private long bytes;
+
+  private ResultCache(Path path, boolean hashContents, Map<String, Entry> entries,
+                      long maxBytes) {
+    this.path = path;
+    this.hashContents = hashContents;
+    this.entries = entries;
+    this.maxBytes = maxBytes;
+    for (Entry entry : entries.values()) {
+      bytes += entry.estimatedBytes();
+    }
+  }
+
+  /**
+   * Creates an empty cache that is only kept in memory and never saved.
+   *
+   * @param hashContents Whether the checksum of the contents is part of the key.
+   * @param maxBytes     The estimated number of bytes the counts may occupy, the least recently
+   *                     used files are evicted beyond it.
+   * @return the empty cache
+   */
+  public static ResultCache inMemory(boolean hashContents, long maxBytes) {
+    return new ResultCache(null, hashContents, new LinkedHashMap<>(16, 0.75f, true), maxBytes);
+  }
+
+  /**
+   * Loads the cache stored in the given file. A missing file yields an empty cache.
+   *
+   * @param path         The sidecar file of the cache.
+   * @param hashContents Whether the checksum of the contents is part of the key.
+   * @return the loaded cache
+   * @throws IOException If the file exists but can not be read or is not a valid cache.
+   */
+  public static ResultCache load(Path path, boolean hashContents) throws IOException {
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    if (!Files.exists(path)) {
+      return new ResultCache(path, hashContents, entries, Long.MAX_VALUE);
+    }
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        throw new IOException("Not a result cache: " + path);
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String file = input.readUTF();
+        Fingerprint fingerprint = new Fingerprint(input.readLong(), input.readLong(),
+            input.readLong());
+        int attributes = input.readInt();
+        Map<String, CountTable> tables = new HashMap<>();
+        for (int j = 0; j < attributes; j++) {
+          tables.put(input.readUTF(), CountTable.readFrom(input));
+        }
+        entries.put(file, new Entry(fingerprint, tables));
+      }
+    }
+    return new ResultCache(path, hashContents, entries, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns the cached counts of the given file if the file did not change and every requested
+   * attribute was counted. Otherwise the current fingerprint of the file is remembered, so the
+   * counts can be stored after the file was processed.
+   *
+   * @param file       The file to look up.
+   * @param attributes The requested attributes.
+   * @return the cached counts by attribute, or null if the file has to be processed
+   * @throws IOException If the file can not be read.
+   */
+  public Map<String, CountTable> lookup(File file, Collection<String> attributes)
+      throws IOException {
+    String key = key(file);
+    Fingerprint fingerprint = fingerprint(file);
+    Entry entry = entries.get(key);
+    if (entry != null && entry.fingerprint.matches(fingerprint, hashContents)
+        && entry.tables.keySet().containsAll(attributes)) {
+      return entry.tables;
+    }
+    pending.put(key, fingerprint);
+    return null;
+  }
+
+  /**
+   * Stores the counts of a file that was looked up before and processed successfully. The counts
+   * are stored with the fingerprint taken at the lookup, so a file changing while it is processed
+   * is processed again on the next run. Counts of other attributes cached for the same unchanged
+   * file are kept. A cache kept in memory evicts the least recently used files if it exceeds its
+   * bound, which can be the stored file itself.
+   *
+   * @param file   The processed file.
+   * @param tables The counts of the file by attribute.
+   */
+  public void store(File file, Map<String, CountTable> tables) {
+    String key = key(file);
+    Fingerprint fingerprint = pending.remove(key);
+    if (fingerprint == null) {
+      return;
+    }
+    Entry previous = entries.get(key);
+    Map<String, CountTable> stored = tables;
+    if (previous != null && previous.fingerprint.matches(fingerprint, hashContents)) {
+      stored = new HashMap<>(previous.tables);
+      stored.putAll(tables);
+    }
+    Entry entry = new Entry(fingerprint, stored);
+    bytes += entry.estimatedBytes() - (previous == null ? 0 : previous.estimatedBytes());
+    entries.put(key, entry);
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      bytes -= eldest.next().estimatedBytes();
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Removes the entries of files that no longer exist. Every cached file is checked, so a cache
+   * kept in memory relies on its bound instead.
+   *
+   * @return the number of removed entries
+   */
+  public int evictDeleted() {
+    int evicted = 0;
+    Iterator<Map.Entry<String, Entry>> files = entries.entrySet().iterator();
+    while (files.hasNext()) {
+      Map.Entry<String, Entry> file = files.next();
+      if (!Files.exists(Path.of(file.getKey()))) {
+        bytes -= file.getValue().estimatedBytes();
+        files.remove();
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the estimated number of bytes the cached counts occupy.
+   *
+   * @return the sum of the estimates of every cached table
+   */
+  public long estimatedBytes() {
+    return bytes;
+  }
+
+  /**
+   * Writes the cache to its sidecar file. The cache is written to a temporary file first and then
+   * moved over the old one, so an interrupted run never leaves a truncated cache behind. A cache
+   * kept in memory is not written.
+   *
+   * @throws IOException If the cache can not be written.
+   */
+  public void save() throws IOException {
+    if (path == null) {
+      return;
+    }
+    Path absolute = path.toAbsolutePath();
+    Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(),
+        ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          Fingerprint fingerprint = entry.getValue().fingerprint;
+          output.writeUTF(entry.getKey());
+          output.writeLong(fingerprint.size);
+          output.writeLong(fingerprint.modified);
+          output.writeLong(fingerprint.hash);
+          output.writeInt(entry.getValue().tables.size());
+          for (Map.Entry<String, CountTable> table : entry.getValue().tables.entrySet()) {
+            output.writeUTF(table.getKey());
+            table.getValue().writeTo(output);
+          }
+        }
+      }
+      Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private static String key(File file) {
+    return file.toPath().toAbsolutePath().normalize().toString();
+  }
+
+  private Fingerprint fingerprint(File file) throws IOException {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      throw new IOException("File was deleted: " + file.getPath(), e);
+    }
+    long hash = hashContents ? checksum(file) : 0;
+    return new Fingerprint(attributes.size(),
+        attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), hash);
+  }
+
+  private static long checksum(File file) throws IOException {
+    CRC32C crc = new CRC32C();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      while (channel.read(buffer) >= 0) {
+        crc.update(buffer.flip());
+        buffer.clear();
+      }
+    }
+    return crc.getValue();
+  }
+
+  private record Fingerprint(long size, long modified, long hash) {
+
+    private boolean matches(Fingerprint other, boolean compareHash) {
+      return size == other.size && modified == other.modified
+          && (!compareHash || hash == other.hash);
+    }
+  }
+
+  private record Entry(Fingerprint fingerprint, Map<String, CountTable> tables) {
+
+    private long estimatedBytes() {
+      long bytes = 0;
+      for (CountTable table : tables.values()) {
+        bytes += table.estimatedBytes();
+      }
+      return bytes;
+    }
+  }
+}
@@ -10,6 +10,11 @@ import lombok.experimental.UtilityClass;
 public class Constants {
   public static final List<String> ATTRIBUTES = List.of("artist", "year_released", "genre");
   public static final List<String> MULTIPLE_ATTRIBUTES = List.of("genre");
+  public static final List<String> NUMERIC_ATTRIBUTES = List.of("year_released");
+  public static final String ALL_ATTRIBUTES = "all";
+  public static final long MIN_SPLIT_SIZE = 32L * 1024 * 1024;
+  public static final long MIN_SPILL_SPLIT_SIZE = 1024 * 1024;
+  public static final int PREFETCH_CHUNK_SIZE = 1024 * 1024;
 
   /**This method is used to create error message.
    *
@@ -21,8 +26,9 @@ public class Constants {
     for (String attribute : ATTRIBUTES) {
       validArguments.append(String.format("  - '%s'%n", attribute));
     }
+    validArguments.append(String.format("  - '%s'%n", ALL_ATTRIBUTES));
     return String.format("Error: invalid argument '%s' for '--attribute'"
-            + "%nValid arguments are:%n%s",
+            + "%nValid arguments are (several can be separated by commas):%n%s",
         invalidAttribute, validArguments);
   }
 
@@ -1,38 +1,140 @@
 package org.example.generator;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.example.processor.InputFormat;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
 
 /**
- * This class is used to generate random json data.
+ * This class is used to generate random json data. Files are written in parallel, and every file
+ * draws its values from a random generator of its own that is derived from the seed, so the same
+ * seed always generates the same files, no matter how many threads write them.
+ * Every field draws its values from a pool of configurable size. The values are Zipf-distributed,
+ * so a few values are much more frequent than the others, like in real data; a skew of 0 draws
+ * them uniformly. Files either contain a given number of records or grow to a target size.
  */
-public class DataGenerator {
+@Command(name = "dataGenerator", mixinStandardHelpOptions = true,
+    description = "Generates JSON files of songs for tests and load tests.")
+public class DataGenerator implements Runnable {
   private static final String[] TITLES = {"Bohemian Rhapsody", "Stairway to Heaven",
                                           "Hotel California", "Imagine"};
   private static final String[] ARTISTS = {"Queen", "Led Zeppelin", "Eagles", "John Lennon"};
-  private static final int[] YEARS = {1975, 1971, 1976, 1971};
+  private static final String[] GENRES = {"Rock", "Pop", "Folk Rock", "Soft Rock", "Dance-pop",
+                                          "Soul", "Grunge", "Alternative Rock"};
+  private static final int FIRST_YEAR = 1950;
   private static final Path RESULT_FILE_DIRECTORY = Path.of("src", "main", "resources", "data");
-  private static final String FILE_NAME = "generatedData№";
+  private static final String FILE_NAME = "generatedData";
+  private static final int SIZE_CHECK_INTERVAL = 256;
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private static final SerializableString TITLE = new SerializedString("title");
+  private static final SerializableString ARTIST = new SerializedString("artist");
+  private static final SerializableString YEAR_RELEASED = new SerializedString("year_released");
+  private static final SerializableString GENRE = new SerializedString("genre");
 
-  private static final String FILE_EXTENSION = ".json";
-  private static final String[] GENRES = {"Rock", "Rock, Folk Rock",
-                                          "Soft Rock, Rock", "Pop, Dance-pop",
-                                          "Soul, Pop", "Grunge, Alternative Rock"};
+  @Spec
+  CommandSpec spec;
+  @Option(names = {"-d", "--directory"}, paramLabel = "<directory>",
+      description = "The directory the files are written to (default: ${DEFAULT-VALUE}).")
+  private Path directory = RESULT_FILE_DIRECTORY;
+  @Option(names = {"-n", "--files"}, defaultValue = "10",
+      description = "The number of files (default: ${DEFAULT-VALUE}).")
+  private int numberOfFiles = 10;
+  @Option(names = "--records", defaultValue = "10000000",
+      description = "The total number of records of all files (default: ${DEFAULT-VALUE}).")
+  private long numberOfRecords = 10_000_000;
+  @Option(names = "--file-size", paramLabel = "<MB>",
+      description = "Write every file until it reaches this size in megabytes instead of "
+          + "writing a number of records.")
+  private long fileSize;
+  @Option(names = {"-f", "--format"}, defaultValue = "array",
+      description = "The layout of the files: 'array' or 'ndjson' (default: ${DEFAULT-VALUE}).")
+  private InputFormat format = InputFormat.ARRAY;
+  @Option(names = "--seed", description = "The seed of the random values, random by default.")
+  private long seed = new SplittableRandom().nextLong();
+  @Option(names = "--skew", defaultValue = "1.0",
+      description = "The exponent of the Zipf distribution of the values, 0 draws them "
+          + "uniformly (default: ${DEFAULT-VALUE}).")
+  private double skew = 1.0;
+  @Option(names = "--titles", defaultValue = "10000",
+      description = "The number of distinct titles (default: ${DEFAULT-VALUE}).")
+  private int titles = 10_000;
+  @Option(names = "--artists", defaultValue = "1000",
+      description = "The number of distinct artists (default: ${DEFAULT-VALUE}).")
+  private int artists = 1000;
+  @Option(names = "--years", defaultValue = "75",
+      description = "The number of distinct years, starting with " + FIRST_YEAR
+          + " (default: ${DEFAULT-VALUE}).")
+  private int years = 75;
+  @Option(names = "--genres", defaultValue = "20",
+      description = "The number of distinct genres, every song has one to three of them "
+          + "(default: ${DEFAULT-VALUE}).")
+  private int genres = 20;
+  @Option(names = {"-t", "--threads"},
+      description = "The number of files written at the same time (default: the number of "
+          + "processors).")
+  private int threadNumber = Runtime.getRuntime().availableProcessors();
 
+  public DataGenerator() {
+  }
 
-  private final Random random = new Random();
-
+  /**
+   * Constructs a DataGenerator that generates the same data for the same seed.
+   *
+   * @param seed The seed of the random values.
+   */
+  public DataGenerator(long seed) {
+    this.seed = seed;
+  }
 
   public static void main(String[] args) {
-    DataGenerator dataGenerator = new DataGenerator();
-    dataGenerator.generateJson(RESULT_FILE_DIRECTORY, 10, 10_000_000);
+    int exitCode = new CommandLine(new DataGenerator())
+        .setCaseInsensitiveEnumValuesAllowed(true)
+        .execute(args);
+    System.exit(exitCode);
+  }
+
+  @Override
+  public void run() {
+    if (format == InputFormat.AUTO) {
+      throw new ParameterException(spec.commandLine(),
+          "Error: '--format' must be 'array' or 'ndjson'.");
+    }
+    if (numberOfFiles < 1 || threadNumber < 1 || titles < 1 || artists < 1 || years < 1
+        || genres < 1 || skew < 0) {
+      throw new ParameterException(spec.commandLine(),
+          "Error: the numbers of files, threads and values must be positive and the skew must "
+              + "not be negative.");
+    }
+    long started = System.nanoTime();
+    try {
+      List<File> files = generate();
+      long bytes = files.stream().mapToLong(File::length).sum();
+      System.out.printf("Generated %d files with %d MB in %d ms%n", files.size(),
+          bytes >> 20, (System.nanoTime() - started) / 1_000_000);
+    } catch (IOException e) {
+      System.out.println("Error occurred - " + e.getMessage());
+    }
   }
 
   /**This method generates json data.
@@ -43,54 +145,224 @@ public class DataGenerator {
    * @param numberOfRecords Used to specife desired number of records
    */
   public void generateJson(Path resultDirectory, int numberOfFiles, int numberOfRecords) {
-    createResultFileDirectory(RESULT_FILE_DIRECTORY);
-    int personsPerFile = (int) Math.ceil((double) numberOfRecords / numberOfFiles);
-    for (int fileNumber = 0; fileNumber < numberOfFiles && numberOfRecords > 0; fileNumber++) {
-      int personsToWrite = Math.min(personsPerFile, numberOfRecords);
-      createData(resultDirectory, personsToWrite, fileNumber);
-      numberOfRecords -= personsToWrite;
+    this.directory = resultDirectory;
+    this.numberOfFiles = numberOfFiles;
+    this.numberOfRecords = numberOfRecords;
+    this.fileSize = 0;
+    try {
+      generate();
+    } catch (IOException e) {
+      System.out.println("Error occurred - " + e.getMessage());
     }
-
-
   }
 
-  private void createData(Path resultFileDirectory, int numberOfPersons, int fileNumber) {
-    ObjectMapper mapper = new ObjectMapper();
-    JsonFactory factory = mapper.getFactory();
-
-    try (JsonGenerator generator = factory.createGenerator(new FileWriter(
-        getResultFile(resultFileDirectory, fileNumber)))) {
-      generator.writeStartArray();
-      Random random = new Random();
+  /**
+   * Generates the files with the current settings.
+   *
+   * @return the generated files
+   * @throws IOException If a file can not be written.
+   */
+  public List<File> generate() throws IOException {
+    Files.createDirectories(directory);
+    ValuePools pools = new ValuePools();
+    ExecutorService service = Executors.newFixedThreadPool(
+        Math.min(threadNumber, numberOfFiles));
+    try {
+      List<Future<File>> futures = new ArrayList<>();
+      long recordsPerFile = (numberOfRecords + numberOfFiles - 1) / numberOfFiles;
+      long remaining = numberOfRecords;
+      SplittableRandom seeds = new SplittableRandom(seed);
+      for (int fileNumber = 0; fileNumber < numberOfFiles; fileNumber++) {
+        long records = fileSize > 0 ? Long.MAX_VALUE : Math.min(recordsPerFile, remaining);
+        if (records <= 0) {
+          break;
+        }
+        remaining -= records;
+        int number = fileNumber;
+        SplittableRandom random = seeds.split();
+        futures.add(service.submit(() -> createData(pools, random, number, records)));
+      }
+      List<File> files = new ArrayList<>();
+      for (Future<File> future : futures) {
+        files.add(await(future));
+      }
+      return files;
+    } finally {
+      service.shutdownNow();
+    }
+  }
 
-      for (int i = 0; i < numberOfPersons; i++) {
+  private File createData(ValuePools pools, SplittableRandom random, int fileNumber,
+                          long numberOfRecords) throws IOException {
+    File file = getResultFile(fileNumber);
+    long targetSize = fileSize << 20;
+    boolean lines = format == InputFormat.NDJSON;
+    CountingOutputStream counter = new CountingOutputStream(Files.newOutputStream(file.toPath()));
+    try (JsonGenerator generator = FACTORY.createGenerator(counter, JsonEncoding.UTF8)) {
+      generator.setRootValueSeparator(null);
+      if (!lines) {
+        generator.writeStartArray();
+      }
+      for (long i = 0; i < numberOfRecords; i++) {
+        if (targetSize > 0 && i % SIZE_CHECK_INTERVAL == 0
+            && counter.count + generator.getOutputBuffered() >= targetSize) {
+          break;
+        }
         generator.writeStartObject();
-        generator.writeStringField("title", TITLES[getRandomElementIndex(TITLES.length)]);
-        generator.writeStringField("artist", ARTISTS[getRandomElementIndex(ARTISTS.length)]);
-        generator.writeNumberField("year_released", YEARS[getRandomElementIndex(YEARS.length)]);
-        generator.writeStringField("genre", GENRES[getRandomElementIndex(GENRES.length)]);
+        generator.writeFieldName(TITLE);
+        generator.writeString(pools.titles[pools.titleDistribution.sample(random)]);
+        generator.writeFieldName(ARTIST);
+        generator.writeString(pools.artists[pools.artistDistribution.sample(random)]);
+        generator.writeFieldName(YEAR_RELEASED);
+        generator.writeNumber(FIRST_YEAR + pools.yearDistribution.sample(random));
+        generator.writeFieldName(GENRE);
+        generator.writeString(pools.genre(random));
         generator.writeEndObject();
+        if (lines) {
+          generator.writeRaw('\n');
+        }
+      }
+      if (!lines) {
+        generator.writeEndArray();
       }
-
-      generator.writeEndArray();
-    } catch (IOException e) {
-      System.out.println("Error occurred - " + e.getMessage());
     }
+    return file;
   }
 
-  private File getResultFile(Path resultFileDirectory, int fileNumber) {
-    return new File(resultFileDirectory.toFile(), FILE_NAME + fileNumber + FILE_EXTENSION);
+  private File getResultFile(int fileNumber) {
+    String extension = format == InputFormat.NDJSON ? ".ndjson" : ".json";
+    return new File(directory.toFile(), FILE_NAME + fileNumber + extension);
   }
 
-  private void createResultFileDirectory(Path resultFileDirectory) {
+  private static File await(Future<File> future) throws IOException {
     try {
-      Files.createDirectories(resultFileDirectory);
-    } catch (IOException e) {
-      System.out.println("Can not create a directory");
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while generating files", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  public void setDirectory(Path directory) {
+    this.directory = directory;
+  }
+
+  public void setNumberOfFiles(int numberOfFiles) {
+    this.numberOfFiles = numberOfFiles;
+  }
+
+  public void setNumberOfRecords(long numberOfRecords) {
+    this.numberOfRecords = numberOfRecords;
+  }
+
+  public void setFileSize(long fileSize) {
+    this.fileSize = fileSize;
+  }
+
+  public void setFormat(InputFormat format) {
+    this.format = format;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  public void setSkew(double skew) {
+    this.skew = skew;
+  }
+
+  public void setTitles(int titles) {
+    this.titles = titles;
+  }
+
+  public void setArtists(int artists) {
+    this.artists = artists;
+  }
+
+  public void setYears(int years) {
+    this.years = years;
+  }
+
+  public void setGenres(int genres) {
+    this.genres = genres;
+  }
+
+  public void setThreadNumber(int threadNumber) {
+    this.threadNumber = threadNumber;
+  }
+
+  /**
+   * The values of every field and their distributions, which are shared by all files.
+   */
+  private final class ValuePools {
+
+    private final String[] titles = createValues(TITLES, "Title", DataGenerator.this.titles);
+    private final String[] artists = createValues(ARTISTS, "Artist", DataGenerator.this.artists);
+    private final String[] genres = createValues(GENRES, "Genre", DataGenerator.this.genres);
+    private final ZipfDistribution titleDistribution =
+        new ZipfDistribution(titles.length, skew);
+    private final ZipfDistribution artistDistribution =
+        new ZipfDistribution(artists.length, skew);
+    private final ZipfDistribution yearDistribution = new ZipfDistribution(years, skew);
+    private final ZipfDistribution genreDistribution = new ZipfDistribution(genres.length, skew);
+
+    /**
+     * Draws one to three distinct genres, separated by a comma and a space.
+     */
+    private String genre(SplittableRandom random) {
+      int count = Math.min(genres.length, 1 + random.nextInt(3));
+      int first = genreDistribution.sample(random);
+      if (count == 1) {
+        return genres[first];
+      }
+      StringBuilder genre = new StringBuilder(genres[first]);
+      int second = first;
+      for (int i = 1; i < count; i++) {
+        int next = genreDistribution.sample(random);
+        if (next == first || next == second) {
+          continue;
+        }
+        genre.append(", ").append(genres[next]);
+        second = next;
+      }
+      return genre.toString();
+    }
+
+    private static String[] createValues(String[] known, String prefix, int count) {
+      String[] values = new String[count];
+      for (int i = 0; i < count; i++) {
+        values[i] = i < known.length ? known[i] : prefix + " " + (i + 1);
+      }
+      return values;
     }
   }
 
-  public int getRandomElementIndex(int arrayLength) {
-    return random.nextInt(arrayLength);
+  /**
+   * Counts the bytes written to a stream, so files can be written up to a target size.
+   */
+  private static final class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    private CountingOutputStream(OutputStream output) {
+      super(output);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      count += length;
+    }
   }
 }
@@ -0,0 +1,45 @@
+package org.example.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The ZipfDistribution class draws ranks from 0 to n - 1, where the probability of rank k is
+ * proportional to 1 / (k + 1)^s. An exponent of 0 gives a uniform distribution, larger exponents
+ * make the first ranks more frequent. The cumulative probabilities are computed once, so a draw
+ * is a binary search.
+ */
+final class ZipfDistribution {
+
+  private final double[] cumulative;
+
+  /**
+   * Constructs a distribution over the given number of ranks.
+   *
+   * @param size     The number of ranks.
+   * @param exponent The skew of the distribution, 0 for uniform.
+   */
+  ZipfDistribution(int size, double exponent) {
+    cumulative = new double[size];
+    double sum = 0;
+    for (int rank = 0; rank < size; rank++) {
+      sum += exponent == 0 ? 1 : 1 / Math.pow(rank + 1, exponent);
+      cumulative[rank] = sum;
+    }
+    for (int rank = 0; rank < size; rank++) {
+      cumulative[rank] /= sum;
+    }
+  }
+
+  /**
+   * Draws a rank.
+   *
+   * @param random The source of randomness.
+   * @return the rank, from 0 to the size - 1
+   */
+  int sample(SplittableRandom random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    int rank = index >= 0 ? index + 1 : -index - 1;
+    return Math.min(rank, cumulative.length - 1);
+  }
+}
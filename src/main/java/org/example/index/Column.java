@@ -0,0 +1,132 @@
+package org.example.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.example.processor.CountTable;
+
+/**
+ * The Column class reads a column file written by {@link ColumnWriter}. A column holds the values
+ * of one attribute in the records of one source file, dictionary-encoded:
+ * <pre>
+ *   header      magic, version, flags, dictionary size (int each),
+ *               rows, ids, offsets position, dictionary position (long each)
+ *   ids         one int per row, or {@link #MISSING}; for a multiple attribute every value of
+ *               every row in row order
+ *   offsets     multiple attributes only: rows + 1 ints, the ids of row r are the ids from
+ *               offsets[r] to offsets[r + 1]
+ *   dictionary  the value of every id as its length and UTF-8 bytes
+ * </pre>
+ * Numbers are big-endian. Counting only scans the ids, which are memory-mapped, so the values
+ * are turned into Strings once per column.
+ */
+final class Column {
+
+  static final int MAGIC = 0x4A434F4C;
+  static final int VERSION = 1;
+  static final int MULTIPLE = 1;
+  static final int HEADER_SIZE = 48;
+  static final int MISSING = -1;
+
+  private static final long MAX_MAPPING = 1L << 30;
+  private static final int SCAN_BUFFER = 16 * 1024;
+
+  private Column() {
+  }
+
+  /**
+   * Counts the values of a column.
+   *
+   * @param path The column file.
+   * @return the count of every value
+   * @throws IOException If the file can not be read or is not a valid column.
+   */
+  static CountTable count(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        continue;
+      }
+      header.flip();
+      if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC
+          || header.getInt() != VERSION) {
+        throw new IOException("Not a column file: " + path);
+      }
+      header.getInt();
+      int dictionarySize = header.getInt();
+      header.getLong();
+      long ids = header.getLong();
+      header.getLong();
+      long dictionaryPosition = header.getLong();
+      if (dictionarySize < 0 || ids < 0
+          || dictionaryPosition < HEADER_SIZE + ids * Integer.BYTES
+          || dictionaryPosition > channel.size()) {
+        throw new IOException("Invalid column file: " + path);
+      }
+      long[] counts = new long[dictionarySize];
+      scan(channel, HEADER_SIZE, ids, counts, path);
+      return toTable(channel, dictionaryPosition, counts, path);
+    }
+  }
+
+  /**
+   * Counts the ids in chunks of at most {@link #MAX_MAPPING} bytes, which are copied from the
+   * mapping in bulk and counted from a plain array.
+   */
+  private static void scan(FileChannel channel, long position, long ids, long[] counts,
+                           Path path) throws IOException {
+    int[] buffer = new int[SCAN_BUFFER];
+    for (long done = 0; done < ids; ) {
+      long chunk = Math.min(ids - done, MAX_MAPPING / Integer.BYTES);
+      MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY,
+          position + done * Integer.BYTES, chunk * Integer.BYTES);
+      IntBuffer column = mapping.asIntBuffer();
+      while (column.hasRemaining()) {
+        int length = Math.min(buffer.length, column.remaining());
+        column.get(buffer, 0, length);
+        for (int i = 0; i < length; i++) {
+          int id = buffer[i];
+          if (id >= 0) {
+            if (id >= counts.length) {
+              throw new IOException("Invalid id " + id + " in column file: " + path);
+            }
+            counts[id]++;
+          }
+        }
+      }
+      done += chunk;
+    }
+  }
+
+  private static CountTable toTable(FileChannel channel, long position, long[] counts, Path path)
+      throws IOException {
+    long size = channel.size() - position;
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Dictionary too large in column file: " + path);
+    }
+    ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    CountTable table = new CountTable();
+    for (long count : counts) {
+      if (dictionary.remaining() < Integer.BYTES) {
+        throw new IOException("Truncated dictionary in column file: " + path);
+      }
+      int length = dictionary.getInt();
+      if (length < 0 || length > dictionary.remaining()) {
+        throw new IOException("Invalid value length in column file: " + path);
+      }
+      if (count > 0) {
+        byte[] bytes = new byte[length];
+        dictionary.get(bytes);
+        table.add(new String(bytes, StandardCharsets.UTF_8), count);
+      } else {
+        dictionary.position(dictionary.position() + length);
+      }
+    }
+    return table;
+  }
+}
@@ -0,0 +1,125 @@
+package org.example.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.example.processor.ValueCounter;
+import org.example.processor.ValueDictionary;
+
+/**
+ * The ColumnWriter class writes the values of one attribute of a segment to a column file, see
+ * {@link Column} for the layout. The ids of the values are streamed to the file while the records
+ * are read; the dictionary and the offsets of a multiple attribute are appended when the column
+ * is closed, and the header is written last.
+ */
+final class ColumnWriter implements ValueCounter, AutoCloseable {
+
+  private final boolean multiple;
+  private final ValueDictionary dictionary = new ValueDictionary();
+  private final FileChannel channel;
+  private final DataOutputStream ids;
+  private int[] offsets;
+  private long rows;
+  private long values;
+  private int recordId = Column.MISSING;
+
+  ColumnWriter(Path path, boolean multiple) throws IOException {
+    this.multiple = multiple;
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    channel.position(Column.HEADER_SIZE);
+    ids = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+        64 * 1024));
+    offsets = multiple ? new int[1024] : null;
+  }
+
+  @Override
+  public void increment(char[] chars, int offset, int length) {
+    int id = dictionary.idOf(chars, offset, length);
+    if (multiple) {
+      write(id);
+      values++;
+    } else if (recordId == Column.MISSING) {
+      recordId = id;
+    }
+  }
+
+  void startRecord() {
+    recordId = Column.MISSING;
+  }
+
+  /**
+   * Ends a row. A single attribute stores the first value of the record, or
+   * {@link Column#MISSING} if it has none; a multiple attribute stores where the values of the
+   * next row start.
+   */
+  void endRecord() {
+    rows++;
+    if (multiple) {
+      if (values > Integer.MAX_VALUE) {
+        throw new UncheckedIOException(
+            new IOException("Too many values for a column: " + values));
+      }
+      if (rows == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[(int) rows] = (int) values;
+    } else {
+      write(recordId);
+      values++;
+    }
+  }
+
+  long getRows() {
+    return rows;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (channel) {
+      if (multiple) {
+        for (int row = 0; row <= rows; row++) {
+          ids.writeInt(offsets[row]);
+        }
+      }
+      for (int id = 0; id < dictionary.size(); id++) {
+        byte[] bytes = dictionary.get(id).getBytes(StandardCharsets.UTF_8);
+        ids.writeInt(bytes.length);
+        ids.write(bytes);
+      }
+      ids.flush();
+      long idsEnd = Column.HEADER_SIZE + values * Integer.BYTES;
+      ByteBuffer header = ByteBuffer.allocate(Column.HEADER_SIZE)
+          .putInt(Column.MAGIC)
+          .putInt(Column.VERSION)
+          .putInt(multiple ? Column.MULTIPLE : 0)
+          .putInt(dictionary.size())
+          .putLong(rows)
+          .putLong(values)
+          .putLong(multiple ? idsEnd : 0)
+          .putLong(multiple ? idsEnd + (rows + 1) * Integer.BYTES : idsEnd)
+          .flip();
+      channel.write(header, 0);
+    }
+  }
+
+  /**
+   * Writes an id. Values arrive through {@link ValueCounter}, which can not throw an IOException,
+   * so write errors are passed on unchecked and unwrapped by the {@link Index}.
+   */
+  private void write(int id) {
+    try {
+      ids.writeInt(id);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,361 @@
+package org.example.index;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.example.constants.Constants;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.InputFormat;
+import org.example.processor.RecordSink;
+import org.example.processor.ValueCounter;
+
+/**
+ * The Index class converts JSON files into a columnar index once, so statistics over the same
+ * files can be answered without parsing them again. Every source file becomes a segment with one
+ * dictionary-encoded {@link Column} per attribute, and a manifest records the attributes and the
+ * path, size, modification time and number of records of every source file. Counting an
+ * attribute scans the memory-mapped ids of its columns.
+ * The index does not follow changes of the source files: {@link #findChanges(List)} tells whether
+ * the files still are the ones that were indexed.
+ */
+public final class Index {
+
+  static final String MANIFEST = "manifest";
+
+  private static final int MAGIC = 0x4A494458;
+  private static final int VERSION = 1;
+  private static final String COLUMN_SUFFIX = ".col";
+
+  private final Path directory;
+  private final List<String> attributes;
+  private final List<Entry> entries;
+
+  private Index(Path directory, List<String> attributes, List<Entry> entries) {
+    this.directory = directory;
+    this.attributes = attributes;
+    this.entries = entries;
+  }
+
+  /**
+   * Indexes the given files. The files are read in parallel, one task per file; a previous index
+   * in the directory is replaced.
+   *
+   * @param directory  The directory of the index, which is created if it does not exist.
+   * @param files      The JSON files to be indexed.
+   * @param attributes The attributes to be indexed.
+   * @param format     The layout of the files.
+   * @param service    The executor reading the files.
+   * @return the new index
+   * @throws IOException If a file can not be read or the index can not be written.
+   */
+  public static Index build(Path directory, List<File> files, List<String> attributes,
+                            InputFormat format, ExecutorService service) throws IOException {
+    Files.createDirectories(directory);
+    delete(directory);
+    JsonFactory factory = new JsonFactory();
+    List<Future<Entry>> futures = new ArrayList<>(files.size());
+    for (int i = 0; i < files.size(); i++) {
+      File file = files.get(i);
+      String segment = "segment-%05d".formatted(i);
+      futures.add(service.submit(
+          () -> indexFile(directory, segment, file, attributes, format, factory)));
+    }
+    List<Entry> entries = new ArrayList<>(files.size());
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        entries.add(await(futures.get(i), files.get(i)));
+      }
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    Index index = new Index(directory, List.copyOf(attributes), entries);
+    index.writeManifest();
+    return index;
+  }
+
+  /**
+   * Opens the index in the given directory.
+   *
+   * @param directory The directory of the index.
+   * @return the index
+   * @throws IOException If the directory contains no valid index.
+   */
+  public static Index open(Path directory) throws IOException {
+    Path manifest = directory.resolve(MANIFEST);
+    if (!Files.exists(manifest)) {
+      throw new IOException("No index in " + directory);
+    }
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(manifest)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        throw new IOException("Not an index manifest: " + manifest);
+      }
+      int attributeCount = input.readInt();
+      List<String> attributes = new ArrayList<>(attributeCount);
+      for (int i = 0; i < attributeCount; i++) {
+        attributes.add(input.readUTF());
+      }
+      int fileCount = input.readInt();
+      List<Entry> entries = new ArrayList<>(fileCount);
+      for (int i = 0; i < fileCount; i++) {
+        entries.add(new Entry(input.readUTF(), input.readLong(), input.readLong(),
+            input.readLong(), input.readUTF()));
+      }
+      return new Index(directory, List.copyOf(attributes), entries);
+    }
+  }
+
+  /**
+   * Counts the values of the given attributes over all indexed files. Every column is counted by
+   * a task of its own.
+   *
+   * @param counted The attributes to be counted, which must be indexed.
+   * @param service The executor scanning the columns.
+   * @return the counts of every attribute
+   * @throws IOException If a column can not be read.
+   */
+  public Map<String, CountTable> count(Collection<String> counted, ExecutorService service)
+      throws IOException {
+    Map<String, List<Future<CountTable>>> futures = new LinkedHashMap<>();
+    for (String attribute : counted) {
+      if (!attributes.contains(attribute)) {
+        throw new IllegalArgumentException("Attribute is not indexed: " + attribute);
+      }
+      List<Future<CountTable>> columns = new ArrayList<>(entries.size());
+      for (Entry entry : entries) {
+        Path column = columnPath(directory, entry.segment(), attribute);
+        columns.add(service.submit((Callable<CountTable>) () -> Column.count(column)));
+      }
+      futures.put(attribute, columns);
+    }
+    Map<String, CountTable> tables = new HashMap<>();
+    try {
+      for (Map.Entry<String, List<Future<CountTable>>> attribute : futures.entrySet()) {
+        CountTable table = new CountTable();
+        List<Future<CountTable>> columns = attribute.getValue();
+        for (int i = 0; i < columns.size(); i++) {
+          table.mergeFrom(await(columns.get(i), new File(entries.get(i).path())));
+        }
+        tables.put(attribute.getKey(), table);
+      }
+    } finally {
+      futures.values().forEach(columns -> columns.forEach(future -> future.cancel(true)));
+    }
+    return tables;
+  }
+
+  /**
+   * Compares the indexed files with the given files.
+   *
+   * @param files The files the index should contain.
+   * @return a description of every file that was added, changed or deleted since it was indexed,
+   *     empty if the index is up to date
+   * @throws IOException If a file can not be read.
+   */
+  public List<String> findChanges(List<File> files) throws IOException {
+    Map<String, Entry> indexed = new HashMap<>();
+    for (Entry entry : entries) {
+      indexed.put(entry.path(), entry);
+    }
+    List<String> changes = new ArrayList<>();
+    for (File file : files) {
+      Entry entry = indexed.remove(key(file));
+      BasicFileAttributes attributes = Files.readAttributes(file.toPath(),
+          BasicFileAttributes.class);
+      if (entry == null) {
+        changes.add(file.getPath() + " (new)");
+      } else if (entry.size() != attributes.size()
+          || entry.modified() != attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)) {
+        changes.add(file.getPath() + " (changed)");
+      }
+    }
+    indexed.keySet().forEach(path -> changes.add(path + " (deleted)"));
+    return changes;
+  }
+
+  public List<String> getAttributes() {
+    return attributes;
+  }
+
+  /**
+   * Returns the number of indexed files.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of indexed records.
+   */
+  public long getRecords() {
+    return entries.stream().mapToLong(Entry::records).sum();
+  }
+
+  private static Entry indexFile(Path directory, String segment, File file,
+                                 List<String> attributes, InputFormat format,
+                                 JsonFactory factory) throws IOException {
+    BasicFileAttributes fileAttributes = Files.readAttributes(file.toPath(),
+        BasicFileAttributes.class);
+    try (SegmentWriter writer = new SegmentWriter(directory, segment, attributes)) {
+      FileProcessor.builder(file, factory).format(format).build().process(writer);
+      return new Entry(key(file), fileAttributes.size(),
+          fileAttributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), writer.getRows(), segment);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static <T> T await(Future<T> future, File file) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while indexing", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Can not index " + file.getPath() + ": " + e.getCause().getMessage(),
+          e.getCause());
+    }
+  }
+
+  /**
+   * Writes the manifest to a temporary file first and then renames it, so an interrupted build
+   * never leaves a manifest behind that points to incomplete columns.
+   */
+  private void writeManifest() throws IOException {
+    Path manifest = directory.resolve(MANIFEST);
+    Path temporary = Files.createTempFile(directory, MANIFEST, ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(attributes.size());
+        for (String attribute : attributes) {
+          output.writeUTF(attribute);
+        }
+        output.writeInt(entries.size());
+        for (Entry entry : entries) {
+          output.writeUTF(entry.path());
+          output.writeLong(entry.size());
+          output.writeLong(entry.modified());
+          output.writeLong(entry.records());
+          output.writeUTF(entry.segment());
+        }
+      }
+      Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Deletes the manifest and the columns of a previous index, but no other files.
+   */
+  private static void delete(Path directory) throws IOException {
+    Files.deleteIfExists(directory.resolve(MANIFEST));
+    try (DirectoryStream<Path> columns = Files.newDirectoryStream(directory,
+        "segment-*" + COLUMN_SUFFIX)) {
+      for (Path column : columns) {
+        Files.delete(column);
+      }
+    }
+  }
+
+  private static Path columnPath(Path directory, String segment, String attribute) {
+    return directory.resolve(segment + "." + attribute + COLUMN_SUFFIX);
+  }
+
+  private static String key(File file) {
+    return file.toPath().toAbsolutePath().normalize().toString();
+  }
+
+  private record Entry(String path, long size, long modified, long records, String segment) {
+  }
+
+  /**
+   * Writes the columns of one source file.
+   */
+  private static final class SegmentWriter implements RecordSink, AutoCloseable {
+
+    private final Map<String, ColumnWriter> columns = new LinkedHashMap<>();
+
+    private SegmentWriter(Path directory, String segment, List<String> attributes)
+        throws IOException {
+      try {
+        for (String attribute : attributes) {
+          columns.put(attribute, new ColumnWriter(columnPath(directory, segment, attribute),
+              Constants.MULTIPLE_ATTRIBUTES.contains(attribute)));
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override
+    public Collection<String> getFields() {
+      return columns.keySet();
+    }
+
+    @Override
+    public ValueCounter getCounter(String field) {
+      return columns.get(field);
+    }
+
+    @Override
+    public void startRecord() {
+      for (ColumnWriter column : columns.values()) {
+        column.startRecord();
+      }
+    }
+
+    @Override
+    public void endRecord() {
+      for (ColumnWriter column : columns.values()) {
+        column.endRecord();
+      }
+    }
+
+    private long getRows() {
+      return columns.values().stream().mapToLong(ColumnWriter::getRows).findFirst().orElse(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOException failure = null;
+      for (ColumnWriter column : columns.values()) {
+        try {
+          column.close();
+        } catch (IOException e) {
+          failure = failure == null ? e : failure;
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package org.example.input;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The DirectoryWatcher class reports the paths that were created, modified or deleted in a
+ * directory. Changes are debounced: after the first change, changes are collected until the
+ * directory was quiet for the debounce interval, so a burst of files or a file that is still
+ * being written is reported as a single batch.
+ * In recursive mode new subdirectories are watched as soon as they appear, and the files they
+ * already contain are reported as created.
+ */
+public class DirectoryWatcher implements AutoCloseable {
+
+  private static final int MAX_DEBOUNCE_ROUNDS = 10;
+
+  private final WatchService service;
+  private final boolean recursive;
+  private final Duration debounce;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  /**
+   * Starts watching the given directory.
+   *
+   * @param root      The directory to watch.
+   * @param recursive Whether subdirectories are watched as well.
+   * @param debounce  The time without changes that ends a batch.
+   * @throws IOException If the directory can not be watched.
+   */
+  public DirectoryWatcher(Path root, boolean recursive, Duration debounce) throws IOException {
+    this.service = root.getFileSystem().newWatchService();
+    this.recursive = recursive;
+    this.debounce = debounce;
+    if (recursive) {
+      registerTree(root, new LinkedHashSet<>());
+    } else {
+      register(root);
+    }
+  }
+
+  /**
+   * Waits for the next batch of changes. A batch ends when no change arrived for the debounce
+   * interval, but at the latest after ten intervals, so a directory that never becomes quiet
+   * still produces batches.
+   *
+   * @return the changed paths
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  public Changes take() throws InterruptedException {
+    Set<Path> paths = new LinkedHashSet<>();
+    boolean overflow = false;
+    WatchKey key = service.take();
+    for (int round = 0; key != null && round < MAX_DEBOUNCE_ROUNDS; round++) {
+      overflow |= collect(key, paths);
+      key = service.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    if (key != null) {
+      overflow |= collect(key, paths);
+    }
+    return new Changes(paths, overflow);
+  }
+
+  @Override
+  public void close() throws IOException {
+    service.close();
+  }
+
+  /**
+   * Adds the paths of the events of a key to the batch.
+   *
+   * @return true if events were lost
+   */
+  private boolean collect(WatchKey key, Set<Path> paths) {
+    Path directory = directories.get(key);
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW || directory == null) {
+        overflow = true;
+        continue;
+      }
+      Path path = directory.resolve((Path) event.context());
+      paths.add(path);
+      if (recursive && event.kind() == ENTRY_CREATE
+          && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+        try {
+          registerTree(path, paths);
+        } catch (IOException e) {
+          overflow = true;
+        }
+      }
+    }
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+    return overflow;
+  }
+
+  private void registerTree(Path start, Set<Path> existingFiles) throws IOException {
+    try (Stream<Path> paths = Files.walk(start)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+          register(path);
+        } else {
+          existingFiles.add(path);
+        }
+      }
+    }
+  }
+
+  private void register(Path directory) throws IOException {
+    directories.put(directory.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+        directory);
+  }
+
+  /**
+   * A batch of changes.
+   *
+   * @param paths    The created, modified and deleted paths.
+   * @param overflow Whether changes were lost, in which case the directory has to be rescanned.
+   */
+  public record Changes(Set<Path> paths, boolean overflow) {
+  }
+}
@@ -0,0 +1,159 @@
+package org.example.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.example.processor.Compression;
+
+/**
+ * The FileDiscovery class collects the JSON files of a directory, including JSON Lines files
+ * (.jsonl, .ndjson), gzip compressed files and zip archives of JSON files. Subdirectories can
+ * optionally be searched as well, in which case every directory is listed by its own task, so
+ * large directory trees are listed in parallel.
+ * Include and exclude patterns are glob patterns matched against the path of a file relative to
+ * the searched directory. Directories matching an exclude pattern are not entered at all.
+ */
+public class FileDiscovery {
+
+  private final ForkJoinPool pool;
+  private final boolean recursive;
+  private final List<PathMatcher> includes = new ArrayList<>();
+  private final List<PathMatcher> excludes = new ArrayList<>();
+  private final PrintStream out;
+
+  /**
+   * Constructs a FileDiscovery with the given options.
+   *
+   * @param pool      The pool used to list directories in parallel.
+   * @param recursive Whether subdirectories are searched.
+   * @param includes  The glob patterns a file has to match, every file matches if empty.
+   * @param excludes  The glob patterns of files and directories to be skipped.
+   */
+  public FileDiscovery(ForkJoinPool pool, boolean recursive, List<String> includes,
+                       List<String> excludes) {
+    this(pool, recursive, includes, excludes, System.out);
+  }
+
+  /**
+   * Constructs a FileDiscovery that reports unreadable directories on the given stream.
+   *
+   * @param pool      The pool used to list directories in parallel.
+   * @param recursive Whether subdirectories are searched.
+   * @param includes  The glob patterns a file has to match, every file matches if empty.
+   * @param excludes  The glob patterns of files and directories to be skipped.
+   * @param out       The stream receiving the messages.
+   */
+  public FileDiscovery(ForkJoinPool pool, boolean recursive, List<String> includes,
+                       List<String> excludes, PrintStream out) {
+    this.pool = pool;
+    this.out = out;
+    this.recursive = recursive;
+    FileSystem fileSystem = FileSystems.getDefault();
+    for (String include : includes) {
+      this.includes.add(fileSystem.getPathMatcher("glob:" + include));
+    }
+    for (String exclude : excludes) {
+      this.excludes.add(fileSystem.getPathMatcher("glob:" + exclude));
+    }
+  }
+
+  /**
+   * Retrieves the JSON files of the given directory.
+   *
+   * @param directory The directory to search.
+   * @return the list of JSON files in no particular order
+   */
+  public List<File> discover(Path directory) {
+    return pool.invoke(new DirectoryTask(directory, directory));
+  }
+
+  /**
+   * Checks whether a single file would be discovered in the given directory, for example a file
+   * that was created after the directory was searched.
+   *
+   * @param root The searched directory.
+   * @param file The file inside the directory.
+   * @return true if the file is a JSON file that matches the patterns and lies in a directory
+   *     that is searched
+   */
+  public boolean accepts(Path root, Path file) {
+    Path relative = root.relativize(file);
+    if (relative.getNameCount() > 1 && !recursive) {
+      return false;
+    }
+    for (Path parent = relative.getParent(); parent != null; parent = parent.getParent()) {
+      if (matchesAny(excludes, parent)) {
+        return false;
+      }
+    }
+    return isIncluded(root, file);
+  }
+
+  private boolean isIncluded(Path root, Path file) {
+    if (Compression.forFile(file.toFile()) == null) {
+      return false;
+    }
+    Path relative = root.relativize(file);
+    if (matchesAny(excludes, relative)) {
+      return false;
+    }
+    return includes.isEmpty() || matchesAny(includes, relative);
+  }
+
+  private static boolean matchesAny(List<PathMatcher> matchers, Path path) {
+    for (PathMatcher matcher : matchers) {
+      if (matcher.matches(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings("serial")
+  private class DirectoryTask extends RecursiveTask<List<File>> {
+
+    private final Path root;
+    private final Path directory;
+
+    private DirectoryTask(Path root, Path directory) {
+      this.root = root;
+      this.directory = directory;
+    }
+
+    @Override
+    protected List<File> compute() {
+      List<File> files = new ArrayList<>();
+      List<DirectoryTask> subdirectories = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        for (Path entry : entries) {
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            if (recursive && !matchesAny(excludes, root.relativize(entry))) {
+              DirectoryTask task = new DirectoryTask(root, entry);
+              task.fork();
+              subdirectories.add(task);
+            }
+          } else if (Files.isRegularFile(entry) && isIncluded(root, entry)) {
+            files.add(entry.toFile());
+          }
+        }
+      } catch (IOException e) {
+        out.println("Can not read directory " + directory);
+      }
+      for (DirectoryTask task : subdirectories) {
+        files.addAll(task.join());
+      }
+      return files;
+    }
+  }
+}
@@ -2,17 +2,41 @@ package org.example.input;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 import lombok.Getter;
-import lombok.SneakyThrows;
+import org.example.cache.ResultCache;
 import org.example.constants.Constants;
+import org.example.index.Index;
 import org.example.output.FilePrinter;
+import org.example.processor.AttributeSketch;
+import org.example.processor.ByteFileProcessor;
+import org.example.processor.Compression;
+import org.example.processor.CountTable;
+import org.example.processor.Decompressor;
+import org.example.processor.Engine;
 import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.FileResult;
+import org.example.processor.FileSplitter;
+import org.example.processor.GroupTable;
+import org.example.processor.InputFormat;
+import org.example.processor.NumericHistogram;
+import org.example.processor.PrefetchPipeline;
+import org.example.processor.ProcessingTask;
+import org.example.processor.RangeInput;
+import org.example.processor.RangeProcessor;
+import org.example.processor.RecordFilter;
+import org.example.processor.ShardSpec;
+import org.example.processor.SpillStore;
+import org.example.stats.RunStatistics;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
@@ -28,6 +52,7 @@ import picocli.CommandLine.Spec;
  * concurrently using multiple threads.
  */
 @Command(name = "fileStatistic", mixinStandardHelpOptions = true,
+    subcommands = {IndexCommand.class, MergeCommand.class, ServeCommand.class},
     description = {
         """
              * This class represents a command-line application for processing JSON files.
@@ -44,49 +69,756 @@ import picocli.CommandLine.Spec;
     })
 public class FilesStatistic implements Runnable {
 
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  @Getter
+  private final Map<String, CountTable> resultTables = new LinkedHashMap<>();
+  @Getter
+  private final Map<String, AttributeSketch> resultSketches = new LinkedHashMap<>();
+  @Getter
+  private GroupTable resultGroups;
   @Getter
-  private final ConcurrentHashMap<String, Integer> resultMap = new ConcurrentHashMap<>();
-  private final JsonFactory factory = new JsonFactory();
+  private List<FileResult> fileResults = List.of();
   @Spec
   CommandSpec spec;
-  private int threadNumber = Runtime.getRuntime().availableProcessors() - 1;
-  private String attribute;
+  private int threadNumber = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+  private List<String> attributes;
+  private List<String> groupBy = List.of();
   private String directoryPath;
+  @Option(names = {"-s", "--split"},
+      description = "Split every large JSON file into byte ranges that are processed in parallel. "
+          + "Without this option only files larger than their fair share of the work are split.")
+  private boolean split;
+  @Option(names = {"-r", "--recursive"},
+      description = "Search the subdirectories of the directory for JSON files as well.")
+  private boolean recursive;
+  @Option(names = "--include", paramLabel = "<glob>",
+      description = "Only process files whose path relative to the directory matches the glob.")
+  private List<String> includes = new ArrayList<>();
+  @Option(names = "--exclude", paramLabel = "<glob>",
+      description = "Skip files and directories whose path relative to the directory "
+          + "matches the glob.")
+  private List<String> excludes = new ArrayList<>();
+  @Option(names = {"-e", "--engine"}, defaultValue = "jackson",
+      description = "Specify the counting engine: ${COMPLETION-CANDIDATES}. "
+          + "The 'bytes' engine scans memory-mapped files without creating strings per value.")
+  private Engine engine = Engine.JACKSON;
+  @Option(names = {"-f", "--format"}, defaultValue = "auto",
+      description = "Specify the layout of the files: ${COMPLETION-CANDIDATES}. 'array' files "
+          + "contain a single JSON array, 'ndjson' files one record per line, 'auto' detects "
+          + "the layout of every file (default: ${DEFAULT-VALUE}).")
+  private InputFormat format = InputFormat.AUTO;
+  @Option(names = "--pipeline",
+      description = "Read the files on dedicated reader threads ahead of the parsing threads. "
+          + "Helps on storage with high latency, only supported by the 'jackson' engine.")
+  private boolean pipeline;
+  @Option(names = "--readers", defaultValue = "4",
+      description = "The number of reader threads of the pipeline (default: ${DEFAULT-VALUE}).")
+  private int readers = 4;
+  @Option(names = "--buffer-budget", paramLabel = "<MB>", defaultValue = "64",
+      description = "The memory the pipeline may use for read-ahead buffers in megabytes "
+          + "(default: ${DEFAULT-VALUE}).")
+  private int bufferBudget = 64;
+  @Option(names = "--cache", paramLabel = "<file>",
+      description = "Keep the counts of every file in the given cache file and only process "
+          + "files that are new or changed since the previous run.")
+  private Path cachePath;
+  @Option(names = "--cache-hash",
+      description = "Also compare a checksum of the contents to detect changed files. "
+          + "Requires reading every file on every run.")
+  private boolean cacheHash;
+  @Option(names = {"-w", "--watch"},
+      description = "Keep running after the first run and update the statistics whenever JSON "
+          + "files are added, changed or deleted.")
+  private boolean watch;
+  @Option(names = "--debounce", paramLabel = "<ms>", defaultValue = "1000",
+      description = "The time without changes after which the watch mode processes the changed "
+          + "files (default: ${DEFAULT-VALUE}).")
+  private long debounce = 1000;
+  private int top = Integer.MAX_VALUE;
+  @Option(names = "--approximate",
+      description = "Count approximately in bounded memory: the most frequent values are "
+          + "tracked by Space-Saving sketches and distinct values are estimated by HyperLogLog. "
+          + "Error bounds are written to the statistics.")
+  private boolean approximate;
+  @Option(names = "--sketch-size", paramLabel = "<N>", defaultValue = "10000",
+      description = "The number of values tracked per attribute in approximate mode "
+          + "(default: ${DEFAULT-VALUE}).")
+  private int sketchSize = 10000;
+  @Option(names = "--summary",
+      description = "Write the number, minimum, maximum, mean and percentiles of the values of "
+          + "numeric attributes to their statistics.")
+  private boolean summary;
+  @Option(names = "--index", paramLabel = "<directory>",
+      description = "Count the values from an index written by the 'index' command instead of "
+          + "parsing the files. The index must be up to date.")
+  private Path indexPath;
+  @Option(names = "--partial", paramLabel = "<file>",
+      description = "Write the counts to the given binary file instead of the statistics files, "
+          + "to be combined with the 'merge' command.")
+  private Path partialPath;
+  private ShardSpec shard;
+  @Option(names = "--stats", paramLabel = "<file>",
+      description = "Write a JSON report of the run to the given file: the time of every phase, "
+          + "the throughput of every file and the utilization of every thread.")
+  private Path statsPath;
+  @Option(names = "--max-memory", paramLabel = "<MB>",
+      description = "Bound the memory of the exact counts to about MB megabytes by spilling "
+          + "counts to sorted temporary files, which are merged at the end.")
+  private int maxMemory;
+  private SpillStore spillStore;
+  private ForkJoinPool residentPool;
+  private ResultCache residentCache;
+  private RecordFilter filter;
+  private ShardedRun shardedRun;
+  private RunStatistics statistics = new RunStatistics(1);
+  private PrintStream out = System.out;
 
   public static void main(String[] args) {
-    int exitCode = new CommandLine(new FilesStatistic()).execute(args);
+    int exitCode = new CommandLine(new FilesStatistic())
+        .setCaseInsensitiveEnumValuesAllowed(true)
+        .execute(args);
     System.exit(exitCode);
   }
 
-  @SneakyThrows
   @Override
   public void run() {
-    List<File> directoryFiles = getJsonFiles(directoryPath);
-    var latch = new CountDownLatch(directoryFiles.size());
-    ExecutorService service = Executors.newFixedThreadPool(threadNumber);
-    for (File file : directoryFiles) {
-      service.submit(new FileProcessor(resultMap, attribute, file, latch, factory));
+    if (directoryPath == null) {
+      throw new ParameterException(spec.commandLine(),
+          "Missing required option: '--directory=<directoryPath>'");
+    }
+    if (attributes == null && groupBy.isEmpty()) {
+      throw new ParameterException(spec.commandLine(),
+          "Error: Missing required option: '--attribute=<attribute>' or '--group-by=<attributes>'");
+    }
+    if (attributes == null) {
+      attributes = List.of();
+    }
+    if (residentPool != null) {
+      threadNumber = residentPool.getParallelism();
+    }
+    validateOptions();
+    Path root = Path.of(directoryPath);
+    shardedRun = shard != null || partialPath != null
+        ? new ShardedRun(root, shard, partialPath, format) : null;
+    if (indexPath != null) {
+      countIndexed(root);
+      return;
+    }
+    ResultCache cache = cachePath == null && residentCache != null && !approximate
+        && filter == null && groupBy.isEmpty() && shard == null && maxMemory == 0
+        ? residentCache : loadCache();
+    try {
+      spillStore = maxMemory > 0 ? createSpillStore() : null;
+    } catch (IOException e) {
+      out.println("Error occurred while creating the spill directory - " + e.getMessage());
+      return;
+    }
+    ForkJoinPool pool = residentPool != null ? residentPool : new ForkJoinPool(threadNumber);
+    try (DirectoryWatcher watcher = watch
+        ? new DirectoryWatcher(root, recursive, Duration.ofMillis(debounce)) : null) {
+      FileDiscovery discovery = new FileDiscovery(pool, recursive, includes, excludes, out);
+      Map<File, Map<String, CountTable>> fileTables = watch ? new HashMap<>() : null;
+      statistics = new RunStatistics(threadNumber);
+      List<File> files = statistics.time("discovery", () -> discovery.discover(root));
+      Map<String, CountTable> counts = processFiles(pool, cache, files, fileTables);
+      if (shardedRun != null) {
+        writePartial(counts);
+      } else {
+        printResults(counts);
+      }
+      if (spillStore != null) {
+        statistics.addSpill(spillStore.getRuns(), spillStore.getSpilledBytes());
+      }
+      writeStatistics();
+      if (watcher != null) {
+        watch(watcher, pool, cache, discovery, fileTables);
+      }
+    } catch (IOException e) {
+      out.println("Can not watch directory " + directoryPath);
+    } catch (UncheckedIOException e) {
+      out.println("Error occurred while spilling counts - " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (pool != residentPool) {
+        pool.shutdown();
+      }
+      if (spillStore != null) {
+        spillStore.close();
+      }
+    }
+  }
+
+  /**
+   * Checks the values of the options and the options that can not be used together.
+   *
+   * @throws ParameterException If an option has an invalid value or conflicts with another one.
+   */
+  private void validateOptions() {
+    if (watch && residentPool != null) {
+      throw new ParameterException(spec.commandLine(),
+          "Error: '--watch' can not be used in a query to the server.");
+    }
+    long minimumBudget = (long) PrefetchPipeline.MIN_CHUNKS_PER_RANGE
+        * Constants.PREFETCH_CHUNK_SIZE;
+    if (pipeline && bufferBudget * 1024L * 1024L < minimumBudget) {
+      throw new ParameterException(spec.commandLine(),
+          String.format("Error: '--buffer-budget' must be at least %d MB, but was %d.",
+              minimumBudget / (1024 * 1024), bufferBudget));
+    }
+    if (maxMemory < 0) {
+      throw new ParameterException(spec.commandLine(),
+          String.format("Error: '--max-memory' must be positive, but was %d.", maxMemory));
+    }
+    if (approximate && sketchSize < 1) {
+      throw new ParameterException(spec.commandLine(),
+          String.format("Error: '--sketch-size' must be positive, but was %d.", sketchSize));
+    }
+    new OptionConflicts()
+        .use("--engine=bytes", engine == Engine.BYTES)
+        .use("--pipeline", pipeline)
+        .use("--approximate", approximate)
+        .use("--summary", summary)
+        .use("--cache", cachePath != null)
+        .use("--watch", watch)
+        .use("--where", filter != null)
+        .use("--group-by", !groupBy.isEmpty())
+        .use("--index", indexPath != null)
+        .use("--shard", shard != null)
+        .use("--partial", partialPath != null)
+        .use("--max-memory", maxMemory > 0)
+        .check(spec);
+  }
+
+  /**
+   * Creates the store for spilled counts in the temporary directory. The budget is shared by a
+   * partial table per attribute and worker, and by the table of the range a worker is counting.
+   */
+  private SpillStore createSpillStore() throws IOException {
+    long budget = maxMemory * 1024L * 1024L;
+    return new SpillStore(Path.of(System.getProperty("java.io.tmpdir")),
+        budget / (2L * threadNumber * Math.max(1, attributes.size())));
+  }
+
+  /**
+   * Counts the attributes by scanning the columns of the index instead of parsing the files. The
+   * index must contain every requested attribute and exactly the files that are found now,
+   * unchanged since they were indexed.
+   */
+  private void countIndexed(Path root) {
+    ForkJoinPool pool = residentPool != null ? residentPool : new ForkJoinPool(threadNumber);
+    try {
+      statistics = new RunStatistics(threadNumber);
+      List<File> files = statistics.time("discovery",
+          () -> new FileDiscovery(pool, recursive, includes, excludes, out).discover(root));
+      Index index = Index.open(indexPath);
+      List<String> missing = attributes.stream()
+          .filter(attribute -> !index.getAttributes().contains(attribute))
+          .toList();
+      if (!missing.isEmpty()) {
+        throw new ParameterException(spec.commandLine(), String.format(
+            "Error: the index in '%s' does not contain %s.", indexPath, missing));
+      }
+      List<String> changes = index.findChanges(files);
+      if (!changes.isEmpty()) {
+        out.printf("The index in %s is out of date, run the 'index' command again. "
+            + "Changed files: %s%n", indexPath, String.join(", ", changes));
+        return;
+      }
+      Map<String, CountTable> counts = statistics.time("scan",
+          () -> index.count(attributes, pool));
+      printResults(counts);
+      writeStatistics();
+    } catch (IOException e) {
+      out.println("Error occurred while reading the index - " + e.getMessage());
+    } finally {
+      if (pool != residentPool) {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Processes the given files, serving unchanged files from the cache if there is one.
+   *
+   * @param pool       The pool running the processors.
+   * @param cache      The cache of previous runs, or null.
+   * @param files      The files to be processed.
+   * @param fileTables The map that receives the counts of every successfully processed file,
+   *                   or null if the counts per file are not needed.
+   * @return the counts of the given files by attribute
+   */
+  private Map<String, CountTable> processFiles(ForkJoinPool pool, ResultCache cache,
+                                               List<File> files,
+                                               Map<File, Map<String, CountTable>> fileTables) {
+    List<FileResult> failures = new ArrayList<>();
+    Map<File, Map<String, CountTable>> cachedTables = new HashMap<>();
+    if (cache != null) {
+      List<File> uncachedFiles = files;
+      files = statistics.time("cache",
+          () -> lookupCachedFiles(cache, uncachedFiles, cachedTables, failures));
+      statistics.addCachedFiles(cachedTables.size());
+    }
+    Map<String, CountTable> counts;
+    PrefetchPipeline prefetch = pipeline ? new PrefetchPipeline(readers, threadNumber,
+        Constants.PREFETCH_CHUNK_SIZE, bufferBudget * 1024L * 1024L) : null;
+    Decompressor decompressor = new Decompressor(threadNumber);
+    try {
+      List<RangeProcessor> processors = new ArrayList<>();
+      List<File> splitFiles = files;
+      statistics.time("split", () -> {
+        for (Map.Entry<File, List<FileRange>> entry
+            : getFileRanges(splitFiles, pool, failures).entrySet()) {
+          for (FileRange range : entry.getValue()) {
+            processors.add(createProcessor(entry.getKey(), range, prefetch, decompressor));
+          }
+        }
+        processors.sort(Comparator.comparingLong(
+            (RangeProcessor processor) -> processor.getRange().length()).reversed());
+      });
+      if (prefetch != null) {
+        prefetch.start(processors.stream()
+            .filter(processor -> !isCompressed(processor.getFile()))
+            .toList());
+      }
+      ProcessingTask task = new ProcessingTask(processors, spillStore,
+          cache != null || fileTables != null);
+      long processingStart = System.nanoTime();
+      counts = pool.invoke(task);
+      long processingNanos = System.nanoTime() - processingStart;
+      statistics.addTask(task, processingNanos);
+      statistics.addPhase("parse", processingNanos - task.getMergeNanos());
+      statistics.addPhase("merge", task.getMergeNanos());
+      failures.forEach(statistics::addFailure);
+      resultSketches.clear();
+      resultSketches.putAll(task.getSketches());
+      resultGroups = task.getGroups();
+      fileResults = new ArrayList<>(failures);
+      fileResults.addAll(task.getResults());
+    } finally {
+      if (prefetch != null) {
+        prefetch.close();
+        statistics.addPipeline(prefetch);
+      }
+      decompressor.close();
+    }
+    reportFailures();
+    Map<String, CountTable> processedCounts = counts;
+    statistics.time("merge", () -> mergeTables(cachedTables.values(), processedCounts));
+    if (cache != null || fileTables != null) {
+      Map<File, Map<String, CountTable>> processedTables = getTablesByFile();
+      if (cache != null) {
+        processedTables.forEach(cache::store);
+        saveCache(cache);
+      }
+      if (fileTables != null) {
+        fileTables.putAll(cachedTables);
+        fileTables.putAll(processedTables);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Keeps the statistics up to date while files are added, changed and deleted. Every batch of
+   * changes is processed, the counts of the changed files replace their previous counts and the
+   * statistics are written again.
+   *
+   * @throws InterruptedException If the thread is interrupted, which ends the watch mode.
+   */
+  private void watch(DirectoryWatcher watcher, ForkJoinPool pool, ResultCache cache,
+                     FileDiscovery discovery, Map<File, Map<String, CountTable>> fileTables)
+      throws InterruptedException {
+    Path root = Path.of(directoryPath);
+    out.println("Watching " + directoryPath + " for changes");
+    while (true) {
+      DirectoryWatcher.Changes changes = watcher.take();
+      List<File> changedFiles = new ArrayList<>();
+      boolean removed = false;
+      if (changes.overflow()) {
+        removed = !fileTables.isEmpty();
+        fileTables.clear();
+        changedFiles.addAll(discovery.discover(root));
+      } else {
+        for (Path path : changes.paths()) {
+          removed |= fileTables.keySet().removeIf(file -> file.toPath().startsWith(path));
+          if (Files.isRegularFile(path) && discovery.accepts(root, path)) {
+            changedFiles.add(path.toFile());
+          }
+        }
+      }
+      if (changedFiles.isEmpty() && !removed) {
+        continue;
+      }
+      statistics = new RunStatistics(threadNumber);
+      processFiles(pool, cache, changedFiles, fileTables);
+      Map<String, CountTable> counts = new HashMap<>();
+      statistics.time("merge", () -> mergeTables(fileTables.values(), counts));
+      printResults(counts);
+      writeStatistics();
+    }
+  }
+
+  private void printResults(Map<String, CountTable> counts) {
+    if (approximate) {
+      printSketches();
+      return;
+    }
+    resultTables.clear();
+    for (String attribute : attributes) {
+      resultTables.put(attribute, counts.getOrDefault(attribute, new CountTable()));
+    }
+    for (Map.Entry<String, CountTable> result : resultTables.entrySet()) {
+      Iterable<Map.Entry<String, Long>> entries;
+      NumericHistogram histogram;
+      boolean numeric = summary && Constants.NUMERIC_ATTRIBUTES.contains(result.getKey());
+      RunStatistics.Phase sort = statistics.phase("sort");
+      try {
+        if (spillStore != null && spillStore.hasRuns(result.getKey())) {
+          histogram = numeric ? new NumericHistogram() : null;
+          entries = spillStore.sorted(result.getKey(), result.getValue(), top,
+              histogram == null ? null : histogram::add);
+        } else {
+          entries = result.getValue().top(top);
+          histogram = numeric ? NumericHistogram.of(result.getValue()) : null;
+        }
+      } finally {
+        sort.close();
+      }
+      statistics.time("write", () -> printFile(result.getKey(), entries, histogram));
+    }
+    if (!groupBy.isEmpty()) {
+      printGroups();
+    }
+  }
+
+  /**
+   * Writes the counts to a partial result instead of the statistics files.
+   */
+  private void writePartial(Map<String, CountTable> counts) {
+    Path path = shardedRun.getPath();
+    resultTables.clear();
+    for (String attribute : attributes) {
+      resultTables.put(attribute, counts.getOrDefault(attribute, new CountTable()));
+    }
+    try {
+      statistics.time("write", () -> {
+        shardedRun.write(resultTables);
+        out.println(path + " partial result of shard " + shardedRun.getShard() + " was created");
+      });
+    } catch (IOException e) {
+      out.println("Error occurred while writing partial result " + path);
+    }
+  }
+
+  /**
+   * Writes the counts of the value combinations as nested statistics.
+   */
+  private void printGroups() {
+    if (resultGroups == null) {
+      resultGroups = new GroupTable(groupBy);
+    }
+    FilePrinter printer = statistics.time("sort",
+        () -> new FilePrinter(resultGroups, top, directoryPath));
+    try {
+      statistics.time("write", () -> printer.print(out));
+    } catch (Exception e) {
+      out.println("Error occurred while writing into xml file");
+    }
+  }
+
+  /**
+   * Writes the report of the last run if a report was requested.
+   */
+  private void writeStatistics() {
+    if (statsPath == null) {
+      return;
+    }
+    try {
+      statistics.write(statsPath);
+    } catch (IOException e) {
+      out.println("Error occurred while writing statistics report " + statsPath);
+    }
+  }
+
+  /**
+   * Writes the statistics of approximate mode. The result tables receive the estimated counts
+   * of the tracked values.
+   */
+  private void printSketches() {
+    resultTables.clear();
+    for (String attribute : attributes) {
+      AttributeSketch sketch = resultSketches.computeIfAbsent(attribute,
+          key -> new AttributeSketch(sketchSize));
+      CountTable table = new CountTable();
+      sketch.top(Integer.MAX_VALUE).forEach(estimate ->
+          table.add(estimate.value(), estimate.count()));
+      resultTables.put(attribute, table);
+      FilePrinter printer = statistics.time("sort",
+          () -> new FilePrinter(sketch, top, directoryPath, attribute));
+      try {
+        statistics.time("write", () -> printer.print(out));
+      } catch (Exception e) {
+        out.println("Error occurred while writing into xml file");
+      }
+    }
+  }
+
+  private ResultCache loadCache() {
+    if (cachePath == null) {
+      return null;
+    }
+    try {
+      return ResultCache.load(cachePath, cacheHash);
+    } catch (IOException e) {
+      out.println("Can not read cache file " + cachePath + ", the cache is not used");
+      return null;
+    }
+  }
+
+  /**
+   * Collects the cached counts of the files that did not change since the previous run.
+   *
+   * @param cache        The cache of the previous run.
+   * @param files        The discovered files.
+   * @param cachedTables The map that receives the cached counts of every unchanged file.
+   * @param failures     The list that receives a result for every file that can not be read.
+   * @return the files that have to be processed
+   */
+  private List<File> lookupCachedFiles(ResultCache cache, List<File> files,
+                                       Map<File, Map<String, CountTable>> cachedTables,
+                                       List<FileResult> failures) {
+    List<File> changedFiles = new ArrayList<>();
+    for (File file : files) {
+      try {
+        Map<String, CountTable> tables = cache.lookup(file, attributes);
+        if (tables == null) {
+          changedFiles.add(file);
+        } else {
+          cachedTables.put(file, tables);
+        }
+      } catch (IOException e) {
+        failures.add(FileResult.failure(file, null, e));
+      }
+    }
+    out.printf("Reusing cached counts of %d files, processing %d files%n",
+        cachedTables.size(), changedFiles.size());
+    return changedFiles;
+  }
+
+  /**
+   * Combines the partial results of the last processing into counts per file. Files with a
+   * failed range are left out.
+   *
+   * @return the counts by attribute of every successfully processed file
+   */
+  private Map<File, Map<String, CountTable>> getTablesByFile() {
+    Map<File, List<FileResult>> resultsByFile = new LinkedHashMap<>();
+    for (FileResult result : fileResults) {
+      resultsByFile.computeIfAbsent(result.file(), file -> new ArrayList<>()).add(result);
+    }
+    Map<File, Map<String, CountTable>> tablesByFile = new LinkedHashMap<>();
+    for (Map.Entry<File, List<FileResult>> entry : resultsByFile.entrySet()) {
+      List<FileResult> results = entry.getValue();
+      if (!results.stream().allMatch(FileResult::isSuccessful)) {
+        continue;
+      }
+      if (results.size() == 1) {
+        tablesByFile.put(entry.getKey(), results.get(0).tables());
+        continue;
+      }
+      Map<String, CountTable> tables = new HashMap<>();
+      for (FileResult result : results) {
+        result.tables().forEach((attribute, table) ->
+            tables.computeIfAbsent(attribute, key -> new CountTable()).mergeFrom(table));
+      }
+      tablesByFile.put(entry.getKey(), tables);
+    }
+    return tablesByFile;
+  }
+
+  /**
+   * Removes the entries of deleted files and writes the cache. The cache of a server is bounded
+   * instead, so its files are not checked on every query.
+   */
+  private void saveCache(ResultCache cache) {
+    if (cache == residentCache) {
+      return;
+    }
+    cache.evictDeleted();
+    try {
+      cache.save();
+    } catch (IOException e) {
+      out.println("Error occurred while writing cache file " + cachePath);
+    }
+  }
+
+  /**
+   * Creates the processor of a range. Compressed files are always parsed by the jackson engine
+   * from the decompressor, since the bytes engine and the prefetch pipeline read the raw file.
+   */
+  private RangeProcessor createProcessor(File file, FileRange range, RangeInput input,
+                                         Decompressor decompressor) {
+    boolean compressed = isCompressed(file);
+    if (!compressed && engine == Engine.BYTES) {
+      return new ByteFileProcessor(attributes, file, range, format);
     }
-    latch.await();
-    service.shutdown();
-    List<Map.Entry<String, Integer>> res = new ArrayList<>(resultMap.entrySet());
-    res.sort(Map.Entry.comparingByValue(Collections.reverseOrder()));
-    printFile(res);
+    return FileProcessor.builder(file, FACTORY)
+        .attributes(attributes)
+        .range(range)
+        .input(compressed ? decompressor : input)
+        .sketchCapacity(approximate ? sketchSize : 0)
+        .format(format)
+        .filter(filter)
+        .groupBy(groupBy)
+        .build();
+  }
+
+  static boolean isCompressed(File file) {
+    Compression compression = Compression.forFile(file);
+    return compression != null && compression.isCompressed();
   }
 
   /**
-   * Sets the attribute to search for in the JSON files.
+   * Adds the counts of every file to the total counts.
+   */
+  private void mergeTables(Collection<Map<String, CountTable>> tablesByFile,
+                           Map<String, CountTable> counts) {
+    for (Map<String, CountTable> tables : tablesByFile) {
+      for (String attribute : attributes) {
+        counts.computeIfAbsent(attribute, key -> new CountTable())
+            .mergeFrom(tables.get(attribute));
+      }
+    }
+  }
+
+  private void reportFailures() {
+    for (FileResult result : fileResults) {
+      if (!result.isSuccessful()) {
+        out.printf("Invalid json file format: %s (%s)%n",
+            result.file().getPath(), result.error().getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the counts of the first requested attribute.
    *
-   * @param attribute The attribute to search for.
+   * @return the table of attribute values and their number of occurrences, which is empty if no
+   *     attribute was counted, for example in a run that only groups the records
    */
-  @Option(names = {"-a", "--attribute"}, required = true,
-      description = "Specify the attribute to search for in the JSON files.")
+  public CountTable getResultMap() {
+    if (attributes == null || attributes.isEmpty()) {
+      return new CountTable();
+    }
+    return resultTables.getOrDefault(attributes.get(0), new CountTable());
+  }
+
+  /**
+   * Sets the attributes to search for in the JSON files. Several attributes are separated by
+   * commas and counted in a single pass, the value 'all' selects every known attribute.
+   *
+   * @param attribute The attribute, the list of attributes or 'all'.
+   */
+  @Option(names = {"-a", "--attribute"},
+      description = "Specify the attribute to search for in the JSON files. "
+          + "Several attributes are separated by commas, 'all' selects every attribute.")
   public void setAttribute(String attribute) {
-    if (!Constants.ATTRIBUTES.contains(attribute.toLowerCase())) {
+    this.attributes = parseAttributes(spec, attribute);
+  }
+
+  /**
+   * Parses a list of attributes separated by commas, or 'all'.
+   *
+   * @throws ParameterException If an attribute is unknown.
+   */
+  static List<String> parseAttributes(CommandSpec spec, String attribute) {
+    if (Constants.ALL_ATTRIBUTES.equalsIgnoreCase(attribute.trim())) {
+      return Constants.ATTRIBUTES;
+    }
+    Set<String> requested = new LinkedHashSet<>();
+    for (String name : attribute.split(",")) {
+      String normalized = name.trim().toLowerCase();
+      if (!Constants.ATTRIBUTES.contains(normalized)) {
+        throw new ParameterException(spec.commandLine(),
+            Constants.getAttributesErrorMessage(name.trim()));
+      }
+      requested.add(normalized);
+    }
+    return List.copyOf(requested);
+  }
+
+  /**
+   * Sets the attributes whose value combinations are counted, for example "artist,year_released".
+   * The combinations are written to a single statistics file, nested in the order of the
+   * attributes.
+   *
+   * @param attributes The attributes separated by commas.
+   */
+  @Option(names = "--group-by", paramLabel = "<attributes>",
+      description = "Count the combinations of the values of the attributes separated by commas, "
+          + "for example 'genre,year_released', and write them nested in this order.")
+  public void setGroupBy(String attributes) {
+    Set<String> dimensions = new LinkedHashSet<>();
+    for (String name : attributes.split(",")) {
+      String normalized = name.trim().toLowerCase();
+      if (!Constants.ATTRIBUTES.contains(normalized) || !dimensions.add(normalized)) {
+        throw new ParameterException(spec.commandLine(), String.format(
+            "Error: invalid argument '%s' for '--group-by', expected distinct attributes of %s.",
+            name.trim(), Constants.ATTRIBUTES));
+      }
+    }
+    this.groupBy = List.copyOf(dimensions);
+  }
+
+  /**
+   * Limits the statistics to the values with the largest counts.
+   *
+   * @param top The number of values written for every attribute.
+   */
+  @Option(names = "--top", paramLabel = "<N>",
+      description = "Only write the N values with the largest counts of every attribute.")
+  public void setTop(int top) {
+    if (top < 1) {
       throw new ParameterException(spec.commandLine(),
-          Constants.getAttributesErrorMessage(attribute));
+          String.format("Error: '--top' must be positive, but was %d.", top));
+    }
+    this.top = top;
+  }
+
+  /**
+   * Restricts the counts to the records matching a filter expression, see {@link RecordFilter}.
+   *
+   * @param expression The filter expression, for example "year_released >= 1990".
+   */
+  @Option(names = "--where", paramLabel = "<expression>",
+      description = "Only count the records matching the expression, for example "
+          + "\"year_released >= 1990 and not artist = 'Queen'\". Only supported by the "
+          + "'jackson' engine.")
+  public void setWhere(String expression) {
+    try {
+      this.filter = RecordFilter.parse(expression);
+    } catch (IllegalArgumentException e) {
+      throw new ParameterException(spec.commandLine(), "Error: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Restricts the run to one shard of the files, see {@link ShardSpec}.
+   *
+   * @param spec The shard, for example "3/8".
+   */
+  @Option(names = "--shard", paramLabel = "<index>/<count>",
+      description = "Only process shard <index> of <count>, for example 3/8, and write a partial "
+          + "result instead of the statistics files. Files are assigned to shards by a hash of "
+          + "their path, large files are split into ranges that are dealt out to the shards.")
+  public void setShard(String spec) {
+    try {
+      this.shard = ShardSpec.parse(spec);
+    } catch (IllegalArgumentException e) {
+      throw new ParameterException(this.spec.commandLine(), "Error: " + e.getMessage());
     }
-    this.attribute = attribute.toLowerCase();
   }
 
   /**
@@ -94,8 +826,9 @@ public class FilesStatistic implements Runnable {
    *
    * @param directoryPath The directory path containing the JSON files.
    */
-  @Option(names = {"-d", "--directory"}, required = true,
-      description = "Specify the path to the directory containing the JSON files.")
+  @Option(names = {"-d", "--directory"},
+      description = "Specify the path to the directory containing the JSON files. Required "
+          + "unless a command is given.")
   public void setDirectoryPath(String directoryPath) {
     File directory = new File(directoryPath);
     if (!directory.exists() || !directory.isDirectory()) {
@@ -108,35 +841,169 @@ public class FilesStatistic implements Runnable {
   /**
    * Prints the processed file containing the attribute counts to an XML file.
    *
-   * @param resultList The list of attribute counts to be printed.
+   * @param attribute  The attribute the counts belong to.
+   * @param resultList The attribute counts to be printed.
+   * @param histogram  The histogram summarized in the statistics, or null.
    */
-  public void printFile(List<Map.Entry<String, Integer>> resultList) {
-    FilePrinter printer = new FilePrinter(resultList, directoryPath, attribute);
+  private void printFile(String attribute, Iterable<Map.Entry<String, Long>> resultList,
+                         NumericHistogram histogram) {
+    FilePrinter printer = new FilePrinter(resultList, histogram, directoryPath, attribute);
     try {
-      printer.print();
+      printer.print(out);
     } catch (Exception e) {
-      System.out.println("Error occurred while writing into xml file");
+      out.println("Error occurred while writing into xml file");
     }
   }
 
   /**
-   * Retrieves a list of JSON files from the specified directory.
+   * Determines the byte ranges each file is processed in. Compressed files and files smaller than
+   * {@link Constants#MIN_SPLIT_SIZE} are always processed as a single range. Larger files are
+   * split into as many ranges as threads in split mode; otherwise only files larger than their
+   * fair share of the total bytes are split into ranges of about that share, so a single large
+   * file does not keep one thread busy after all the others have finished. When the memory is
+   * bounded, uncompressed files are also split into ranges of at most half a table budget, but
+   * at least {@link Constants#MIN_SPILL_SPLIT_SIZE}, so the counts of a single range stay within
+   * the budget as well.
    *
-   * @param directoryPath The directory path containing the JSON files.
-   * @return A list of JSON files.
+   * @param files    The JSON files to be processed.
+   * @param service  The executor used to scan large files for record boundaries.
+   * @param failures The list that receives a result for every file that can not be split.
+   * @return the ranges of every file that can be processed
    */
-  public List<File> getJsonFiles(String directoryPath) {
-    File directory = new File(directoryPath);
-    File[] files = directory.listFiles();
-    if (files != null) {
-      return Arrays.stream(files)
-          .filter(file -> file.isFile() && file.getName().toLowerCase().endsWith(".json"))
-          .collect(Collectors.toList());
+  private Map<File, List<FileRange>> getFileRanges(List<File> files, ExecutorService service,
+                                                   List<FileResult> failures) {
+    Map<File, List<FileRange>> fileRanges = new LinkedHashMap<>();
+    FileSplitter splitter = new FileSplitter(service);
+    long totalBytes = files.stream().mapToLong(File::length).sum();
+    long fairShare = Math.max(Constants.MIN_SPLIT_SIZE, totalBytes / threadNumber);
+    long maxRangeSize = spillStore == null ? Long.MAX_VALUE
+        : Math.max(Constants.MIN_SPILL_SPLIT_SIZE, spillStore.getTableBudget() / 2);
+    for (File file : files) {
+      long size = file.length();
+      if (shard != null) {
+        shardedRun.addRanges(file, splitter, fileRanges, failures);
+        continue;
+      }
+      int parts = 1;
+      if (split && size >= Constants.MIN_SPLIT_SIZE) {
+        parts = (int) Math.min(threadNumber, size / Constants.MIN_SPLIT_SIZE);
+      } else if (size > fairShare) {
+        parts = (int) Math.min(threadNumber, (size + fairShare - 1) / fairShare);
+      }
+      if (spillStore != null && size > maxRangeSize) {
+        parts = (int) Math.max(parts,
+            Math.min(Integer.MAX_VALUE, (size + maxRangeSize - 1) / maxRangeSize));
+      }
+      if (parts < 2 || isCompressed(file)) {
+        fileRanges.put(file, List.of(new FileRange(0, size)));
+        continue;
+      }
+      try {
+        fileRanges.put(file, splitter.split(file, parts, format));
+      } catch (IOException e) {
+        failures.add(FileResult.failure(file, null, e));
+      }
     }
-    return Collections.emptyList();
+    return fileRanges;
+  }
+
+  /**
+   * Runs on the pool of a long-running server instead of a pool of its own, which is not shut
+   * down afterwards. Unless the run uses a cache file or options that can not be cached, the
+   * counts of unchanged files are taken from the given cache and the counts of processed files
+   * are stored in it.
+   *
+   * @param pool  The pool shared by the runs of the server.
+   * @param cache The cache shared by the runs of the server, or null.
+   */
+  public void setResident(ForkJoinPool pool, ResultCache cache) {
+    this.residentPool = pool;
+    this.residentCache = cache;
+  }
+
+  /**
+   * Sets the stream receiving the progress and error messages of the run instead of the standard
+   * output, for example the connection of a query to a server.
+   *
+   * @param out The stream receiving the messages.
+   */
+  public void setOutput(PrintStream out) {
+    this.out = out;
   }
 
   public void setThreadNumber(int threadNumber) {
     this.threadNumber = threadNumber;
   }
+
+  public void setSplit(boolean split) {
+    this.split = split;
+  }
+
+  public void setEngine(Engine engine) {
+    this.engine = engine;
+  }
+
+  public void setFormat(InputFormat format) {
+    this.format = format;
+  }
+
+  public void setRecursive(boolean recursive) {
+    this.recursive = recursive;
+  }
+
+  public void setPipeline(boolean pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  public void setReaders(int readers) {
+    this.readers = readers;
+  }
+
+  public void setBufferBudget(int bufferBudget) {
+    this.bufferBudget = bufferBudget;
+  }
+
+  public void setCachePath(Path cachePath) {
+    this.cachePath = cachePath;
+  }
+
+  public void setCacheHash(boolean cacheHash) {
+    this.cacheHash = cacheHash;
+  }
+
+  public void setApproximate(boolean approximate) {
+    this.approximate = approximate;
+  }
+
+  public void setSketchSize(int sketchSize) {
+    this.sketchSize = sketchSize;
+  }
+
+  public void setSummary(boolean summary) {
+    this.summary = summary;
+  }
+
+  public void setIndexPath(Path indexPath) {
+    this.indexPath = indexPath;
+  }
+
+  public void setPartialPath(Path partialPath) {
+    this.partialPath = partialPath;
+  }
+
+  public void setStatsPath(Path statsPath) {
+    this.statsPath = statsPath;
+  }
+
+  public void setWatch(boolean watch) {
+    this.watch = watch;
+  }
+
+  public void setMaxMemory(int maxMemory) {
+    this.maxMemory = maxMemory;
+  }
+
+  public void setDebounce(long debounce) {
+    this.debounce = debounce;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package org.example.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import lombok.Getter;
+import org.example.constants.Constants;
+import org.example.index.Index;
+import org.example.processor.InputFormat;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+/**
+ * The IndexCommand class converts the JSON files of a directory into a columnar {@link Index}
+ * once. The statistics of the indexed files are then counted with the '--index' option of
+ * {@link FilesStatistic} by scanning the columns instead of parsing the files again.
+ */
+@Command(name = "index", mixinStandardHelpOptions = true,
+    description = "Convert the JSON files of a directory into a columnar index, so statistics "
+        + "can be counted with '--index' without parsing the files again.")
+public class IndexCommand implements Runnable {
+
+  /**
+   * The directory of the index inside the directory of the JSON files, unless '--output' is
+   * given.
+   */
+  public static final String DEFAULT_DIRECTORY = ".index";
+
+  @Spec
+  CommandSpec spec;
+  private int threadNumber = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+  private String directoryPath;
+  private List<String> attributes = Constants.ATTRIBUTES;
+  @Option(names = {"-o", "--output"}, paramLabel = "<directory>",
+      description = "The directory of the index (default: '" + DEFAULT_DIRECTORY
+          + "' inside the directory of the JSON files).")
+  private Path output;
+  @Option(names = {"-r", "--recursive"},
+      description = "Search the subdirectories of the directory for JSON files as well.")
+  private boolean recursive;
+  @Option(names = "--include", paramLabel = "<glob>",
+      description = "Only index files whose path relative to the directory matches the glob.")
+  private List<String> includes = new ArrayList<>();
+  @Option(names = "--exclude", paramLabel = "<glob>",
+      description = "Skip files and directories whose path relative to the directory "
+          + "matches the glob.")
+  private List<String> excludes = new ArrayList<>();
+  @Option(names = {"-f", "--format"}, defaultValue = "auto",
+      description = "Specify the layout of the files: ${COMPLETION-CANDIDATES} "
+          + "(default: ${DEFAULT-VALUE}).")
+  private InputFormat format = InputFormat.AUTO;
+  @Getter
+  private Index index;
+
+  @Override
+  public void run() {
+    Path root = Path.of(directoryPath);
+    Path directory = output != null ? output : root.resolve(DEFAULT_DIRECTORY);
+    ForkJoinPool pool = new ForkJoinPool(threadNumber);
+    try {
+      List<File> files = new FileDiscovery(pool, recursive, includes, excludes).discover(root);
+      long start = System.nanoTime();
+      index = Index.build(directory, files, attributes, format, pool);
+      System.out.printf("Indexed %d files with %d records into %s in %d ms%n", index.size(),
+          index.getRecords(), directory, (System.nanoTime() - start) / 1_000_000);
+    } catch (IOException e) {
+      System.out.println("Error occurred while indexing - " + e.getMessage());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Sets the attributes to be indexed, all attributes by default.
+   *
+   * @param attribute The attribute, the list of attributes separated by commas or 'all'.
+   */
+  @Option(names = {"-a", "--attribute"},
+      description = "Specify the attributes to be indexed, separated by commas "
+          + "(default: all attributes).")
+  public void setAttribute(String attribute) {
+    this.attributes = FilesStatistic.parseAttributes(spec, attribute);
+  }
+
+  /**
+   * Sets the directory containing the JSON files to be indexed.
+   *
+   * @param directoryPath The directory path containing the JSON files.
+   */
+  @Option(names = {"-d", "--directory"}, required = true,
+      description = "Specify the path to the directory containing the JSON files.")
+  public void setDirectoryPath(String directoryPath) {
+    File directory = new File(directoryPath);
+    if (!directory.exists() || !directory.isDirectory()) {
+      throw new ParameterException(spec.commandLine(),
+          String.format("Error: '%s' is not a valid directory path.", directoryPath));
+    }
+    this.directoryPath = directoryPath;
+  }
+
+  public void setThreadNumber(int threadNumber) {
+    this.threadNumber = threadNumber;
+  }
+
+  public void setOutput(Path output) {
+    this.output = output;
+  }
+
+  public void setRecursive(boolean recursive) {
+    this.recursive = recursive;
+  }
+
+  public void setFormat(InputFormat format) {
+    this.format = format;
+  }
+}
@@ -0,0 +1,124 @@
+package org.example.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import lombok.Getter;
+import org.example.constants.Constants;
+import org.example.output.FilePrinter;
+import org.example.output.PartialResult;
+import org.example.processor.CountTable;
+import org.example.processor.NumericHistogram;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+/**
+ * The MergeCommand class combines the partial results written by sharded runs of
+ * {@link FilesStatistic} into the final statistics files, one per attribute. Every shard may be
+ * given once; shards that are missing are reported, since their files are not counted.
+ */
+@Command(name = "merge", mixinStandardHelpOptions = true,
+    description = "Combine the partial results of sharded runs into the statistics files.")
+public class MergeCommand implements Runnable {
+
+  @Getter
+  private final Map<String, CountTable> resultTables = new LinkedHashMap<>();
+  @Spec
+  CommandSpec spec;
+  private String directoryPath;
+  @Parameters(arity = "1..*", paramLabel = "<partial>",
+      description = "The partial results written with '--shard' or '--partial'.")
+  private List<Path> partials = new ArrayList<>();
+  @Option(names = "--summary",
+      description = "Write the number, minimum, maximum, mean and percentiles of the values of "
+          + "numeric attributes to their statistics.")
+  private boolean summary;
+  private int top = Integer.MAX_VALUE;
+
+  @Override
+  public void run() {
+    List<PartialResult> results = new ArrayList<>();
+    try {
+      for (Path partial : partials) {
+        results.add(PartialResult.read(partial));
+      }
+    } catch (IOException e) {
+      System.out.println("Error occurred while reading partial results - " + e.getMessage());
+      return;
+    }
+    try {
+      resultTables.clear();
+      resultTables.putAll(PartialResult.merge(results));
+    } catch (IllegalArgumentException e) {
+      throw new ParameterException(spec.commandLine(), "Error: " + e.getMessage());
+    }
+    int shards = results.get(0).shard().count();
+    TreeSet<Integer> missing = new TreeSet<>();
+    for (int index = 1; index <= shards; index++) {
+      missing.add(index);
+    }
+    results.forEach(result -> missing.remove(result.shard().index()));
+    if (!missing.isEmpty()) {
+      System.out.printf("Warning: the partial results of shards %s of %d are missing, their "
+          + "files are not counted%n", missing, shards);
+    }
+    for (Map.Entry<String, CountTable> result : resultTables.entrySet()) {
+      String attribute = result.getKey();
+      NumericHistogram histogram = summary && Constants.NUMERIC_ATTRIBUTES.contains(attribute)
+          ? NumericHistogram.of(result.getValue()) : null;
+      try {
+        new FilePrinter(result.getValue().top(top), histogram, directoryPath, attribute).print();
+      } catch (Exception e) {
+        System.out.println("Error occurred while writing into xml file");
+      }
+    }
+  }
+
+  /**
+   * Sets the directory the statistics files are written to.
+   *
+   * @param directoryPath The directory path.
+   */
+  @Option(names = {"-d", "--directory"}, required = true,
+      description = "Specify the directory the statistics files are written to.")
+  public void setDirectoryPath(String directoryPath) {
+    File directory = new File(directoryPath);
+    if (!directory.exists() || !directory.isDirectory()) {
+      throw new ParameterException(spec.commandLine(),
+          String.format("Error: '%s' is not a valid directory path.", directoryPath));
+    }
+    this.directoryPath = directoryPath;
+  }
+
+  /**
+   * Limits the statistics to the values with the largest counts.
+   *
+   * @param top The number of values written for every attribute.
+   */
+  @Option(names = "--top", paramLabel = "<N>",
+      description = "Only write the N values with the largest counts of every attribute.")
+  public void setTop(int top) {
+    if (top < 1) {
+      throw new ParameterException(spec.commandLine(),
+          String.format("Error: '--top' must be positive, but was %d.", top));
+    }
+    this.top = top;
+  }
+
+  public void setPartials(List<Path> partials) {
+    this.partials = partials;
+  }
+
+  public void setSummary(boolean summary) {
+    this.summary = summary;
+  }
+}
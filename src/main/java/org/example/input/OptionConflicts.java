@@ -0,0 +1,79 @@
+package org.example.input;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+/**
+ * The OptionConflicts class holds the options of the default command that can not be used
+ * together. Every rule names an option and the options it can not be combined with, and the
+ * rules are checked in the order they are listed, so the first conflict is reported.
+ */
+final class OptionConflicts {
+
+  private static final List<Rule> RULES = List.of(
+      new Rule("--pipeline", "--engine=bytes"),
+      new Rule("--approximate", "--engine=bytes", "--cache", "--watch"),
+      new Rule("--summary", "--approximate"),
+      new Rule("--where", "--engine=bytes", "--cache"),
+      new Rule("--group-by", "--engine=bytes", "--approximate", "--cache", "--watch"),
+      new Rule("--index", "--engine=bytes", "--pipeline", "--approximate", "--cache", "--watch",
+          "--where", "--group-by"),
+      new Rule("--shard", "--approximate", "--watch", "--index", "--group-by", "--cache"),
+      new Rule("--partial", "--approximate", "--watch", "--index", "--group-by"),
+      new Rule("--max-memory", "--approximate", "--cache", "--watch", "--index", "--group-by",
+          "--shard", "--partial"));
+
+  private final Set<String> used = new LinkedHashSet<>();
+
+  /**
+   * Marks an option as used, an option that is not used never conflicts.
+   *
+   * @param option The name of the option as listed in the rules.
+   * @param isUsed Whether the option was given.
+   * @return this instance
+   */
+  OptionConflicts use(String option, boolean isUsed) {
+    if (isUsed) {
+      used.add(option);
+    }
+    return this;
+  }
+
+  /**
+   * Checks the used options against every rule.
+   *
+   * @throws ParameterException If a used option is combined with an option it conflicts with.
+   */
+  void check(CommandSpec spec) {
+    for (Rule rule : RULES) {
+      if (!used.contains(rule.option())) {
+        continue;
+      }
+      List<String> conflicts = new ArrayList<>();
+      for (String conflict : rule.conflicts()) {
+        if (used.contains(conflict)) {
+          conflicts.add("'" + conflict + "'");
+        }
+      }
+      if (!conflicts.isEmpty()) {
+        throw new ParameterException(spec.commandLine(), String.format(
+            "Error: '%s' can not be combined with %s.", rule.option(), join(conflicts)));
+      }
+    }
+  }
+
+  private static String join(List<String> options) {
+    if (options.size() == 1) {
+      return options.get(0);
+    }
+    return String.join(", ", options.subList(0, options.size() - 1))
+        + " or " + options.get(options.size() - 1);
+  }
+
+  private record Rule(String option, String... conflicts) {
+  }
+}
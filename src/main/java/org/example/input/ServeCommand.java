@@ -0,0 +1,311 @@
+package org.example.input;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.cache.ResultCache;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+/**
+ * The ServeCommand class keeps the statistics running in a long-lived process that answers
+ * queries on a local socket, so small runs do not pay for starting the JVM, loading classes and
+ * a cold JIT every time. A query is a line with the arguments of a run of {@link FilesStatistic},
+ * for example {@code -d data -a artist --top 10}; arguments containing spaces are quoted with
+ * double quotes. Every query runs on a pool shared by all queries, and the counts of every
+ * processed file are kept in memory up to a bound, so files that did not change are not parsed
+ * again by later queries. The output of the run is sent back, followed by a line
+ * {@code exit <code>}.
+ * Every connection is answered on a thread of its own and may send any number of queries; a
+ * connection that sends nothing for the idle timeout is closed. The runs themselves share the
+ * pool and the cache, so they execute one at a time, while reading queries and sending answers
+ * does not wait for other connections.
+ * Any local process can connect to the port, so every connection has to start with a line
+ * {@code token <token>}. The token is created randomly when the server starts and written to a
+ * file only the owner of the server can read, which restricts the queries to the user running
+ * the server.
+ */
+@Command(name = "serve", mixinStandardHelpOptions = true,
+    description = "Answer queries with the arguments of a run on a local socket, keeping the "
+        + "threads and the counts of unchanged files between queries.")
+public class ServeCommand implements Runnable {
+
+  public static final int DEFAULT_PORT = 7878;
+  public static final int DEFAULT_IDLE_TIMEOUT = 60_000;
+  public static final int DEFAULT_MAX_MEMORY = 256;
+
+  @Spec
+  CommandSpec spec;
+  @Option(names = {"-p", "--port"}, defaultValue = "" + DEFAULT_PORT,
+      description = "The port to listen on, on the loopback address only "
+          + "(default: ${DEFAULT-VALUE}).")
+  private int port = DEFAULT_PORT;
+  @Option(names = "--idle-timeout", paramLabel = "<ms>", defaultValue = "" + DEFAULT_IDLE_TIMEOUT,
+      description = "Close connections that send no query for this time "
+          + "(default: ${DEFAULT-VALUE}).")
+  private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+  @Option(names = "--token-file", paramLabel = "<file>",
+      defaultValue = "${sys:user.home}/.file-statistic-token",
+      description = "The file the token that clients have to send first is written to, readable "
+          + "by the owner only (default: ${DEFAULT-VALUE}).")
+  private Path tokenFile;
+  @Option(names = "--max-memory", paramLabel = "<MB>", defaultValue = "" + DEFAULT_MAX_MEMORY,
+      description = "Bound the counts kept between queries to about MB megabytes, the files "
+          + "queried least recently are evicted first (default: ${DEFAULT-VALUE}).")
+  private int maxMemory = DEFAULT_MAX_MEMORY;
+  private final Object running = new Object();
+  private int threadNumber = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+  @Override
+  public void run() {
+    if (maxMemory < 1) {
+      throw new ParameterException(spec.commandLine(),
+          String.format("Error: '--max-memory' must be positive, but was %d.", maxMemory));
+    }
+    try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+      String token = createTokenFile(tokenFile);
+      try {
+        System.out.println("Answering queries on " + server.getLocalSocketAddress()
+            + " with the token in " + tokenFile);
+        serve(server, token);
+      } finally {
+        Files.deleteIfExists(tokenFile);
+      }
+    } catch (IOException e) {
+      System.out.println("Error occurred while listening on port " + port + " - "
+          + e.getMessage());
+    }
+  }
+
+  /**
+   * Creates a random token and writes it to a file that only the owner can read and write. An
+   * existing file is replaced.
+   *
+   * @param file The token file.
+   * @return the token
+   * @throws IOException If the file can not be written.
+   */
+  public static String createTokenFile(Path file) throws IOException {
+    byte[] bytes = new byte[16];
+    new SecureRandom().nextBytes(bytes);
+    String token = HexFormat.of().formatHex(bytes);
+    Files.deleteIfExists(file);
+    try {
+      Files.createFile(file,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } catch (UnsupportedOperationException e) {
+      File created = Files.createFile(file).toFile();
+      created.setReadable(false, false);
+      created.setWritable(false, false);
+      created.setReadable(true, true);
+      created.setWritable(true, true);
+    }
+    Files.writeString(file, token + System.lineSeparator());
+    return token;
+  }
+
+  /**
+   * Answers queries on the given socket until it is closed.
+   *
+   * @param server The socket accepting the connections.
+   * @param token  The token every connection has to start with.
+   */
+  public void serve(ServerSocket server, String token) {
+    ForkJoinPool pool = new ForkJoinPool(threadNumber);
+    ResultCache cache = ResultCache.inMemory(false, maxMemory * 1024L * 1024L);
+    AtomicInteger connectionNumber = new AtomicInteger();
+    ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "connection-" + connectionNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    try {
+      while (!server.isClosed()) {
+        Socket socket;
+        try {
+          socket = server.accept();
+        } catch (SocketException e) {
+          if (!server.isClosed()) {
+            System.out.println("Connection failed - " + e.getMessage());
+          }
+          continue;
+        } catch (IOException e) {
+          System.out.println("Error occurred while accepting a connection - " + e.getMessage());
+          continue;
+        }
+        sockets.add(socket);
+        connections.execute(() -> {
+          try (socket) {
+            answer(socket, token, pool, cache);
+          } catch (SocketTimeoutException e) {
+            System.out.println("Closed a connection that was idle for " + idleTimeout + " ms");
+          } catch (IOException e) {
+            if (!server.isClosed()) {
+              System.out.println("Error occurred while answering a query - " + e.getMessage());
+            }
+          } finally {
+            sockets.remove(socket);
+          }
+        });
+      }
+    } finally {
+      connections.shutdown();
+      for (Socket socket : sockets) {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // the server is stopping, the connection is abandoned anyway
+        }
+      }
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Answers every query of a connection until the client closes it or stays idle for the idle
+   * timeout. A connection that does not start with the token is answered with an error and
+   * closed. The output of a query is collected while it runs and sent afterwards, so a client
+   * that reads slowly only delays its own answers.
+   *
+   * @throws SocketTimeoutException If the client sent no query for the idle timeout.
+   */
+  private void answer(Socket socket, String token, ForkJoinPool pool, ResultCache cache)
+      throws IOException {
+    BufferedReader input = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    socket.setTcpNoDelay(true);
+    socket.setSoTimeout(idleTimeout);
+    OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+    String line = input.readLine();
+    if (line == null || !MessageDigest.isEqual(
+        ("token " + token).getBytes(StandardCharsets.UTF_8),
+        line.strip().getBytes(StandardCharsets.UTF_8))) {
+      PrintStream printer = new PrintStream(output, false, StandardCharsets.UTF_8);
+      printer.println("Error: a connection has to start with the line 'token <token>', "
+          + "with the token from the token file of the server.");
+      printer.println("exit " + CommandLine.ExitCode.USAGE);
+      printer.flush();
+      return;
+    }
+    while ((line = input.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      long start = System.nanoTime();
+      ByteArrayOutputStream answer = new ByteArrayOutputStream();
+      PrintStream printer = new PrintStream(answer, false, StandardCharsets.UTF_8);
+      int exitCode;
+      synchronized (running) {
+        exitCode = query(splitArguments(line), printer, pool, cache);
+      }
+      printer.println("exit " + exitCode);
+      printer.flush();
+      answer.writeTo(output);
+      output.flush();
+      System.out.printf("%s: exit %d in %d ms%n", line, exitCode,
+          (System.nanoTime() - start) / 1_000_000);
+    }
+  }
+
+  /**
+   * Runs a query with its messages written to the given stream. Queries can only run the
+   * statistics, not the commands.
+   */
+  private static int query(List<String> arguments, PrintStream output, ForkJoinPool pool,
+                           ResultCache cache) {
+    PrintWriter writer = new PrintWriter(output, true);
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setResident(pool, cache);
+    statistic.setOutput(output);
+    CommandLine commandLine = new CommandLine(statistic)
+        .setCaseInsensitiveEnumValuesAllowed(true)
+        .setOut(writer)
+        .setErr(writer);
+    if (!arguments.isEmpty() && commandLine.getSubcommands().containsKey(arguments.get(0))) {
+      writer.println("Error: a query can not run the '" + arguments.get(0) + "' command.");
+      return CommandLine.ExitCode.USAGE;
+    }
+    try {
+      return commandLine.execute(arguments.toArray(String[]::new));
+    } finally {
+      output.flush();
+    }
+  }
+
+  /**
+   * Splits a query into arguments at whitespace outside of double quotes.
+   */
+  private static List<String> splitArguments(String line) {
+    List<String> arguments = new ArrayList<>();
+    StringBuilder argument = new StringBuilder();
+    boolean quoted = false;
+    boolean started = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+        started = true;
+      } else if (Character.isWhitespace(c) && !quoted) {
+        if (started) {
+          arguments.add(argument.toString());
+          argument.setLength(0);
+          started = false;
+        }
+      } else {
+        argument.append(c);
+        started = true;
+      }
+    }
+    if (started) {
+      arguments.add(argument.toString());
+    }
+    return arguments;
+  }
+
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  public void setThreadNumber(int threadNumber) {
+    this.threadNumber = threadNumber;
+  }
+
+  public void setMaxMemory(int maxMemory) {
+    this.maxMemory = maxMemory;
+  }
+
+  public void setIdleTimeout(int idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+}
@@ -0,0 +1,103 @@
+package org.example.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.example.constants.Constants;
+import org.example.output.PartialResult;
+import org.example.processor.CountTable;
+import org.example.processor.FileRange;
+import org.example.processor.FileResult;
+import org.example.processor.FileSplitter;
+import org.example.processor.InputFormat;
+import org.example.processor.ShardSpec;
+
+/**
+ * The ShardedRun class holds the part of a run that writes a partial result instead of the
+ * statistics files: it selects the ranges of the files that belong to the shard and writes the
+ * counts to the partial result file.
+ */
+final class ShardedRun {
+
+  private final Path root;
+  private final ShardSpec shard;
+  private final Path partialPath;
+  private final InputFormat format;
+
+  /**
+   * Creates the sharded part of a run.
+   *
+   * @param root        The directory of the JSON files.
+   * @param shard       The shard to count, or null to count every file.
+   * @param partialPath The partial result file, or null to write it to the directory.
+   * @param format      The layout of the files, used to split them at record boundaries.
+   */
+  ShardedRun(Path root, ShardSpec shard, Path partialPath, InputFormat format) {
+    this.root = root;
+    this.shard = shard == null ? ShardSpec.ALL : shard;
+    this.partialPath = partialPath;
+    this.format = format;
+  }
+
+  /**
+   * Adds the ranges of a file that belong to the shard. Small and compressed files belong to a
+   * single shard as a whole. Larger files are split into ranges of about
+   * {@link Constants#MIN_SPLIT_SIZE} at record boundaries, which only depend on the file, and
+   * the ranges are dealt out to the shards in turn.
+   */
+  void addRanges(File file, FileSplitter splitter, Map<File, List<FileRange>> fileRanges,
+                 List<FileResult> failures) {
+    long size = file.length();
+    if (size < 2 * Constants.MIN_SPLIT_SIZE || FilesStatistic.isCompressed(file)) {
+      String relativePath = root.toAbsolutePath().normalize()
+          .relativize(file.toPath().toAbsolutePath().normalize())
+          .toString().replace(File.separatorChar, '/');
+      if (shard.containsFile(relativePath)) {
+        fileRanges.put(file, List.of(new FileRange(0, size)));
+      }
+      return;
+    }
+    try {
+      List<FileRange> ranges = splitter.split(file,
+          (int) Math.min(Integer.MAX_VALUE, size / Constants.MIN_SPLIT_SIZE), format);
+      List<FileRange> selected = new ArrayList<>();
+      for (int i = 0; i < ranges.size(); i++) {
+        if (shard.containsRange(i)) {
+          selected.add(ranges.get(i));
+        }
+      }
+      if (!selected.isEmpty()) {
+        fileRanges.put(file, selected);
+      }
+    } catch (IOException e) {
+      failures.add(FileResult.failure(file, null, e));
+    }
+  }
+
+  /**
+   * Returns the partial result file. Without '--partial', the partial result of a shard is
+   * written to the directory of the JSON files.
+   */
+  Path getPath() {
+    return partialPath != null ? partialPath : root.resolve(
+        "statistics_shard_%d_of_%d.partial".formatted(shard.index(), shard.count()));
+  }
+
+  ShardSpec getShard() {
+    return shard;
+  }
+
+  /**
+   * Writes the counts of every attribute to the partial result file.
+   *
+   * @param tables The counts by attribute.
+   * @throws IOException If the file can not be written.
+   */
+  void write(Map<String, CountTable> tables) throws IOException {
+    new PartialResult(shard, new LinkedHashMap<>(tables)).write(getPath());
+  }
+}
@@ -0,0 +1,47 @@
+package org.example.output;
+
+import java.util.List;
+import java.util.Locale;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.example.processor.AttributeSketch;
+import org.example.processor.SpaceSaving;
+
+/**
+ * The ApproximateBody class writes the estimates of a sketch together with their error bounds:
+ * every count is an upper bound and count - error a lower bound of the true count.
+ */
+class ApproximateBody implements StatisticsBody {
+
+  private final AttributeSketch sketch;
+  private final List<SpaceSaving.Estimate> estimates;
+
+  /**
+   * Constructs an ApproximateBody.
+   *
+   * @param sketch The sketch of the attribute.
+   * @param limit  The maximum number of values to be written.
+   */
+  ApproximateBody(AttributeSketch sketch, int limit) {
+    this.sketch = sketch;
+    this.estimates = sketch.top(limit);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return estimates.isEmpty();
+  }
+
+  @Override
+  public void write(XMLStreamWriter xml) throws XMLStreamException {
+    xml.writeAttribute("approximate", "true");
+    xml.writeAttribute("total", Long.toString(sketch.getTotal()));
+    xml.writeAttribute("distinct", Long.toString(sketch.getDistinct()));
+    xml.writeAttribute("distinctRelativeError",
+        String.format(Locale.ROOT, "%.4f", sketch.getDistinctError()));
+    xml.writeAttribute("maxUnlistedCount", Long.toString(sketch.getUnmonitoredBound()));
+    for (SpaceSaving.Estimate estimate : estimates) {
+      StatisticsBody.writeItem(xml, estimate.value(), estimate.count(), estimate.error());
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package org.example.output;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.example.processor.NumericHistogram;
+
+/**
+ * The ExactBody class writes exact counts in the order they are given. Statistics of numeric
+ * attributes may carry a summary of the values as attributes of the statistics element.
+ */
+class ExactBody implements StatisticsBody {
+
+  private final Iterable<Map.Entry<String, Long>> result;
+  private final NumericHistogram summary;
+  private Iterator<Map.Entry<String, Long>> entries;
+
+  /**
+   * Constructs an ExactBody.
+   *
+   * @param result  The counts, which are iterated once while the file is written.
+   * @param summary The histogram of all values, or null to write no summary.
+   */
+  ExactBody(Iterable<Map.Entry<String, Long>> result, NumericHistogram summary) {
+    this.result = result;
+    this.summary = summary;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    entries = result.iterator();
+    return !entries.hasNext();
+  }
+
+  @Override
+  public void write(XMLStreamWriter xml) throws XMLStreamException {
+    if (summary != null && summary.getCount() > 0) {
+      writeSummary(xml);
+    }
+    while (entries.hasNext()) {
+      Map.Entry<String, Long> entry = entries.next();
+      StatisticsBody.writeItem(xml, entry.getKey(), entry.getValue(), -1);
+    }
+  }
+
+  private void writeSummary(XMLStreamWriter xml) throws XMLStreamException {
+    xml.writeAttribute("count", Long.toString(summary.getCount()));
+    xml.writeAttribute("min", Integer.toString(summary.getMin()));
+    xml.writeAttribute("max", Integer.toString(summary.getMax()));
+    xml.writeAttribute("mean", String.format(Locale.ROOT, "%.2f", summary.getMean()));
+    xml.writeAttribute("p50", Integer.toString(summary.getPercentile(0.5)));
+    xml.writeAttribute("p90", Integer.toString(summary.getPercentile(0.9)));
+    xml.writeAttribute("p99", Integer.toString(summary.getPercentile(0.99)));
+  }
+}
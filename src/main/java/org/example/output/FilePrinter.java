@@ -1,16 +1,23 @@
 package org.example.output;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import org.example.constants.Constants;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.example.processor.AttributeSketch;
+import org.example.processor.GroupTable;
+import org.example.processor.NumericHistogram;
 
 /**
  * The FilePrinter class is responsible for generating an XML file
@@ -18,10 +25,18 @@ import org.w3c.dom.Element;
  * It receives a list of key-value pairs representing statistical data,
  * a directory to write the XML file,
  * and an attribute to be included in the output file name.
+ * Entries are streamed to a buffered writer one by one, so no document is built in memory.
+ * The contents of the statistics element depend on the kind of statistics: exact counts, the
+ * estimates of a sketch or the counts of value combinations are each written by their own
+ * {@link StatisticsBody}.
  */
 public class FilePrinter {
 
-  private final List<Map.Entry<String, Integer>> result;
+  private static final String XML_DECLARATION =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+  private final StatisticsBody body;
 
   private final String directoryToWrite;
 
@@ -34,47 +49,116 @@ public class FilePrinter {
    * @param directoryToWrite The directory path where the XML file will be written.
    * @param attribute        The attribute to be included in the output file name.
    */
-  public FilePrinter(List<Map.Entry<String, Integer>> result,
+  public FilePrinter(List<Map.Entry<String, Long>> result,
                      String directoryToWrite, String attribute) {
-    this.result = result;
-    this.directoryToWrite = directoryToWrite;
-    this.attribute = attribute;
+    this(result, null, directoryToWrite, attribute);
   }
 
   /**
-   * Generates and writes the XML file containing the statistical data to the specified directory.
+   * Constructs a FilePrinter object for the statistics of a numeric attribute, which are written
+   * together with the number, minimum, maximum, mean and percentiles of the values.
    *
-   * @throws Exception If an error occurs during XML generation or file writing.
+   * @param result           The statistical data in the form of key-value pairs, which is
+   *                         iterated once while the file is written.
+   * @param summary          The histogram of all values, or null to write no summary.
+   * @param directoryToWrite The directory path where the XML file will be written.
+   * @param attribute        The attribute to be included in the output file name.
    */
-  public void print() throws Exception {
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder builder = factory.newDocumentBuilder();
+  public FilePrinter(Iterable<Map.Entry<String, Long>> result, NumericHistogram summary,
+                     String directoryToWrite, String attribute) {
+    this(new ExactBody(result, summary), directoryToWrite, attribute);
+  }
 
-    Document document = builder.newDocument();
+  /**
+   * Constructs a FilePrinter object for approximate statistics.
+   *
+   * @param sketch           The sketch of the attribute.
+   * @param limit            The maximum number of values to be written.
+   * @param directoryToWrite The directory path where the XML file will be written.
+   * @param attribute        The attribute to be included in the output file name.
+   */
+  public FilePrinter(AttributeSketch sketch, int limit, String directoryToWrite,
+                     String attribute) {
+    this(new ApproximateBody(sketch, limit), directoryToWrite, attribute);
+  }
 
-    Element root = document.createElement("statistics");
-    document.appendChild(root);
+  /**
+   * Constructs a FilePrinter object for the value combinations of several attributes. The file
+   * is named after all of them, for example statistics_by_artist_and_year_released.xml.
+   *
+   * @param groups           The counts of the value combinations.
+   * @param limit            The maximum number of values to be written on every level.
+   * @param directoryToWrite The directory path where the XML file will be written.
+   */
+  public FilePrinter(GroupTable groups, int limit, String directoryToWrite) {
+    this(new GroupedBody(groups, limit), directoryToWrite,
+        String.join("_and_", groups.getDimensions()));
+  }
 
-    for (Map.Entry<String, Integer> entry : result) {
-      Element item = document.createElement("item");
-      Element value = document.createElement("value");
-      value.appendChild(document.createTextNode(entry.getKey()));
-      Element count = document.createElement("count");
-      count.appendChild(document.createTextNode(Integer.toString(entry.getValue())));
-      item.appendChild(value);
-      item.appendChild(count);
-      root.appendChild(item);
-    }
+  private FilePrinter(StatisticsBody body, String directoryToWrite, String attribute) {
+    this.body = body;
+    this.directoryToWrite = directoryToWrite;
+    this.attribute = attribute;
+  }
 
-    TransformerFactory transformerFactory = TransformerFactory.newInstance();
-    Transformer transformer = transformerFactory.newTransformer();
-    DOMSource source = new DOMSource(document);
+  /**
+   * Generates and writes the XML file containing the statistical data to the specified directory.
+   * The file is written to a temporary file first and then renamed, so readers never see a
+   * partially written file.
+   *
+   * @throws IOException        If an error occurs during file writing.
+   * @throws XMLStreamException If an error occurs during XML generation.
+   */
+  public void print() throws IOException, XMLStreamException {
+    print(System.out);
+  }
 
+  /**
+   * Writes the XML file like {@link #print()} and reports it on the given stream.
+   *
+   * @param out The stream receiving the progress message.
+   * @throws IOException        If an error occurs during file writing.
+   * @throws XMLStreamException If an error occurs during XML generation.
+   */
+  public void print(PrintStream out) throws IOException, XMLStreamException {
     String fileName = Constants.getOutputFileName(attribute);
+    Path target = Path.of(directoryToWrite + fileName);
+    Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(),
+        target.getFileName().toString(), ".tmp");
+    try {
+      try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+          Files.newOutputStream(temporary), StandardCharsets.UTF_8))) {
+        write(writer);
+      }
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    out.println(fileName + " file was created at the same directory that you entered");
+  }
 
-    StreamResult result = new StreamResult(directoryToWrite
-        + fileName);
-    transformer.transform(source, result);
-    System.out.println(fileName + " file was created at the same directory that you entered");
+  /**
+   * Writes the statistics as XML to the given writer.
+   *
+   * @param writer The writer receiving the document.
+   * @throws IOException        If the writer fails.
+   * @throws XMLStreamException If an error occurs during XML generation.
+   */
+  public void write(Writer writer) throws IOException, XMLStreamException {
+    writer.write(XML_DECLARATION);
+    XMLStreamWriter xml = OUTPUT_FACTORY.createXMLStreamWriter(writer);
+    boolean empty = body.isEmpty();
+    if (empty) {
+      xml.writeEmptyElement("statistics");
+    } else {
+      xml.writeStartElement("statistics");
+    }
+    body.write(xml);
+    if (!empty) {
+      xml.writeEndElement();
+    }
+    xml.flush();
+    xml.close();
   }
 }
@@ -0,0 +1,53 @@
+package org.example.output;
+
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.example.processor.GroupTable;
+
+/**
+ * The GroupedBody class writes the value combinations of several attributes, nesting the items
+ * of every dimension inside the items of the previous one.
+ */
+class GroupedBody implements StatisticsBody {
+
+  private final List<String> dimensions;
+  private final List<GroupTable.Group> groups;
+
+  /**
+   * Constructs a GroupedBody.
+   *
+   * @param groups The counts of the value combinations.
+   * @param limit  The maximum number of values to be written on every level.
+   */
+  GroupedBody(GroupTable groups, int limit) {
+    this.dimensions = groups.getDimensions();
+    this.groups = groups.top(limit);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return groups.isEmpty();
+  }
+
+  @Override
+  public void write(XMLStreamWriter xml) throws XMLStreamException {
+    xml.writeAttribute("groupBy", String.join(",", dimensions));
+    for (GroupTable.Group group : groups) {
+      writeGroup(xml, group);
+    }
+  }
+
+  /**
+   * Writes a group as an item that contains the items of the next dimension.
+   */
+  private static void writeGroup(XMLStreamWriter xml, GroupTable.Group group)
+      throws XMLStreamException {
+    xml.writeStartElement("item");
+    StatisticsBody.writeValue(xml, group.value(), group.count());
+    for (GroupTable.Group nested : group.groups()) {
+      writeGroup(xml, nested);
+    }
+    xml.writeEndElement();
+  }
+}
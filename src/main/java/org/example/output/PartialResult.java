@@ -0,0 +1,125 @@
+package org.example.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.example.processor.CountTable;
+import org.example.processor.ShardSpec;
+
+/**
+ * The PartialResult class holds the counts of one shard of a sharded run. Instead of the
+ * statistics files, every shard writes its counts to a compact binary file: the shard followed
+ * by the counts of every attribute in the format of {@link CountTable#writeTo}. The partial
+ * results of all shards are merged into the final statistics afterwards.
+ *
+ * @param shard  The shard the counts were taken from.
+ * @param tables The counts of every attribute.
+ */
+public record PartialResult(ShardSpec shard, Map<String, CountTable> tables) {
+
+  private static final int MAGIC = 0x4A505254;
+  private static final int VERSION = 1;
+
+  /**
+   * Writes the partial result to a temporary file first and then renames it, so a failed run
+   * never leaves a truncated partial result behind.
+   *
+   * @param path The file to write.
+   * @throws IOException If the file can not be written.
+   */
+  public void write(Path path) throws IOException {
+    Path absolute = path.toAbsolutePath();
+    Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(),
+        ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(shard.index());
+        output.writeInt(shard.count());
+        output.writeInt(tables.size());
+        for (Map.Entry<String, CountTable> table : tables.entrySet()) {
+          output.writeUTF(table.getKey());
+          table.getValue().writeTo(output);
+        }
+      }
+      Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Reads a partial result written by {@link #write(Path)}.
+   *
+   * @param path The file to read.
+   * @return the partial result
+   * @throws IOException If the file can not be read or is not a valid partial result.
+   */
+  public static PartialResult read(Path path) throws IOException {
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        throw new IOException("Not a partial result: " + path);
+      }
+      ShardSpec shard;
+      try {
+        shard = new ShardSpec(input.readInt(), input.readInt());
+      } catch (IllegalArgumentException e) {
+        throw new IOException(e.getMessage() + " in " + path, e);
+      }
+      int count = input.readInt();
+      Map<String, CountTable> tables = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        tables.put(input.readUTF(), CountTable.readFrom(input));
+      }
+      return new PartialResult(shard, tables);
+    }
+  }
+
+  /**
+   * Adds up the counts of partial results. All partial results must count the same attributes,
+   * and partial results of sharded runs must come from different shards of the same number of
+   * shards, so nothing is counted twice.
+   *
+   * @param partials The partial results to merge.
+   * @return the counts of every attribute
+   * @throws IllegalArgumentException If the partial results do not fit together.
+   */
+  public static Map<String, CountTable> merge(Collection<PartialResult> partials) {
+    Map<String, CountTable> merged = new LinkedHashMap<>();
+    Set<String> attributes = null;
+    Map<Integer, ShardSpec> shards = new HashMap<>();
+    for (PartialResult partial : partials) {
+      if (attributes == null) {
+        attributes = partial.tables.keySet();
+      } else if (!attributes.equals(partial.tables.keySet())) {
+        throw new IllegalArgumentException("The partial results count different attributes: "
+            + attributes + " and " + partial.tables.keySet());
+      }
+      ShardSpec other = shards.values().stream().findAny().orElse(partial.shard);
+      if (other.count() != partial.shard.count()) {
+        throw new IllegalArgumentException("The partial results come from runs with different "
+            + "numbers of shards: " + other + " and " + partial.shard);
+      }
+      if (shards.put(partial.shard.index(), partial.shard) != null) {
+        throw new IllegalArgumentException("Shard " + partial.shard + " is given twice");
+      }
+      partial.tables.forEach((attribute, table) ->
+          merged.computeIfAbsent(attribute, key -> new CountTable()).mergeFrom(table));
+    }
+    return merged;
+  }
+}
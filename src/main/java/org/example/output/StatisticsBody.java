@@ -0,0 +1,53 @@
+package org.example.output;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * The StatisticsBody interface writes the contents of the statistics element of one kind of
+ * statistics, while the FilePrinter writes the document around it.
+ */
+interface StatisticsBody {
+
+  /**
+   * Tells whether there are no items, so the statistics element is written as an empty element.
+   * Called once before {@link #write}.
+   */
+  boolean isEmpty();
+
+  /**
+   * Writes the attributes of the statistics element and its items.
+   *
+   * @param xml The writer positioned inside the statistics element.
+   * @throws XMLStreamException If an error occurs during XML generation.
+   */
+  void write(XMLStreamWriter xml) throws XMLStreamException;
+
+  /**
+   * Writes an item with its value, its count and, if the error is not negative, its error.
+   */
+  static void writeItem(XMLStreamWriter xml, String value, long count, long error)
+      throws XMLStreamException {
+    xml.writeStartElement("item");
+    writeValue(xml, value, count);
+    if (error >= 0) {
+      xml.writeStartElement("error");
+      xml.writeCharacters(Long.toString(error));
+      xml.writeEndElement();
+    }
+    xml.writeEndElement();
+  }
+
+  /**
+   * Writes the value and the count of an item.
+   */
+  static void writeValue(XMLStreamWriter xml, String value, long count)
+      throws XMLStreamException {
+    xml.writeStartElement("value");
+    xml.writeCharacters(value);
+    xml.writeEndElement();
+    xml.writeStartElement("count");
+    xml.writeCharacters(Long.toString(count));
+    xml.writeEndElement();
+  }
+}
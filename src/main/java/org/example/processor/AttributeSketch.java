@@ -0,0 +1,118 @@
+package org.example.processor;
+
+import java.util.List;
+
+/**
+ * The AttributeSketch class counts the values of an attribute approximately in bounded memory.
+ * The most frequent values are tracked by a SpaceSaving sketch and the number of distinct values
+ * is estimated by a HyperLogLog sketch. The memory used by a sketch depends only on its capacity,
+ * not on the number of distinct values, and sketches of different ranges are merged like count
+ * tables.
+ */
+public class AttributeSketch implements ValueCounter {
+
+  private static final int DISTINCT_PRECISION = 14;
+
+  private final SpaceSaving frequencies;
+  private final HyperLogLog distinct;
+  private long total;
+
+  /**
+   * Constructs an empty sketch.
+   *
+   * @param capacity The number of values whose counts are tracked.
+   */
+  public AttributeSketch(int capacity) {
+    this(new SpaceSaving(capacity), new HyperLogLog(DISTINCT_PRECISION), 0);
+  }
+
+  private AttributeSketch(SpaceSaving frequencies, HyperLogLog distinct, long total) {
+    this.frequencies = frequencies;
+    this.distinct = distinct;
+    this.total = total;
+  }
+
+  @Override
+  public void increment(char[] chars, int offset, int length) {
+    increment(new String(chars, offset, length));
+  }
+
+  /**
+   * Counts one occurrence of the given value.
+   *
+   * @param value The value to be counted.
+   */
+  public void increment(String value) {
+    total++;
+    frequencies.increment(value);
+    distinct.add(hash(value));
+  }
+
+  /**
+   * Merges the other sketch into this sketch.
+   *
+   * @param other The sketch to be merged.
+   */
+  public void mergeFrom(AttributeSketch other) {
+    total += other.total;
+    frequencies.mergeFrom(other.frequencies);
+    distinct.mergeFrom(other.distinct);
+  }
+
+  public AttributeSketch copy() {
+    return new AttributeSketch(frequencies.copy(), distinct.copy(), total);
+  }
+
+  /**
+   * Returns the estimated counts of the most frequent values.
+   *
+   * @param limit The maximum number of values to return.
+   * @return the estimates, largest count first
+   */
+  public List<SpaceSaving.Estimate> top(int limit) {
+    return frequencies.top(limit);
+  }
+
+  /**
+   * Returns the exact number of counted values.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the largest number of occurrences of a value that is not reported by {@link #top}.
+   */
+  public long getUnmonitoredBound() {
+    return frequencies.unmonitoredBound();
+  }
+
+  /**
+   * Returns the estimated number of distinct values.
+   */
+  public long getDistinct() {
+    return distinct.estimate();
+  }
+
+  /**
+   * Returns the standard error of {@link #getDistinct()} relative to the true number.
+   */
+  public double getDistinctError() {
+    return distinct.relativeError();
+  }
+
+  /**
+   * Hashes a value to 64 well distributed bits (FNV-1a followed by the MurmurHash3 finalizer).
+   */
+  private static long hash(String value) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+}
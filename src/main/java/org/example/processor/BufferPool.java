@@ -0,0 +1,52 @@
+package org.example.processor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The BufferPool class hands out reusable direct buffers of a fixed size. Buffers are allocated
+ * lazily up to the capacity of the pool; once every buffer is in use, acquiring a buffer blocks
+ * until another one is released.
+ */
+public class BufferPool {
+
+  private final BlockingQueue<ByteBuffer> free = new LinkedBlockingQueue<>();
+  private final AtomicInteger created = new AtomicInteger();
+  private final int bufferSize;
+  private final int capacity;
+
+  /**
+   * Constructs a BufferPool.
+   *
+   * @param bufferSize The size of every buffer in bytes.
+   * @param capacity   The maximum number of buffers.
+   */
+  public BufferPool(int bufferSize, int capacity) {
+    this.bufferSize = bufferSize;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns a cleared buffer, waiting for one to be released if the pool is exhausted.
+   *
+   * @return a buffer that has to be released after use
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  public ByteBuffer acquire() throws InterruptedException {
+    ByteBuffer buffer = free.poll();
+    if (buffer == null) {
+      if (created.incrementAndGet() <= capacity) {
+        return ByteBuffer.allocateDirect(bufferSize);
+      }
+      created.decrementAndGet();
+      buffer = free.take();
+    }
+    return buffer.clear();
+  }
+
+  public void release(ByteBuffer buffer) {
+    free.add(buffer);
+  }
+}
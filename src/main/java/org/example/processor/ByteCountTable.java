@@ -0,0 +1,145 @@
+package org.example.processor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The ByteCountTable class counts occurrences of byte sequences without creating objects per
+ * occurrence. It is an open-addressing hash table with linear probing: a key is hashed straight
+ * from the source buffer, and its bytes are copied into an internal array only the first time
+ * the key is seen. The table is not thread-safe and is meant to be owned by a single worker.
+ */
+public class ByteCountTable {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int INITIAL_KEY_BYTES = 1024;
+
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private int[] offsets = new int[INITIAL_CAPACITY];
+  private int[] lengths = new int[INITIAL_CAPACITY];
+  private long[] counts = new long[INITIAL_CAPACITY];
+  private byte[] keys = new byte[INITIAL_KEY_BYTES];
+  private int keysLength;
+  private int size;
+  private int mask = INITIAL_CAPACITY - 1;
+
+  /**
+   * Increments the count of the key stored in the given part of the source buffer.
+   *
+   * @param source The buffer containing the key.
+   * @param offset The absolute index of the first byte of the key.
+   * @param length The number of bytes of the key.
+   */
+  public void increment(ByteBuffer source, int offset, int length) {
+    int hash = hash(source, offset, length);
+    int slot = hash & mask;
+    while (counts[slot] != 0) {
+      if (hashes[slot] == hash && lengths[slot] == length
+          && keyEquals(offsets[slot], source, offset, length)) {
+        counts[slot]++;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    hashes[slot] = hash;
+    offsets[slot] = storeKey(source, offset, length);
+    lengths[slot] = length;
+    counts[slot] = 1;
+    if (++size * 2 > counts.length) {
+      resize();
+    }
+  }
+
+  /**
+   * Returns the number of distinct keys in the table.
+   *
+   * @return the number of distinct keys
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Passes every key together with its count to the given consumer.
+   *
+   * @param consumer The consumer receiving the entries of the table.
+   */
+  public void forEach(EntryConsumer consumer) {
+    for (int slot = 0; slot < counts.length; slot++) {
+      if (counts[slot] != 0) {
+        consumer.accept(keys, offsets[slot], lengths[slot], counts[slot]);
+      }
+    }
+  }
+
+  private static int hash(ByteBuffer source, int offset, int length) {
+    int hash = 1;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + source.get(i);
+    }
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private boolean keyEquals(int keyOffset, ByteBuffer source, int offset, int length) {
+    for (int i = 0; i < length; i++) {
+      if (keys[keyOffset + i] != source.get(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int storeKey(ByteBuffer source, int offset, int length) {
+    if (keysLength + length > keys.length) {
+      keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keysLength + length));
+    }
+    int keyOffset = keysLength;
+    source.get(offset, keys, keyOffset, length);
+    keysLength += length;
+    return keyOffset;
+  }
+
+  private void resize() {
+    int[] oldHashes = hashes;
+    int[] oldOffsets = offsets;
+    int[] oldLengths = lengths;
+    long[] oldCounts = counts;
+    int capacity = oldCounts.length * 2;
+    hashes = new int[capacity];
+    offsets = new int[capacity];
+    lengths = new int[capacity];
+    counts = new long[capacity];
+    mask = capacity - 1;
+    for (int oldSlot = 0; oldSlot < oldCounts.length; oldSlot++) {
+      if (oldCounts[oldSlot] == 0) {
+        continue;
+      }
+      int slot = oldHashes[oldSlot] & mask;
+      while (counts[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      hashes[slot] = oldHashes[oldSlot];
+      offsets[slot] = oldOffsets[oldSlot];
+      lengths[slot] = oldLengths[oldSlot];
+      counts[slot] = oldCounts[oldSlot];
+    }
+  }
+
+  /**
+   * Receives the entries of a ByteCountTable. The key bytes are only valid during the call.
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+
+    /**
+     * Accepts a single entry of the table.
+     *
+     * @param bytes  The array containing the key.
+     * @param offset The index of the first byte of the key.
+     * @param length The number of bytes of the key.
+     * @param count  The number of occurrences of the key.
+     */
+    void accept(byte[] bytes, int offset, int length, long count);
+  }
+}
@@ -0,0 +1,495 @@
+package org.example.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import org.example.constants.Constants;
+
+/**
+ * The ByteFileProcessor class counts attribute values by scanning the raw UTF-8 bytes of a
+ * memory-mapped JSON file instead of tokenizing it with Jackson. Field names are matched as bytes
+ * and every value is hashed straight from the mapped file into a per-thread ByteCountTable, so no
+ * String is created while scanning. Strings are only created once per distinct value, when the
+ * local counts are returned as a partial result. Field names and values containing escape
+ * sequences are the exception: they are decoded before they are matched or split, so they are
+ * counted exactly like the Jackson engine counts them.
+ * Like FileProcessor, an instance processes a single JSON file or a single byte range of it, and
+ * files are either a single JSON array of records or contain one record per line.
+ */
+public class ByteFileProcessor implements RangeProcessor {
+
+  private static final long WINDOW_SIZE = 1L << 30;
+  private static final byte[] VALUE_SEPARATOR = {',', ' '};
+  private static final WindowExhaustedException WINDOW_EXHAUSTED = new WindowExhaustedException();
+
+  private final String[] attributes;
+  private final byte[][] attributeNames;
+  private final boolean[] multipleAttributes;
+  private final ByteCountTable[] tables;
+  private final CountTable[] escapedTables;
+  @Getter
+  private final File file;
+  @Getter
+  private final FileRange range;
+  private final InputFormat format;
+
+  private MappedByteBuffer buffer;
+  private long windowStart;
+  private int limit;
+  private boolean lastWindow;
+  private int pos;
+
+  private int[] pendingAttributes = new int[8];
+  private int[] pendingOffsets = new int[8];
+  private int[] pendingLengths = new int[8];
+  private boolean[] pendingEscaped = new boolean[8];
+  private int pendingCount;
+  private boolean escaped;
+  private long records;
+
+  /**
+   * Constructs a ByteFileProcessor that counts the attributes of the top-level objects whose
+   * opening brace lies inside the given range.
+   */
+  public ByteFileProcessor(Collection<String> attributes, File file, FileRange range) {
+    this(attributes, file, range, InputFormat.ARRAY);
+  }
+
+  /**
+   * Constructs a ByteFileProcessor for files of the given format. With AUTO, the format is taken
+   * from the first character of the file.
+   */
+  public ByteFileProcessor(Collection<String> attributes, File file, FileRange range,
+                           InputFormat format) {
+    this.file = file;
+    this.range = range;
+    this.format = format;
+    this.attributes = attributes.toArray(new String[0]);
+    attributeNames = new byte[this.attributes.length][];
+    multipleAttributes = new boolean[this.attributes.length];
+    tables = new ByteCountTable[this.attributes.length];
+    escapedTables = new CountTable[this.attributes.length];
+    for (int i = 0; i < this.attributes.length; i++) {
+      attributeNames[i] = this.attributes[i].getBytes(StandardCharsets.UTF_8);
+      multipleAttributes[i] = Constants.MULTIPLE_ATTRIBUTES.contains(this.attributes[i]);
+    }
+  }
+
+  @Override
+  public FileResult call() {
+    try {
+      return FileResult.success(file, range, process(), records);
+    } catch (IOException | RuntimeException e) {
+      return FileResult.failure(file, range, e);
+    }
+  }
+
+  /**
+   * Scans the mapped file, counting the values of the specified attributes in the local tables,
+   * and decodes the counted values.
+   *
+   * @return the counts of every attribute
+   * @throws IOException If an error occurs while reading the JSON file or parsing its contents.
+   */
+  public Map<String, CountTable> process() throws IOException {
+    for (int i = 0; i < tables.length; i++) {
+      tables[i] = new ByteCountTable();
+      escapedTables[i] = new CountTable();
+    }
+    boolean lines = (format == InputFormat.AUTO ? InputFormat.detect(file) : format)
+        == InputFormat.NDJSON;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      map(channel, range.start(), fileSize);
+      if (range.start() == 0 && !lines) {
+        skipWhitespace();
+        if (byteAt(pos) != '[') {
+          throw new IOException("Expected an array as the root");
+        }
+        pos++;
+      }
+      boolean finished = false;
+      while (!finished) {
+        long resumePoint = windowStart + pos;
+        try {
+          finished = lines ? processNextLine() : processNext();
+        } catch (WindowExhaustedException e) {
+          if (resumePoint == windowStart) {
+            throw new IOException("Json record is larger than the mapping window");
+          }
+          map(channel, resumePoint, fileSize);
+        }
+      }
+    }
+    return decodeLocalTables();
+  }
+
+  /**
+   * Processes the next element of the root array.
+   *
+   * @return true if there are no more elements that belong to the range
+   */
+  private boolean processNext() throws IOException {
+    skipWhitespace();
+    byte current = byteAt(pos);
+    if (current == ']') {
+      return true;
+    }
+    if (current == ',') {
+      pos++;
+      return false;
+    }
+    if (current != '{') {
+      throw new IOException("Expected an object inside the root array");
+    }
+    if (windowStart + pos >= range.end()) {
+      return true;
+    }
+    processRecord();
+    return false;
+  }
+
+  /**
+   * Processes the record of the next line.
+   *
+   * @return true if there are no more lines that belong to the range
+   */
+  private boolean processNextLine() throws IOException {
+    while (pos < limit && isWhitespace(buffer.get(pos))) {
+      pos++;
+    }
+    if (pos == limit) {
+      if (lastWindow) {
+        return true;
+      }
+      throw WINDOW_EXHAUSTED;
+    }
+    if (buffer.get(pos) != '{') {
+      throw new IOException("Expected an object on every line");
+    }
+    if (windowStart + pos >= range.end()) {
+      return true;
+    }
+    processRecord();
+    return false;
+  }
+
+  private void processRecord() throws IOException {
+    pendingCount = 0;
+    pos++;
+    while (true) {
+      skipWhitespace();
+      byte current = byteAt(pos);
+      if (current == '}') {
+        pos++;
+        break;
+      }
+      if (current == ',') {
+        pos++;
+        continue;
+      }
+      if (current != '"') {
+        throw new IOException("Expected a field name");
+      }
+      int nameStart = pos + 1;
+      int nameEnd = skipString(pos);
+      pos = nameEnd + 1;
+      skipWhitespace();
+      if (byteAt(pos) != ':') {
+        throw new IOException("Expected a colon after the field name");
+      }
+      pos++;
+      skipWhitespace();
+      int attribute = escaped
+          ? matchAttribute(decodeString(nameStart, nameEnd - nameStart))
+          : matchAttribute(nameStart, nameEnd - nameStart);
+      if (attribute < 0) {
+        skipValue();
+      } else {
+        readValue(attribute);
+      }
+    }
+    for (int i = 0; i < pendingCount; i++) {
+      if (pendingEscaped[i]) {
+        countDecoded(pendingAttributes[i], decodeString(pendingOffsets[i], pendingLengths[i]));
+      } else {
+        count(pendingAttributes[i], pendingOffsets[i], pendingLengths[i]);
+      }
+    }
+    records++;
+  }
+
+  private int matchAttribute(int offset, int length) {
+    for (int i = 0; i < attributeNames.length; i++) {
+      byte[] name = attributeNames[i];
+      if (name.length == length && regionEquals(offset, name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int matchAttribute(String name) {
+    for (int i = 0; i < attributes.length; i++) {
+      if (attributes[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Remembers the value of a wanted field. The values are only counted once the whole record was
+   * read, so a record that has to be read again from a new window is never counted twice.
+   */
+  private void readValue(int attribute) throws IOException {
+    byte current = byteAt(pos);
+    if (current == '{' || current == '[') {
+      skipValue();
+      return;
+    }
+    int start;
+    int end;
+    boolean escapedValue = false;
+    if (current == '"') {
+      start = pos + 1;
+      end = skipString(pos);
+      escapedValue = escaped;
+      pos = end + 1;
+    } else {
+      start = pos;
+      skipScalar();
+      end = pos;
+    }
+    if (pendingCount == pendingAttributes.length) {
+      pendingAttributes = Arrays.copyOf(pendingAttributes, pendingCount * 2);
+      pendingOffsets = Arrays.copyOf(pendingOffsets, pendingCount * 2);
+      pendingLengths = Arrays.copyOf(pendingLengths, pendingCount * 2);
+      pendingEscaped = Arrays.copyOf(pendingEscaped, pendingCount * 2);
+    }
+    pendingAttributes[pendingCount] = attribute;
+    pendingOffsets[pendingCount] = start;
+    pendingLengths[pendingCount] = end - start;
+    pendingEscaped[pendingCount] = escapedValue;
+    pendingCount++;
+  }
+
+  /**
+   * Counts a value that was decoded from a string with escape sequences.
+   */
+  private void countDecoded(int attribute, String value) {
+    char[] chars = value.toCharArray();
+    if (multipleAttributes[attribute]) {
+      FileProcessor.handleMultipleAttribute(escapedTables[attribute], chars, 0, chars.length);
+    } else {
+      escapedTables[attribute].increment(chars, 0, chars.length);
+    }
+  }
+
+  /**
+   * Counts a value, splitting multiple attributes the same way String.split(", ") does.
+   */
+  private void count(int attribute, int offset, int length) {
+    ByteCountTable table = tables[attribute];
+    if (!multipleAttributes[attribute]) {
+      table.increment(buffer, offset, length);
+      return;
+    }
+    int end = offset + length;
+    int partStart = offset;
+    int emptyParts = 0;
+    boolean separated = false;
+    for (int i = offset; i + VALUE_SEPARATOR.length <= end; i++) {
+      if (regionEquals(i, VALUE_SEPARATOR)) {
+        if (i == partStart) {
+          emptyParts++;
+        } else {
+          for (; emptyParts > 0; emptyParts--) {
+            table.increment(buffer, partStart, 0);
+          }
+          table.increment(buffer, partStart, i - partStart);
+        }
+        separated = true;
+        i += VALUE_SEPARATOR.length - 1;
+        partStart = i + 1;
+      }
+    }
+    if (!separated || partStart < end) {
+      for (; emptyParts > 0; emptyParts--) {
+        table.increment(buffer, partStart, 0);
+      }
+      table.increment(buffer, partStart, end - partStart);
+    }
+  }
+
+  private void skipValue() throws IOException {
+    byte current = byteAt(pos);
+    if (current == '"') {
+      pos = skipString(pos) + 1;
+    } else if (current == '{' || current == '[') {
+      int depth = 0;
+      do {
+        current = byteAt(pos);
+        if (current == '"') {
+          pos = skipString(pos);
+        } else if (current == '{' || current == '[') {
+          depth++;
+        } else if (current == '}' || current == ']') {
+          depth--;
+        }
+        pos++;
+      } while (depth > 0);
+    } else {
+      skipScalar();
+    }
+  }
+
+  private void skipScalar() throws IOException {
+    while (true) {
+      byte current = byteAt(pos);
+      if (current == ',' || current == '}' || current == ']' || isWhitespace(current)) {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  /**
+   * Finds the closing quote of the string starting at the given opening quote, and remembers
+   * whether the string contains an escape sequence.
+   *
+   * @return the index of the closing quote
+   */
+  private int skipString(int openingQuote) throws IOException {
+    int i = openingQuote + 1;
+    escaped = false;
+    while (true) {
+      byte current = byteAt(i);
+      if (current == '\\') {
+        escaped = true;
+        i += 2;
+      } else if (current == '"') {
+        return i;
+      } else {
+        i++;
+      }
+    }
+  }
+
+  private void skipWhitespace() throws IOException {
+    while (isWhitespace(byteAt(pos))) {
+      pos++;
+    }
+  }
+
+  private static boolean isWhitespace(byte value) {
+    return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+  }
+
+  private boolean regionEquals(int offset, byte[] expected) {
+    for (int i = 0; i < expected.length; i++) {
+      if (buffer.get(offset + i) != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte byteAt(int index) throws IOException {
+    if (index >= limit) {
+      if (lastWindow) {
+        throw new IOException("Unexpected end of json file");
+      }
+      throw WINDOW_EXHAUSTED;
+    }
+    return buffer.get(index);
+  }
+
+  private void map(FileChannel channel, long position, long fileSize) throws IOException {
+    long size = Math.min(WINDOW_SIZE, fileSize - position);
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    windowStart = position;
+    limit = (int) size;
+    lastWindow = position + size == fileSize;
+    pos = 0;
+  }
+
+  private Map<String, CountTable> decodeLocalTables() {
+    Map<String, CountTable> localTables = new HashMap<>();
+    for (int i = 0; i < attributes.length; i++) {
+      CountTable decoded = escapedTables[i];
+      tables[i].forEach((bytes, offset, length, count) ->
+          decoded.add(new String(bytes, offset, length, StandardCharsets.UTF_8), count));
+      localTables.put(attributes[i], decoded);
+    }
+    return localTables;
+  }
+
+  /**
+   * Decodes the raw bytes of a JSON string in the window, resolving escape sequences.
+   *
+   * @throws IOException If the string contains an invalid escape sequence.
+   */
+  private String decodeString(int offset, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    buffer.get(offset, bytes);
+    String raw = new String(bytes, StandardCharsets.UTF_8);
+    StringBuilder value = new StringBuilder(raw.length());
+    for (int i = 0; i < raw.length(); i++) {
+      char current = raw.charAt(i);
+      if (current != '\\') {
+        value.append(current);
+        continue;
+      }
+      if (++i == raw.length()) {
+        throw new IOException("Unexpected end of escape sequence in json string");
+      }
+      char escapedChar = raw.charAt(i);
+      switch (escapedChar) {
+        case '"', '\\', '/' -> value.append(escapedChar);
+        case 'b' -> value.append('\b');
+        case 'f' -> value.append('\f');
+        case 'n' -> value.append('\n');
+        case 'r' -> value.append('\r');
+        case 't' -> value.append('\t');
+        case 'u' -> {
+          if (i + 4 >= raw.length()) {
+            throw new IOException("Unexpected end of unicode escape in json string");
+          }
+          int code = 0;
+          for (int digit = 1; digit <= 4; digit++) {
+            int hex = Character.digit(raw.charAt(i + digit), 16);
+            if (hex < 0) {
+              throw new IOException("Invalid unicode escape in json string: \\u"
+                  + raw.substring(i + 1, i + 5));
+            }
+            code = code * 16 + hex;
+          }
+          value.append((char) code);
+          i += 4;
+        }
+        default -> throw new IOException("Invalid escape sequence in json string: \\"
+            + escapedChar);
+      }
+    }
+    return value.toString();
+  }
+
+  /**
+   * Signals that the current mapping window ends in the middle of a record.
+   */
+  @SuppressWarnings("serial")
+  private static final class WindowExhaustedException extends RuntimeException {
+    private WindowExhaustedException() {
+      super(null, null, false, false);
+    }
+  }
+}
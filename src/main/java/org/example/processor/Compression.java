@@ -0,0 +1,132 @@
+package org.example.processor;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The Compression enum describes the supported formats of input files, which are recognized by
+ * their extension. Compressed files are decompressed while they are parsed and are never split
+ * into ranges. A zip archive may contain several JSON files, which are parsed one after another.
+ */
+public enum Compression {
+  NONE(".json", ".jsonl", ".ndjson"),
+  GZIP(".json.gz", ".jsonl.gz", ".ndjson.gz"),
+  ZIP(".zip");
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final String[] extensions;
+
+  Compression(String... extensions) {
+    this.extensions = extensions;
+  }
+
+  /**
+   * Determines the format of a file by its extension.
+   *
+   * @param file The file.
+   * @return the format, or null if the file is not a supported input file
+   */
+  public static Compression forFile(File file) {
+    String name = file.getName();
+    for (Compression compression : values()) {
+      if (compression.matches(name)) {
+        return compression;
+      }
+    }
+    return null;
+  }
+
+  private boolean matches(String name) {
+    String lowerCaseName = name.toLowerCase(Locale.ROOT);
+    for (String extension : extensions) {
+      if (lowerCaseName.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean isCompressed() {
+    return this != NONE;
+  }
+
+  /**
+   * Opens the decompressed contents of a file on the calling thread. The JSON files of a zip
+   * archive are separated by line breaks.
+   *
+   * @param file The file to be opened.
+   * @return the decompressed stream
+   * @throws IOException If the file can not be opened or is not in the expected format.
+   */
+  public InputStream open(File file) throws IOException {
+    InputStream input = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+    try {
+      return switch (this) {
+        case NONE -> input;
+        case GZIP -> new GZIPInputStream(input, BUFFER_SIZE);
+        case ZIP -> new ZipEntriesInputStream(new ZipInputStream(input));
+      };
+    } catch (IOException e) {
+      input.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Concatenates the JSON files of a zip archive, followed by a line break each.
+   */
+  private static final class ZipEntriesInputStream extends InputStream {
+
+    private final ZipInputStream zip;
+    private boolean inEntry;
+
+    private ZipEntriesInputStream(ZipInputStream zip) {
+      this.zip = zip;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!inEntry && !nextEntry()) {
+        return -1;
+      }
+      int read = zip.read(bytes, offset, length);
+      if (read >= 0) {
+        return read;
+      }
+      inEntry = false;
+      bytes[offset] = '\n';
+      return 1;
+    }
+
+    private boolean nextEntry() throws IOException {
+      for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        if (!entry.isDirectory() && NONE.matches(entry.getName())) {
+          inEntry = true;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      zip.close();
+    }
+  }
+}
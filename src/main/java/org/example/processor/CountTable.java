@@ -0,0 +1,332 @@
+package org.example.processor;
+
+import static org.example.processor.Hashing.hash;
+import static org.example.processor.Hashing.mix;
+import static org.example.processor.Hashing.regionEquals;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * The CountTable class counts occurrences of attribute values with primitive long counts.
+ * It is an open-addressing hash table with linear probing, so an increment is a single probe
+ * sequence without boxing. Keys are interned: the String stored on the first occurrence of a value
+ * is reused for every later occurrence, and values passed as character slices are only turned
+ * into a String when they are seen for the first time.
+ * The table is not thread-safe, callers sharing a table have to synchronize on it.
+ */
+public class CountTable implements ValueCounter {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int SLOT_BYTES = 16;
+  private static final int KEY_OVERHEAD_BYTES = 40;
+
+  private String[] keys = new String[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private long[] counts = new long[INITIAL_CAPACITY];
+  private int size;
+  private int mask = INITIAL_CAPACITY - 1;
+  private long keyLength;
+
+  /**
+   * Increments the count of the given value by one.
+   *
+   * @param key The value to be counted.
+   */
+  public void increment(String key) {
+    add(key, mix(key.hashCode()), 1);
+  }
+
+  /**
+   * Increments the count of the value stored in the given part of a character array by one.
+   * The hash is computed the same way as String.hashCode(), so slices and strings with the same
+   * characters are counted as the same key.
+   *
+   * @param chars  The array containing the value.
+   * @param offset The index of the first character of the value.
+   * @param length The number of characters of the value.
+   */
+  @Override
+  public void increment(char[] chars, int offset, int length) {
+    int hash = hash(chars, offset, length);
+    int slot = hash & mask;
+    String existing;
+    while ((existing = keys[slot]) != null) {
+      if (hashes[slot] == hash && regionEquals(existing, chars, offset, length)) {
+        counts[slot]++;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    insert(slot, new String(chars, offset, length), hash, 1);
+  }
+
+  /**
+   * Adds the given number of occurrences to the count of a value.
+   *
+   * @param key   The value to be counted.
+   * @param count The number of occurrences to add.
+   */
+  public void add(String key, long count) {
+    add(key, mix(key.hashCode()), count);
+  }
+
+  /**
+   * Adds every count of the other table to this table. The stored hashes of the other table are
+   * reused, so merging neither boxes counts nor rehashes keys.
+   *
+   * @param other The table to be merged into this table.
+   */
+  public void mergeFrom(CountTable other) {
+    for (int slot = 0; slot < other.keys.length; slot++) {
+      if (other.keys[slot] != null) {
+        add(other.keys[slot], other.hashes[slot], other.counts[slot]);
+      }
+    }
+  }
+
+  /**
+   * Returns the count of the given value.
+   *
+   * @param key The value to look up.
+   * @return the number of occurrences of the value, or 0 if it was never counted
+   */
+  public long get(String key) {
+    int hash = mix(key.hashCode());
+    int slot = hash & mask;
+    String existing;
+    while ((existing = keys[slot]) != null) {
+      if (hashes[slot] == hash && existing.equals(key)) {
+        return counts[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Estimates the heap the table occupies: the slot arrays, and a String with its character
+   * array per value. Keys shared with other tables are counted by every table.
+   *
+   * @return the estimated number of bytes
+   */
+  public long estimatedBytes() {
+    return (long) keys.length * SLOT_BYTES + (long) size * KEY_OVERHEAD_BYTES + keyLength;
+  }
+
+  /**
+   * Removes every value from the table.
+   */
+  public void clear() {
+    keys = new String[INITIAL_CAPACITY];
+    hashes = new int[INITIAL_CAPACITY];
+    counts = new long[INITIAL_CAPACITY];
+    size = 0;
+    mask = INITIAL_CAPACITY - 1;
+    keyLength = 0;
+  }
+
+  /**
+   * Passes every value together with its count to the given consumer.
+   *
+   * @param consumer The consumer receiving the entries of the table.
+   */
+  public void forEach(ObjLongConsumer<String> consumer) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != null) {
+        consumer.accept(keys[slot], counts[slot]);
+      }
+    }
+  }
+
+  /**
+   * Returns a snapshot of the table as a list of entries, for example to sort the counts.
+   *
+   * @return the list of values and their counts in no particular order
+   */
+  public List<Map.Entry<String, Long>> entries() {
+    List<Map.Entry<String, Long>> entries = new ArrayList<>(size);
+    forEach((key, count) -> entries.add(Map.entry(key, count)));
+    return entries;
+  }
+
+  /**
+   * Returns the values with the largest counts, ordered by count descending and by value for
+   * equal counts. Only a heap of the requested size is kept while the table is scanned, so
+   * selecting the top values of a large table neither copies nor sorts every entry.
+   *
+   * @param limit The maximum number of values to return.
+   * @return the entries with the largest counts, largest first
+   */
+  public List<Map.Entry<String, Long>> top(int limit) {
+    Comparator<Map.Entry<String, Long>> order = Map.Entry.<String, Long>comparingByValue()
+        .reversed().thenComparing(Map.Entry.comparingByKey());
+    if (limit >= size) {
+      List<Map.Entry<String, Long>> entries = entries();
+      entries.sort(order);
+      return entries;
+    }
+    PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(limit + 1, order.reversed());
+    if (limit > 0) {
+      forEach((key, count) -> {
+        if (heap.size() < limit) {
+          heap.add(Map.entry(key, count));
+          return;
+        }
+        Map.Entry<String, Long> smallest = heap.peek();
+        if (count > smallest.getValue()
+            || count == smallest.getValue() && key.compareTo(smallest.getKey()) < 0) {
+          heap.poll();
+          heap.add(Map.entry(key, count));
+        }
+      });
+    }
+    List<Map.Entry<String, Long>> entries = new ArrayList<>(heap);
+    entries.sort(order);
+    return entries;
+  }
+
+  /**
+   * Writes the table in a compact binary format: the number of values, followed by every value
+   * as its length and UTF-8 bytes and its count.
+   *
+   * @param output The output to write to.
+   * @throws IOException If the table can not be written.
+   */
+  public void writeTo(DataOutput output) throws IOException {
+    output.writeInt(size);
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != null) {
+        byte[] bytes = keys[slot].getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+        output.writeLong(counts[slot]);
+      }
+    }
+  }
+
+  /**
+   * Reads a table written by {@link #writeTo(DataOutput)}.
+   *
+   * @param input The input to read from.
+   * @return the table that was read
+   * @throws IOException If the input can not be read or is not a valid table.
+   */
+  public static CountTable readFrom(DataInput input) throws IOException {
+    int size = input.readInt();
+    if (size < 0) {
+      throw new IOException("Invalid number of values: " + size);
+    }
+    CountTable table = new CountTable();
+    for (int i = 0; i < size; i++) {
+      int length = input.readInt();
+      if (length < 0) {
+        throw new IOException("Invalid value length: " + length);
+      }
+      byte[] bytes = new byte[length];
+      input.readFully(bytes);
+      table.add(new String(bytes, StandardCharsets.UTF_8), input.readLong());
+    }
+    return table;
+  }
+
+  /**
+   * Two tables are equal if they contain the same values with the same counts.
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof CountTable table) || table.size != size) {
+      return false;
+    }
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != null && table.get(keys[slot]) != counts[slot]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != null) {
+        hashCode += keys[slot].hashCode() ^ Long.hashCode(counts[slot]);
+      }
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("{");
+    forEach((key, count) -> builder.append(builder.length() > 1 ? ", " : "")
+        .append(key).append('=').append(count));
+    return builder.append('}').toString();
+  }
+
+  private void add(String key, int hash, long count) {
+    int slot = hash & mask;
+    String existing;
+    while ((existing = keys[slot]) != null) {
+      if (hashes[slot] == hash && existing.equals(key)) {
+        counts[slot] += count;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    insert(slot, key, hash, count);
+  }
+
+  private void insert(int slot, String key, int hash, long count) {
+    keys[slot] = key;
+    hashes[slot] = hash;
+    counts[slot] = count;
+    keyLength += key.length();
+    if (++size * 2 > keys.length) {
+      resize();
+    }
+  }
+
+  private void resize() {
+    String[] oldKeys = keys;
+    int[] oldHashes = hashes;
+    long[] oldCounts = counts;
+    int capacity = oldKeys.length * 2;
+    keys = new String[capacity];
+    hashes = new int[capacity];
+    counts = new long[capacity];
+    mask = capacity - 1;
+    for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+      if (oldKeys[oldSlot] == null) {
+        continue;
+      }
+      int slot = oldHashes[oldSlot] & mask;
+      while (keys[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = oldKeys[oldSlot];
+      hashes[slot] = oldHashes[oldSlot];
+      counts[slot] = oldCounts[oldSlot];
+    }
+  }
+}
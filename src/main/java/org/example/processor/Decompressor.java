@@ -0,0 +1,58 @@
+package org.example.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The Decompressor class opens compressed input files for FileProcessors. Gzip files that
+ * consist of several members are decompressed on a pool of its own, the threads parsing the files
+ * only read the decompressed members in order. Zip archives are decompressed on the parsing
+ * thread.
+ */
+public class Decompressor implements RangeInput, AutoCloseable {
+
+  private final ExecutorService executor;
+  private final int lookahead;
+
+  /**
+   * Constructs a Decompressor.
+   *
+   * @param threadNumber The number of threads decompressing gzip members.
+   */
+  public Decompressor(int threadNumber) {
+    executor = Executors.newFixedThreadPool(threadNumber, runnable -> {
+      Thread thread = new Thread(runnable, "decompressor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    lookahead = 2 * threadNumber;
+  }
+
+  /**
+   * Opens the decompressed contents of a compressed file. Compressed files can only be read as a
+   * whole, so the position has to be 0.
+   */
+  @Override
+  public InputStream open(File file, long position) throws IOException {
+    if (position != 0) {
+      throw new IllegalArgumentException("Compressed files can not be read from a position");
+    }
+    Compression compression = Compression.forFile(file);
+    if (compression == Compression.GZIP) {
+      return new ParallelGzipInputStream(file, executor, lookahead,
+          ParallelGzipInputStream.DEFAULT_MAX_MEMBER_SIZE);
+    }
+    if (compression == null) {
+      throw new IOException("Unsupported file format: " + file);
+    }
+    return compression.open(file);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,15 @@
+package org.example.processor;
+
+/**
+ * The Engine enum lists the available ways of counting attribute values in JSON files.
+ */
+public enum Engine {
+  /**
+   * Tokenizes the files with the Jackson streaming parser, see {@link FileProcessor}.
+   */
+  JACKSON,
+  /**
+   * Scans the raw bytes of memory-mapped files, see {@link ByteFileProcessor}.
+   */
+  BYTES
+}
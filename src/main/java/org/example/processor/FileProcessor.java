@@ -3,105 +3,605 @@ package org.example.processor;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.Set;
+import lombok.Getter;
 import org.example.constants.Constants;
 
 /**
- * The FileProcessor class is responsible for processing JSON files asynchronously to extract
- * specified attributes and update a concurrent result map with the extracted attribute counts.
- * Each instance of FileProcessor is designed to process a single JSON file.
+ * The FileProcessor class is responsible for processing JSON files to extract specified
+ * attributes and count their values in local tables that are returned as a partial result.
+ * Each instance of FileProcessor is designed to process a single JSON file or a single byte range
+ * of a JSON file produced by the FileSplitter. Files are either a single JSON array of records or
+ * contain one record per line, see {@link InputFormat}. With a {@link RecordFilter}, only the
+ * records matching the filter are counted.
+ * Records are read with a projection on the counted fields: nested objects and arrays are skipped
+ * with skipChildren(), other values are skipped without their text being decoded, and once every
+ * counted field of a record was read, the rest of the record is skipped without looking up its
+ * fields.
  */
-public class FileProcessor implements Runnable {
+public class FileProcessor implements RangeProcessor {
 
-  private final ConcurrentHashMap<String, Integer> resultMap;
-  private final HashMap<String, Integer> localMap = new HashMap<>();
-  private final String attribute;
+  private static final byte[] ARRAY_START = {'['};
+
+  private final Collection<String> attributes;
+  @Getter
   private final File file;
+  @Getter
+  private final FileRange range;
 
   private final JsonFactory factory;
-  private final CountDownLatch latch;
+  private final RangeInput input;
+  private final int sketchCapacity;
+  private final InputFormat format;
+  private final Compression compression;
+  private final RecordFilter filter;
+  private final RecordFilter.RecordValues filterValues;
+  private final List<String> groupBy;
+  private GroupTable groups;
+  private RecordSink sink;
+  private Map<String, Field> fields;
+  private long allFields;
+  private long records;
+
+  private ValueCounter[] pendingCounters = new ValueCounter[4];
+  private boolean[] pendingMultiple = new boolean[4];
+  private int[] pendingOffsets = new int[4];
+  private int[] pendingLengths = new int[4];
+  private char[] pendingChars = new char[256];
+  private int pendingCount;
+
+  private FileProcessor(Builder builder) {
+    this.attributes = builder.attributes;
+    this.file = builder.file;
+    this.range = builder.range == null ? new FileRange(0, file.length()) : builder.range;
+    this.factory = builder.factory;
+    this.input = builder.input;
+    this.sketchCapacity = builder.sketchCapacity;
+    this.format = builder.format;
+    Compression fileCompression = Compression.forFile(file);
+    this.compression = fileCompression == null ? Compression.NONE : fileCompression;
+    this.filter = builder.filter;
+    this.filterValues = filter == null ? null : filter.createValues();
+    this.groupBy = builder.groupBy;
+  }
 
   /**
-   * The FileProcessor class is responsible for processing JSON files asynchronously to extract
-   * specified attributes and update a concurrent result map with the extracted attribute counts.
-   * Each instance of FileProcessor is designed to process a single JSON file.
+   * Returns a builder of a FileProcessor that reads the whole file as a JSON array and counts no
+   * attributes until they are set.
+   *
+   * @param file    The file to be processed.
+   * @param factory The factory creating the parser.
    */
-  public FileProcessor(ConcurrentHashMap<String, Integer> resultMap,
-                       String attribute, File file, CountDownLatch latch, JsonFactory factory) {
-    this.resultMap = resultMap;
-    this.attribute = attribute;
-    this.file = file;
-    this.factory = factory;
-    this.latch = latch;
+  public static Builder builder(File file, JsonFactory factory) {
+    return new Builder(file, factory);
   }
 
-
   @Override
-  public void run() {
+  public FileResult call() {
     try {
-      process();
-    } catch (IOException e) {
-      System.out.println("Invalid json file format");
+      if (sketchCapacity > 0) {
+        return FileResult.approximate(file, range, processApproximately(), records);
+      }
+      return FileResult.success(file, range, process(), groups, records);
+    } catch (IOException | RuntimeException e) {
+      return FileResult.failure(file, range, e);
+    } finally {
+      if (input != null) {
+        input.release(file, range.start());
+      }
+    }
+  }
+
+  /**
+   * Processes the JSON file, extracting the specified attributes and counting their values in
+   * local tables. Values are passed to the tables as character slices of the parser buffer, so a
+   * String is only created for values that were not seen before. Integer values of numeric
+   * attributes are counted in a histogram by their value instead, which is turned into a table
+   * once the range is processed.
+   *
+   * @return the counts of every attribute
+   * @throws IOException If an error occurs while reading the JSON file or parsing its contents.
+   */
+  public Map<String, CountTable> process() throws IOException {
+    Map<String, ValueCounter> counters = new HashMap<>();
+    for (String attribute : attributes) {
+      counters.put(attribute, Constants.NUMERIC_ATTRIBUTES.contains(attribute)
+          ? new NumericHistogram() : new CountTable());
+    }
+    count(counters);
+    Map<String, CountTable> localTables = new HashMap<>();
+    counters.forEach((attribute, counter) -> localTables.put(attribute,
+        counter instanceof NumericHistogram histogram ? histogram.toCountTable()
+            : (CountTable) counter));
+    return localTables;
+  }
+
+  /**
+   * Processes the JSON file like {@link #process()}, but counts the values in sketches whose
+   * memory does not grow with the number of distinct values.
+   *
+   * @return the sketches of every attribute
+   * @throws IOException If an error occurs while reading the JSON file or parsing its contents.
+   */
+  public Map<String, AttributeSketch> processApproximately() throws IOException {
+    Map<String, AttributeSketch> localSketches = new HashMap<>();
+    for (String attribute : attributes) {
+      localSketches.put(attribute, new AttributeSketch(Math.max(1, sketchCapacity)));
     }
-    latch.countDown();
+    count(localSketches);
+    return localSketches;
   }
 
   /**
-   * Processes the JSON file, extracting the specified attribute and updating the local map with
-   * the attribute counts.
+   * Processes the JSON file like {@link #process()}, but passes the values of every record to
+   * the given sink instead of counting them. With a filter, only the matching records are ended.
    *
+   * @param recordSink The sink receiving the records.
    * @throws IOException If an error occurs while reading the JSON file or parsing its contents.
    */
-  public void process() throws IOException {
-    boolean isMultipleAttribute = Constants.MULTIPLE_ATTRIBUTES.contains(attribute);
-    try (JsonParser parser = factory.createParser(file)) {
-      if (parser.nextToken() != JsonToken.START_ARRAY) {
+  public void process(RecordSink recordSink) throws IOException {
+    sink = recordSink;
+    count(Map.of());
+  }
+
+  /**
+   * Returns the counts of the value combinations of the last processing.
+   *
+   * @return the groups, or null if the records are not grouped
+   */
+  public GroupTable getGroups() {
+    return groups;
+  }
+
+  /**
+   * Counts the values of the root array, or of every line. The decompressed contents of a
+   * compressed file may consist of several root arrays, for example the JSON files of a zip
+   * archive, which are all counted. Compressed files are never split, so their byte offsets are
+   * not checked.
+   */
+  private void count(Map<String, ? extends ValueCounter> counters) throws IOException {
+    if (!groupBy.isEmpty()) {
+      groups = new GroupTable(groupBy);
+      sink = groups;
+    }
+    prepareFields(counters);
+    InputFormat rangeFormat = format == InputFormat.AUTO && range.start() > 0
+        ? InputFormat.detect(file) : format;
+    boolean prefixed = range.start() > 0 && rangeFormat == InputFormat.ARRAY;
+    try (JsonParser parser = createParser(prefixed)) {
+      JsonToken token = parser.nextToken();
+      if (rangeFormat == InputFormat.NDJSON
+          || rangeFormat == InputFormat.AUTO && token != JsonToken.START_ARRAY) {
+        countLines(parser, counters);
+        return;
+      }
+      if (token != JsonToken.START_ARRAY) {
         throw new IOException("Expected an array as the root");
       }
+      do {
+        if (countArray(parser, counters, prefixed)) {
+          return;
+        }
+        if (!compression.isCompressed() || parser.nextToken() == null) {
+          return;
+        }
+      } while (parser.currentToken() == JsonToken.START_ARRAY);
+      throw new IOException("Expected an array as the root");
+    }
+  }
 
-      while (parser.nextToken() != JsonToken.END_ARRAY) {
-        if (parser.currentToken() == JsonToken.START_OBJECT) {
-          while (parser.nextToken() != JsonToken.END_OBJECT) {
-            String fieldName = parser.getValueAsString();
-            parser.nextToken();
-            if (attribute.equals(fieldName)) {
-              String value = parser.getText();
-              if (isMultipleAttribute) {
-                handleMultipleAttribute(value);
-              } else {
-                handleSingleAttribute(value);
-              }
-            }
-          }
+  /**
+   * Counts the objects of the array the parser is positioned at.
+   *
+   * @return true if an object behind the end of the range was reached
+   */
+  private boolean countArray(JsonParser parser, Map<String, ? extends ValueCounter> counters,
+                             boolean prefixed) throws IOException {
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (parser.currentToken() == JsonToken.START_OBJECT) {
+        if (!compression.isCompressed() && getFileOffset(parser, prefixed) >= range.end()) {
+          return true;
         }
+        countRecord(parser, counters);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Counts the root-level objects, starting with the object the parser is positioned at. Line
+   * breaks are whitespace to the parser, so the lines need no special treatment.
+   */
+  private void countLines(JsonParser parser, Map<String, ? extends ValueCounter> counters)
+      throws IOException {
+    for (JsonToken token = parser.currentToken(); token != null; token = parser.nextToken()) {
+      if (token != JsonToken.START_OBJECT) {
+        throw new IOException("Expected an object on every line");
+      }
+      if (!compression.isCompressed() && getFileOffset(parser, false) >= range.end()) {
+        return;
+      }
+      countRecord(parser, counters);
+    }
+  }
+
+  private void countRecord(JsonParser parser, Map<String, ? extends ValueCounter> counters)
+      throws IOException {
+    records++;
+    if (sink != null) {
+      sink.startRecord();
+    }
+    if (filter != null) {
+      if (countFilteredRecord(parser, counters) && sink != null) {
+        sink.endRecord();
+      }
+      return;
+    }
+    long seen = 0;
+    while (seen != allFields && parser.nextToken() != JsonToken.END_OBJECT) {
+      Field field = fields.get(parser.currentName());
+      JsonToken token = parser.nextToken();
+      if (field == null || token.isStructStart()) {
+        parser.skipChildren();
+        continue;
+      }
+      if (field.counter() != null) {
+        countToken(parser, field.counter(), field.multiple());
+      }
+      if (field.sinkCounter() != null && token != JsonToken.VALUE_NULL) {
+        countValue(field.sinkCounter(), field.multiple(), parser.getTextCharacters(),
+            parser.getTextOffset(), parser.getTextLength());
       }
+      seen |= field.bit();
+    }
+    if (seen == allFields) {
+      skipRecord(parser);
+    }
+    if (sink != null) {
+      sink.endRecord();
+    }
+  }
+
+  /**
+   * Prepares the lookup of the fields a record is read for: the counted attributes and the
+   * fields collected by the sink. Every field gets a bit, so a record knows when it has seen all
+   * of them. With more than 63 fields, records are always read to their end.
+   */
+  private void prepareFields(Map<String, ? extends ValueCounter> counters) {
+    Set<String> names = new LinkedHashSet<>(counters.keySet());
+    if (sink != null) {
+      names.addAll(sink.getFields());
+    }
+    fields = new HashMap<>();
+    long bit = 1;
+    for (String name : names) {
+      fields.put(name, new Field(names.size() < Long.SIZE ? bit : 0, counters.get(name),
+          sink == null ? null : sink.getCounter(name),
+          Constants.MULTIPLE_ATTRIBUTES.contains(name)));
+      bit <<= 1;
+    }
+    allFields = names.size() < Long.SIZE ? bit - 1 : -1;
+  }
+
+  /**
+   * Skips the remaining fields of the record the parser is in, up to its end.
+   */
+  private static void skipRecord(JsonParser parser) throws IOException {
+    while (parser.nextToken() != JsonToken.END_OBJECT) {
+      parser.nextToken();
+      parser.skipChildren();
+    }
+  }
+
+  /**
+   * Passes the current value to the record sink if the sink collects the field.
+   */
+  private void addSinkValue(JsonParser parser, String fieldName) throws IOException {
+    ValueCounter counter = sink.getCounter(fieldName);
+    if (counter != null && parser.currentToken().isScalarValue()
+        && parser.currentToken() != JsonToken.VALUE_NULL) {
+      countValue(counter, Constants.MULTIPLE_ATTRIBUTES.contains(fieldName),
+          parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
     }
-    mergeLocalMap();
   }
 
-  private void handleSingleAttribute(String attribute) {
-    if (localMap.containsKey(attribute)) {
-      localMap.put(attribute, localMap.get(attribute) + 1);
+  /**
+   * Counts a record if it matches the filter. The filter is evaluated whenever a field it depends
+   * on was read. Until its outcome is known, the values of the attributes are copied to a buffer;
+   * once the record is known to match, the buffered and all further values are counted, and once
+   * it is known not to match, the remaining values are skipped without being read.
+   *
+   * @return true if the record matches the filter
+   */
+  private boolean countFilteredRecord(JsonParser parser,
+                                   Map<String, ? extends ValueCounter> counters)
+      throws IOException {
+    filterValues.clear();
+    pendingCount = 0;
+    RecordFilter.Outcome outcome = RecordFilter.Outcome.UNKNOWN;
+    while (parser.nextToken() != JsonToken.END_OBJECT) {
+      String fieldName = parser.getValueAsString();
+      JsonToken token = parser.nextToken();
+      if (outcome == RecordFilter.Outcome.NO_MATCH) {
+        parser.skipChildren();
+        continue;
+      }
+      outcome = setFilterValue(parser, fieldName, outcome);
+      if (sink != null && outcome != RecordFilter.Outcome.NO_MATCH) {
+        addSinkValue(parser, fieldName);
+      }
+      ValueCounter counter = counters.get(fieldName);
+      if (counter == null || token.isStructStart() || outcome == RecordFilter.Outcome.NO_MATCH) {
+        parser.skipChildren();
+        continue;
+      }
+      boolean multiple = Constants.MULTIPLE_ATTRIBUTES.contains(fieldName);
+      if (outcome == RecordFilter.Outcome.MATCH) {
+        countToken(parser, counter, multiple);
+      } else {
+        addPending(counter, multiple, parser.getTextCharacters(), parser.getTextOffset(),
+            parser.getTextLength());
+      }
+    }
+    if (outcome == RecordFilter.Outcome.UNKNOWN) {
+      outcome = filter.evaluate(filterValues, true);
+      if (outcome == RecordFilter.Outcome.MATCH) {
+        countPending();
+      }
+    }
+    return outcome == RecordFilter.Outcome.MATCH;
+  }
+
+  /**
+   * Passes the current value to the filter if the filter depends on the field, and counts the
+   * buffered values if the record turns out to match.
+   *
+   * @return the outcome of the filter for the fields read so far
+   */
+  private RecordFilter.Outcome setFilterValue(JsonParser parser, String fieldName,
+                                              RecordFilter.Outcome outcome) throws IOException {
+    int field = filter.indexOf(fieldName);
+    if (field < 0 || outcome != RecordFilter.Outcome.UNKNOWN) {
+      return outcome;
+    }
+    filterValues.set(field, parser);
+    outcome = filter.evaluate(filterValues, false);
+    if (outcome == RecordFilter.Outcome.MATCH) {
+      countPending();
+    }
+    return outcome;
+  }
+
+  private void addPending(ValueCounter counter, boolean multiple, char[] chars, int offset,
+                          int length) {
+    if (pendingCount == pendingCounters.length) {
+      pendingCounters = Arrays.copyOf(pendingCounters, pendingCount * 2);
+      pendingMultiple = Arrays.copyOf(pendingMultiple, pendingCount * 2);
+      pendingOffsets = Arrays.copyOf(pendingOffsets, pendingCount * 2);
+      pendingLengths = Arrays.copyOf(pendingLengths, pendingCount * 2);
+    }
+    int start = pendingCount == 0 ? 0
+        : pendingOffsets[pendingCount - 1] + pendingLengths[pendingCount - 1];
+    if (start + length > pendingChars.length) {
+      pendingChars = Arrays.copyOf(pendingChars, Math.max(start + length, pendingChars.length * 2));
+    }
+    System.arraycopy(chars, offset, pendingChars, start, length);
+    pendingCounters[pendingCount] = counter;
+    pendingMultiple[pendingCount] = multiple;
+    pendingOffsets[pendingCount] = start;
+    pendingLengths[pendingCount] = length;
+    pendingCount++;
+  }
+
+  private void countPending() {
+    for (int i = 0; i < pendingCount; i++) {
+      countValue(pendingCounters[i], pendingMultiple[i], pendingChars, pendingOffsets[i],
+          pendingLengths[i]);
+    }
+    pendingCount = 0;
+  }
+
+  /**
+   * Counts the current value. Integers that fit an int are passed to a histogram as numbers, so
+   * their text is not looked up at all.
+   */
+  private void countToken(JsonParser parser, ValueCounter counter, boolean multiple)
+      throws IOException {
+    if (counter instanceof NumericHistogram histogram
+        && parser.currentToken() == JsonToken.VALUE_NUMBER_INT
+        && parser.getNumberType() == JsonParser.NumberType.INT) {
+      histogram.add(parser.getIntValue());
+      return;
+    }
+    countValue(counter, multiple, parser.getTextCharacters(), parser.getTextOffset(),
+        parser.getTextLength());
+  }
+
+  private void countValue(ValueCounter counter, boolean multiple, char[] chars, int offset,
+                          int length) {
+    if (multiple) {
+      handleMultipleAttribute(counter, chars, offset, length);
     } else {
-      localMap.put(attribute, 1);
+      counter.increment(chars, offset, length);
+    }
+  }
+
+  /**
+   * Creates a parser positioned at the start of the range. Compressed files are decompressed
+   * through the input if there is one, and on the calling thread otherwise. Ranges of arrays that
+   * start in the middle of the file are prefixed with an opening bracket, so the parser sees them
+   * as a regular JSON array.
+   */
+  private JsonParser createParser(boolean prefixed) throws IOException {
+    if (compression.isCompressed()) {
+      return factory.createParser(input == null ? compression.open(file) : input.open(file, 0));
+    }
+    if (input == null && range.start() == 0) {
+      return factory.createParser(file);
     }
+    InputStream stream = input == null ? openFile() : input.open(file, range.start());
+    if (!prefixed) {
+      return factory.createParser(stream);
+    }
+    return factory.createParser(new SequenceInputStream(new ByteArrayInputStream(ARRAY_START),
+        stream));
+  }
+
+  private InputStream openFile() throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    channel.position(range.start());
+    return Channels.newInputStream(channel);
   }
 
-  private void handleMultipleAttribute(String attributes) {
-    Arrays.stream(attributes.split(", ")).forEach(this::handleSingleAttribute);
+  private long getFileOffset(JsonParser parser, boolean prefixed) {
+    long offset = range.start() + parser.currentTokenLocation().getByteOffset();
+    return prefixed ? offset - ARRAY_START.length : offset;
   }
 
-  private void mergeLocalMap() {
-    synchronized (localMap) {
-      for (Map.Entry<String, Integer> entry : localMap.entrySet()) {
-        resultMap.merge(entry.getKey(), entry.getValue(), Integer::sum);
+  /**
+   * Counts every part of a multiple attribute, splitting it the same way String.split(", ")
+   * does: empty parts in the middle are counted, trailing empty parts are dropped.
+   */
+  static void handleMultipleAttribute(ValueCounter localTable, char[] chars, int offset,
+                                      int length) {
+    int end = offset + length;
+    int partStart = offset;
+    int emptyParts = 0;
+    boolean separated = false;
+    for (int i = offset; i + 1 < end; i++) {
+      if (chars[i] == ',' && chars[i + 1] == ' ') {
+        if (i == partStart) {
+          emptyParts++;
+        } else {
+          for (; emptyParts > 0; emptyParts--) {
+            localTable.increment(chars, partStart, 0);
+          }
+          localTable.increment(chars, partStart, i - partStart);
+        }
+        separated = true;
+        partStart = ++i + 1;
       }
     }
+    if (!separated || partStart < end) {
+      for (; emptyParts > 0; emptyParts--) {
+        localTable.increment(chars, partStart, 0);
+      }
+      localTable.increment(chars, partStart, end - partStart);
+    }
+  }
+
+  /**
+   * Collects the options of a FileProcessor.
+   */
+  public static final class Builder {
+
+    private final File file;
+    private final JsonFactory factory;
+    private Collection<String> attributes = List.of();
+    private FileRange range;
+    private RangeInput input;
+    private int sketchCapacity;
+    private InputFormat format = InputFormat.ARRAY;
+    private RecordFilter filter;
+    private List<String> groupBy = List.of();
+
+    private Builder(File file, JsonFactory factory) {
+      this.file = file;
+      this.factory = factory;
+    }
+
+    /**
+     * Sets the attributes counted in a single pass over the range.
+     */
+    public Builder attributes(Collection<String> attributes) {
+      this.attributes = attributes;
+      return this;
+    }
+
+    /**
+     * Sets the range to be processed instead of the whole file. Only the top-level objects whose
+     * opening brace lies inside the range are counted. A range that does not start at the
+     * beginning of the file must start at the opening brace of a top-level object, as produced
+     * by the FileSplitter.
+     */
+    public Builder range(FileRange range) {
+      this.range = range;
+      return this;
+    }
+
+    /**
+     * Sets the input the range is read through, for example a PrefetchPipeline. If the input is
+     * null, the range is read from the file directly.
+     */
+    public Builder input(RangeInput input) {
+      this.input = input;
+      return this;
+    }
+
+    /**
+     * Counts approximately in sketches of the given capacity if the capacity is positive, see
+     * {@link #processApproximately()}.
+     */
+    public Builder sketchCapacity(int sketchCapacity) {
+      this.sketchCapacity = sketchCapacity;
+      return this;
+    }
+
+    /**
+     * Sets the format of the file. With AUTO, a range at the start of the file is read as an
+     * array if its first token opens an array and as one record per line otherwise, while ranges
+     * in the middle of the file detect the format of the file.
+     */
+    public Builder format(InputFormat format) {
+      this.format = format;
+      return this;
+    }
+
+    /**
+     * Only counts the records matching the given filter, or every record if the filter is null.
+     */
+    public Builder filter(RecordFilter filter) {
+      this.filter = filter;
+      return this;
+    }
+
+    /**
+     * Also counts the value combinations of the given attributes, see {@link #getGroups()}. The
+     * records are not grouped if the list is empty.
+     */
+    public Builder groupBy(List<String> groupBy) {
+      this.groupBy = groupBy;
+      return this;
+    }
+
+    public FileProcessor build() {
+      return new FileProcessor(this);
+    }
+  }
+
+  /**
+   * A field a record is read for.
+   *
+   * @param bit         The bit of the field in the set of fields seen in a record.
+   * @param counter     The counter of the attribute, or null if the field is not counted.
+   * @param sinkCounter The counter of the record sink, or null if the sink does not collect it.
+   * @param multiple    Whether the field holds several comma separated values.
+   */
+  private record Field(long bit, ValueCounter counter, ValueCounter sinkCounter,
+                       boolean multiple) {
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package org.example.processor;
+
+/**
+ * The FileRange record describes a contiguous byte range of a JSON file.
+ * The start offset is inclusive and the end offset is exclusive. A range either starts at the
+ * beginning of the file or exactly at the opening brace of a top-level object.
+ *
+ * @param start The offset of the first byte that belongs to the range.
+ * @param end   The offset of the first byte after the range.
+ */
+public record FileRange(long start, long end) {
+
+  /**
+   * Returns the number of bytes covered by this range.
+   *
+   * @return the length of the range in bytes
+   */
+  public long length() {
+    return end - start;
+  }
+}
@@ -0,0 +1,56 @@
+package org.example.processor;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * The FileResult record describes the outcome of processing a single file or a single range of
+ * a file. A successful result carries the partial counts of every requested attribute, either
+ * exact or as sketches in approximate mode, and the counts of the value combinations if the
+ * records are grouped. A failed result carries the exception that stopped the processing.
+ *
+ * @param file     The processed file.
+ * @param range    The processed range, or null if the file could not be split into ranges.
+ * @param tables   The exact partial counts by attribute, empty for a failed or approximate
+ *                 result.
+ * @param sketches The approximate partial counts by attribute, empty unless the result is
+ *                 approximate.
+ * @param groups   The partial counts of the value combinations, or null if the records are not
+ *                 grouped.
+ * @param records  The number of records that were counted.
+ * @param error    The reason of the failure, or null for a successful result.
+ */
+public record FileResult(File file, FileRange range, Map<String, CountTable> tables,
+                         Map<String, AttributeSketch> sketches, GroupTable groups, long records,
+                         Exception error) {
+
+  public static FileResult success(File file, FileRange range, Map<String, CountTable> tables,
+                                   long records) {
+    return success(file, range, tables, null, records);
+  }
+
+  public static FileResult success(File file, FileRange range, Map<String, CountTable> tables,
+                                   GroupTable groups, long records) {
+    return new FileResult(file, range, tables, Map.of(), groups, records, null);
+  }
+
+  public static FileResult approximate(File file, FileRange range,
+                                       Map<String, AttributeSketch> sketches, long records) {
+    return new FileResult(file, range, Map.of(), sketches, null, records, null);
+  }
+
+  public static FileResult failure(File file, FileRange range, Exception error) {
+    return new FileResult(file, range, Map.of(), Map.of(), null, 0, error);
+  }
+
+  /**
+   * Returns the result without its exact counts, so they can be released once they were merged.
+   */
+  public FileResult withoutTables() {
+    return new FileResult(file, range, Map.of(), sketches, groups, records, error);
+  }
+
+  public boolean isSuccessful() {
+    return error == null;
+  }
+}
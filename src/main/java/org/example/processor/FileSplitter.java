@@ -0,0 +1,270 @@
+package org.example.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The FileSplitter class divides a single JSON array file into byte ranges that can be processed
+ * by several FileProcessor instances at the same time.
+ * The file is first cut into equal chunks that are scanned in parallel. Each chunk is scanned for
+ * every possible string state at its first byte, so the real state at every cut can be resolved
+ * afterwards without a sequential pass over the file. Every cut is then moved forward to the
+ * opening brace of the next top-level object, which makes braces, brackets and escaped quotes
+ * inside string values harmless.
+ * Files with one record per line need none of this: every cut is moved forward behind the next
+ * line break.
+ */
+public class FileSplitter {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int OUTSIDE_STRING = 0;
+  private static final int INSIDE_STRING = 1;
+  private static final int ESCAPED = 2;
+  private static final int STATES = 3;
+
+  private final ExecutorService service;
+
+  /**
+   * Constructs a FileSplitter that scans files using the given executor.
+   *
+   * @param service The executor used to scan the chunks of a file in parallel.
+   */
+  public FileSplitter(ExecutorService service) {
+    this.service = service;
+  }
+
+  /**
+   * Splits the file into at most the given number of ranges. The first range starts at the
+   * beginning of the file, every other range starts at the opening brace of a top-level object.
+   * Ranges that would not contain the start of any object are dropped.
+   *
+   * @param file  The JSON file to split.
+   * @param parts The desired number of ranges.
+   * @return the list of ranges in file order
+   * @throws IOException If the file can not be read or is not a JSON array.
+   */
+  public List<FileRange> split(File file, int parts) throws IOException {
+    return split(file, parts, InputFormat.ARRAY);
+  }
+
+  /**
+   * Splits the file of the given format into at most the given number of ranges. Files with one
+   * record per line are split at line breaks, every range but the first starts at the beginning
+   * of a line.
+   *
+   * @param file   The JSON file to split.
+   * @param parts  The desired number of ranges.
+   * @param format The format of the file, AUTO detects it.
+   * @return the list of ranges in file order
+   * @throws IOException If the file can not be read or is not in the given format.
+   */
+  public List<FileRange> split(File file, int parts, InputFormat format) throws IOException {
+    long size = file.length();
+    if (parts <= 1 || size < parts) {
+      return List.of(new FileRange(0, size));
+    }
+    long[] cuts = new long[parts];
+    for (int i = 0; i < parts; i++) {
+      cuts[i] = size * i / parts;
+    }
+    if (format == InputFormat.AUTO) {
+      format = InputFormat.detect(file);
+    }
+    if (format == InputFormat.NDJSON) {
+      List<Future<Long>> starts = new ArrayList<>();
+      for (int i = 1; i < parts; i++) {
+        long from = cuts[i] - 1;
+        starts.add(service.submit(() -> findLineStart(file, from)));
+      }
+      return toRanges(starts, size);
+    }
+
+    List<Future<Transition>> transitions = new ArrayList<>();
+    for (int i = 0; i < parts; i++) {
+      long from = cuts[i];
+      long to = i + 1 < parts ? cuts[i + 1] : size;
+      transitions.add(service.submit(() -> scanChunk(file, from, to)));
+    }
+
+    List<Future<Long>> starts = new ArrayList<>();
+    int state = OUTSIDE_STRING;
+    int depth = 0;
+    for (int i = 0; i < parts; i++) {
+      if (i > 0) {
+        Cursor cursor = new Cursor(state, depth);
+        long from = cuts[i];
+        starts.add(service.submit(() -> findRecordStart(file, from, cursor)));
+      }
+      Transition transition = await(transitions.get(i));
+      depth += transition.depthDelta[state];
+      state = transition.endState[state];
+    }
+    return toRanges(starts, size);
+  }
+
+  /**
+   * Turns the starts of every range but the first into ranges, dropping empty ranges.
+   */
+  private static List<FileRange> toRanges(List<Future<Long>> starts, long size)
+      throws IOException {
+    List<FileRange> ranges = new ArrayList<>();
+    long start = 0;
+    for (Future<Long> next : starts) {
+      long end = await(next);
+      if (end > start) {
+        ranges.add(new FileRange(start, end));
+        start = end;
+      }
+    }
+    if (start < size) {
+      ranges.add(new FileRange(start, size));
+    }
+    return ranges;
+  }
+
+  private Transition scanChunk(File file, long from, long to) throws IOException {
+    Cursor[] cursors = new Cursor[STATES];
+    for (int state = 0; state < STATES; state++) {
+      cursors[state] = new Cursor(state, 0);
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      long position = from;
+      while (position < to) {
+        buffer.clear().limit((int) Math.min(BUFFER_SIZE, to - position));
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          break;
+        }
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < read; i++) {
+          for (Cursor cursor : cursors) {
+            cursor.accept(bytes[i]);
+          }
+        }
+        position += read;
+      }
+    }
+    Transition transition = new Transition();
+    for (int state = 0; state < STATES; state++) {
+      transition.endState[state] = cursors[state].state;
+      transition.depthDelta[state] = cursors[state].depth;
+    }
+    return transition;
+  }
+
+  /**
+   * Finds the position behind the first line break at or after the given position.
+   */
+  private long findLineStart(File file, long from) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      long position = from;
+      int read;
+      while ((read = channel.read(buffer.clear(), position)) > 0) {
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < read; i++) {
+          if (bytes[i] == '\n') {
+            return position + i + 1;
+          }
+        }
+        position += read;
+      }
+      return channel.size();
+    }
+  }
+
+  private long findRecordStart(File file, long from, Cursor cursor) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      long position = from;
+      while (position < size) {
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          break;
+        }
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < read; i++) {
+          if (cursor.state == OUTSIDE_STRING && bytes[i] == '{') {
+            if (cursor.depth == 0) {
+              throw new IOException("Expected an array as the root");
+            }
+            if (cursor.depth == 1) {
+              return position + i;
+            }
+          }
+          cursor.accept(bytes[i]);
+          if (cursor.depth < 0) {
+            throw new IOException("Unbalanced brackets in json file");
+          }
+          if (cursor.depth == 0 && cursor.state == OUTSIDE_STRING && bytes[i] == ']') {
+            return size;
+          }
+        }
+        position += read;
+      }
+      return size;
+    }
+  }
+
+  private static <T> T await(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while splitting json file", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static final class Cursor {
+    private int state;
+    private int depth;
+
+    private Cursor(int state, int depth) {
+      this.state = state;
+      this.depth = depth;
+    }
+
+    private void accept(byte b) {
+      switch (state) {
+        case OUTSIDE_STRING -> {
+          if (b == '"') {
+            state = INSIDE_STRING;
+          } else if (b == '{' || b == '[') {
+            depth++;
+          } else if (b == '}' || b == ']') {
+            depth--;
+          }
+        }
+        case INSIDE_STRING -> {
+          if (b == '\\') {
+            state = ESCAPED;
+          } else if (b == '"') {
+            state = OUTSIDE_STRING;
+          }
+        }
+        default -> state = INSIDE_STRING;
+      }
+    }
+  }
+
+  private static final class Transition {
+    private final int[] endState = new int[STATES];
+    private final int[] depthDelta = new int[STATES];
+  }
+}
@@ -0,0 +1,409 @@
+package org.example.processor;
+
+import static org.example.processor.Hashing.mix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The GroupTable class counts the combinations of the values of several attributes, for example
+ * how often every artist released a song in every year. The values of every dimension are
+ * dictionary-encoded: a value is mapped to a small integer id when it is seen for the first time,
+ * and a combination is counted as a tuple of ids in an open-addressing hash table, so counting a
+ * record neither concatenates its values nor creates a String.
+ * The values of a record are passed to the counter of their dimension, see
+ * {@link #getDimensionCounter(int)}, between {@link #startRecord()} and {@link #endRecord()}.
+ * A record with several values of a multiple attribute counts every combination of them, and a
+ * record without a value of some dimension is not counted.
+ * The table is not thread-safe.
+ */
+public class GroupTable implements RecordSink {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final Comparator<Group> ORDER = Comparator.comparingLong(Group::count)
+      .reversed().thenComparing(Group::value);
+
+  private final List<String> dimensions;
+  private final int width;
+  private final ValueDictionary[] dictionaries;
+  private final Dimension[] dimensionCounters;
+
+  private int[] keys;
+  private int[] hashes;
+  private long[] counts;
+  private int size;
+  private int mask;
+
+  private final int[][] recordIds;
+  private final int[] recordSizes;
+  private final int[] tuple;
+  private final int[] positions;
+
+  /**
+   * Constructs an empty table.
+   *
+   * @param dimensions The attributes whose value combinations are counted, outermost first.
+   */
+  public GroupTable(List<String> dimensions) {
+    this.dimensions = List.copyOf(dimensions);
+    width = dimensions.size();
+    dictionaries = new ValueDictionary[width];
+    dimensionCounters = new Dimension[width];
+    recordIds = new int[width][4];
+    recordSizes = new int[width];
+    tuple = new int[width];
+    positions = new int[width];
+    for (int i = 0; i < width; i++) {
+      dictionaries[i] = new ValueDictionary();
+      dimensionCounters[i] = new Dimension(i);
+    }
+    allocate(INITIAL_CAPACITY);
+  }
+
+  public List<String> getDimensions() {
+    return dimensions;
+  }
+
+  /**
+   * Returns the counter receiving the values of a dimension for the current record.
+   *
+   * @param dimension The index of the dimension.
+   * @return the counter of the dimension
+   */
+  public ValueCounter getDimensionCounter(int dimension) {
+    return dimensionCounters[dimension];
+  }
+
+  @Override
+  public Collection<String> getFields() {
+    return dimensions;
+  }
+
+  /**
+   * Returns the counter of the dimension with the given name.
+   *
+   * @param field The name of a dimension.
+   * @return the counter of the dimension, or null if the table has no such dimension
+   */
+  @Override
+  public ValueCounter getCounter(String field) {
+    int dimension = dimensions.indexOf(field);
+    return dimension < 0 ? null : dimensionCounters[dimension];
+  }
+
+  /**
+   * Forgets the values passed for the previous record.
+   */
+  @Override
+  public void startRecord() {
+    Arrays.fill(recordSizes, 0);
+  }
+
+  /**
+   * Counts every combination of the values passed for the current record.
+   */
+  @Override
+  public void endRecord() {
+    for (int size : recordSizes) {
+      if (size == 0) {
+        return;
+      }
+    }
+    Arrays.fill(positions, 0);
+    while (true) {
+      for (int i = 0; i < width; i++) {
+        tuple[i] = recordIds[i][positions[i]];
+      }
+      add(tuple, 1);
+      int dimension = width - 1;
+      while (dimension >= 0 && ++positions[dimension] == recordSizes[dimension]) {
+        positions[dimension--] = 0;
+      }
+      if (dimension < 0) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds the given number of occurrences to the count of a combination.
+   *
+   * @param values The value of every dimension.
+   * @param count  The number of occurrences to add.
+   */
+  public void add(List<String> values, long count) {
+    if (values.size() != width) {
+      throw new IllegalArgumentException("Expected " + width + " values, but got " + values);
+    }
+    int[] ids = new int[width];
+    for (int i = 0; i < width; i++) {
+      ids[i] = dictionaries[i].idOf(values.get(i));
+    }
+    add(ids, count);
+  }
+
+  /**
+   * Returns the count of a combination.
+   *
+   * @param values The value of every dimension.
+   * @return the number of occurrences of the combination, or 0 if it was never counted
+   */
+  public long get(String... values) {
+    int[] ids = new int[width];
+    for (int i = 0; i < width; i++) {
+      ids[i] = dictionaries[i].find(values[i]);
+      if (ids[i] < 0) {
+        return 0;
+      }
+    }
+    int hash = hash(ids);
+    for (int slot = hash & mask; keys[slot * width] >= 0; slot = (slot + 1) & mask) {
+      if (hashes[slot] == hash && keyEquals(slot, ids)) {
+        return counts[slot];
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Adds every count of the other table to this table. The ids of the other table are translated
+   * once per distinct value, not once per combination.
+   *
+   * @param other The table to be merged into this table, with the same dimensions.
+   */
+  public void mergeFrom(GroupTable other) {
+    if (!other.dimensions.equals(dimensions)) {
+      throw new IllegalArgumentException("Can not merge groups by " + other.dimensions
+          + " into groups by " + dimensions);
+    }
+    int[][] translations = new int[width][];
+    for (int i = 0; i < width; i++) {
+      ValueDictionary dictionary = other.dictionaries[i];
+      translations[i] = new int[dictionary.size()];
+      for (int id = 0; id < dictionary.size(); id++) {
+        translations[i][id] = dictionaries[i].idOf(dictionary.get(id));
+      }
+    }
+    int[] ids = new int[width];
+    for (int slot = 0; slot < other.counts.length; slot++) {
+      if (other.keys[slot * width] < 0) {
+        continue;
+      }
+      for (int i = 0; i < width; i++) {
+        ids[i] = translations[i][other.keys[slot * width + i]];
+      }
+      add(ids, other.counts[slot]);
+    }
+  }
+
+  /**
+   * Returns the number of distinct combinations.
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the combinations as a tree of groups: the values of the first dimension, each with
+   * the values of the second dimension that occur together with it, and so on. The count of a
+   * group is the sum of the counts of the combinations it contains. The groups of every level are
+   * ordered by count descending and by value for equal counts, and limited to the given number.
+   *
+   * @param limit The maximum number of groups on every level.
+   * @return the groups of the first dimension
+   */
+  public List<Group> top(int limit) {
+    List<Integer> slots = new ArrayList<>(size);
+    for (int slot = 0; slot < counts.length; slot++) {
+      if (keys[slot * width] >= 0) {
+        slots.add(slot);
+      }
+    }
+    return group(slots, 0, limit);
+  }
+
+  private List<Group> group(List<Integer> slots, int dimension, int limit) {
+    Map<Integer, List<Integer>> slotsById = new LinkedHashMap<>();
+    Map<Integer, Long> totals = new HashMap<>();
+    for (int slot : slots) {
+      int id = keys[slot * width + dimension];
+      slotsById.computeIfAbsent(id, key -> new ArrayList<>()).add(slot);
+      totals.merge(id, counts[slot], Long::sum);
+    }
+    List<Group> groups = new ArrayList<>(slotsById.size());
+    for (Map.Entry<Integer, List<Integer>> entry : slotsById.entrySet()) {
+      groups.add(new Group(dictionaries[dimension].get(entry.getKey()),
+          totals.get(entry.getKey()), List.of()));
+    }
+    groups.sort(ORDER);
+    if (groups.size() > limit) {
+      groups = groups.subList(0, limit);
+    }
+    if (dimension + 1 == width) {
+      return List.copyOf(groups);
+    }
+    List<Group> nested = new ArrayList<>(groups.size());
+    for (Group group : groups) {
+      int id = dictionaries[dimension].find(group.value());
+      nested.add(new Group(group.value(), group.count(),
+          group(slotsById.get(id), dimension + 1, limit)));
+    }
+    return nested;
+  }
+
+  /**
+   * Two tables are equal if they have the same dimensions and contain the same combinations with
+   * the same counts.
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof GroupTable table) || table.size != size
+        || !table.dimensions.equals(dimensions)) {
+      return false;
+    }
+    String[] values = new String[width];
+    for (int slot = 0; slot < counts.length; slot++) {
+      if (keys[slot * width] < 0) {
+        continue;
+      }
+      for (int i = 0; i < width; i++) {
+        values[i] = dictionaries[i].get(keys[slot * width + i]);
+      }
+      if (table.get(values) != counts[slot]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = dimensions.hashCode();
+    for (int slot = 0; slot < counts.length; slot++) {
+      if (keys[slot * width] < 0) {
+        continue;
+      }
+      int valuesHash = 0;
+      for (int i = 0; i < width; i++) {
+        valuesHash = 31 * valuesHash
+            + dictionaries[i].get(keys[slot * width + i]).hashCode();
+      }
+      hashCode += valuesHash ^ Long.hashCode(counts[slot]);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return dimensions + "=" + top(Integer.MAX_VALUE);
+  }
+
+  private void add(int[] ids, long count) {
+    int hash = hash(ids);
+    int slot = hash & mask;
+    while (keys[slot * width] >= 0) {
+      if (hashes[slot] == hash && keyEquals(slot, ids)) {
+        counts[slot] += count;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    System.arraycopy(ids, 0, keys, slot * width, width);
+    hashes[slot] = hash;
+    counts[slot] = count;
+    if (++size * 2 > counts.length) {
+      resize();
+    }
+  }
+
+  private boolean keyEquals(int slot, int[] ids) {
+    int offset = slot * width;
+    for (int i = 0; i < width; i++) {
+      if (keys[offset + i] != ids[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity * width];
+    Arrays.fill(keys, -1);
+    hashes = new int[capacity];
+    counts = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  private void resize() {
+    int[] oldKeys = keys;
+    int[] oldHashes = hashes;
+    long[] oldCounts = counts;
+    allocate(oldCounts.length * 2);
+    for (int oldSlot = 0; oldSlot < oldCounts.length; oldSlot++) {
+      if (oldKeys[oldSlot * width] < 0) {
+        continue;
+      }
+      int slot = oldHashes[oldSlot] & mask;
+      while (keys[slot * width] >= 0) {
+        slot = (slot + 1) & mask;
+      }
+      System.arraycopy(oldKeys, oldSlot * width, keys, slot * width, width);
+      hashes[slot] = oldHashes[oldSlot];
+      counts[slot] = oldCounts[oldSlot];
+    }
+  }
+
+  private static int hash(int[] ids) {
+    int hash = 0;
+    for (int id : ids) {
+      hash = 31 * hash + id;
+    }
+    return mix(hash);
+  }
+
+  /**
+   * A value of a dimension with its count and the groups of the next dimension it contains.
+   *
+   * @param value  The value.
+   * @param count  The sum of the counts of the combinations with this value.
+   * @param groups The groups of the next dimension, empty for the last dimension.
+   */
+  public record Group(String value, long count, List<Group> groups) {
+  }
+
+  /**
+   * Collects the ids of the values of a dimension in the current record.
+   */
+  private final class Dimension implements ValueCounter {
+
+    private final int index;
+
+    private Dimension(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void increment(char[] chars, int offset, int length) {
+      int id = dictionaries[index].idOf(chars, offset, length);
+      int[] ids = recordIds[index];
+      if (recordSizes[index] == ids.length) {
+        ids = Arrays.copyOf(ids, ids.length * 2);
+        recordIds[index] = ids;
+      }
+      ids[recordSizes[index]++] = id;
+    }
+  }
+}
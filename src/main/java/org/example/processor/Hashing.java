@@ -0,0 +1,47 @@
+package org.example.processor;
+
+/**
+ * The Hashing class holds the hash functions shared by the open-addressing tables of the package.
+ * Character slices hash the same way as String.hashCode(), so a slice and a String with the same
+ * characters land in the same slot.
+ */
+final class Hashing {
+
+  private Hashing() {
+  }
+
+  /**
+   * Spreads the bits of a hash code, so keys with close hash codes do not cluster in the low bits
+   * used to pick a slot.
+   */
+  static int mix(int hashCode) {
+    int hash = hashCode * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns the mixed hash of a character slice, the same as mix(new String(...).hashCode()).
+   */
+  static int hash(char[] chars, int offset, int length) {
+    int hashCode = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hashCode = 31 * hashCode + chars[i];
+    }
+    return mix(hashCode);
+  }
+
+  /**
+   * Returns whether a String has the same characters as a character slice.
+   */
+  static boolean regionEquals(String key, char[] chars, int offset, int length) {
+    if (key.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (key.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
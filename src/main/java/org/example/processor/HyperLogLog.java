@@ -0,0 +1,94 @@
+package org.example.processor;
+
+/**
+ * The HyperLogLog class estimates the number of distinct values of a stream in constant memory.
+ * Every value is hashed to 64 bits; the first bits select one of 2^precision registers, which
+ * keeps the longest run of leading zeros seen in the remaining bits. Sketches with the same
+ * precision are merged by taking the maximum of every register, so the estimate of a merged
+ * sketch equals the estimate of a sketch that saw both streams.
+ * The standard error of the estimate is 1.04 / sqrt(2^precision).
+ */
+public class HyperLogLog {
+
+  private final int precision;
+  private final byte[] registers;
+
+  /**
+   * Constructs an empty sketch.
+   *
+   * @param precision The number of bits selecting a register, between 4 and 18.
+   */
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18) {
+      throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Adds a hashed value. The hash has to be uniformly distributed over all 64 bits.
+   *
+   * @param hash The 64-bit hash of the value.
+   */
+  public void add(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    if (rank > registers[index]) {
+      registers[index] = (byte) rank;
+    }
+  }
+
+  /**
+   * Merges the other sketch into this sketch.
+   *
+   * @param other The sketch to be merged, which must have the same precision.
+   */
+  public void mergeFrom(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Can not merge sketches of different precision");
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * Estimates the number of distinct values added so far. Small cardinalities are estimated by
+   * linear counting of the empty registers, which is almost exact.
+   *
+   * @return the estimated number of distinct values
+   */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int empty = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        empty++;
+      }
+    }
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5 * m && empty > 0) {
+      estimate = m * Math.log((double) m / empty);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Returns the standard error of the estimate relative to the true number of distinct values.
+   */
+  public double relativeError() {
+    return 1.04 / Math.sqrt(registers.length);
+  }
+
+  public HyperLogLog copy() {
+    HyperLogLog copy = new HyperLogLog(precision);
+    System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+    return copy;
+  }
+}
@@ -0,0 +1,51 @@
+package org.example.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The InputFormat enum lists the supported layouts of the records in an input file.
+ */
+public enum InputFormat {
+  /**
+   * Detects the layout of every file by its first character, see {@link #detect(File)}.
+   */
+  AUTO,
+  /**
+   * A single JSON array whose elements are the records.
+   */
+  ARRAY,
+  /**
+   * One record per line, also known as JSON Lines. Records never span a line break, so a file
+   * can be split at any line break.
+   */
+  NDJSON;
+
+  private static final int DETECT_SIZE = 4096;
+
+  /**
+   * Detects the layout of a file: files whose first character that is not whitespace is an
+   * opening bracket are arrays, all other files are read as one record per line. Compressed
+   * files are detected by their decompressed contents.
+   *
+   * @param file The file to be detected.
+   * @return ARRAY or NDJSON
+   * @throws IOException If the file can not be read.
+   */
+  public static InputFormat detect(File file) throws IOException {
+    Compression compression = Compression.forFile(file);
+    try (InputStream input = (compression == null ? Compression.NONE : compression).open(file)) {
+      byte[] bytes = input.readNBytes(DETECT_SIZE);
+      int start = bytes.length >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB
+          && bytes[2] == (byte) 0xBF ? 3 : 0;
+      for (int i = start; i < bytes.length; i++) {
+        byte current = bytes[i];
+        if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+          return current == '[' ? ARRAY : NDJSON;
+        }
+      }
+      return NDJSON;
+    }
+  }
+}
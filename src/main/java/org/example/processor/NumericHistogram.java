@@ -0,0 +1,327 @@
+package org.example.processor;
+
+import static org.example.processor.Hashing.mix;
+
+import java.util.Arrays;
+
+/**
+ * The NumericHistogram class counts the integer values of a numeric attribute without creating
+ * an object per value. Values are counted in a dense array indexed by value as long as all values
+ * lie in a window of {@link #MAX_DENSE_SPAN} values, which covers attributes like years, and in
+ * an open-addressing map of primitive keys and counts otherwise. Values that are not integers,
+ * for example strings, are counted by their text in a CountTable.
+ * Besides the counts, the histogram provides summaries of the integer values: their number,
+ * minimum, maximum, mean and percentiles.
+ * The histogram is not thread-safe.
+ */
+public class NumericHistogram implements ValueCounter {
+
+  /**
+   * The largest number of distinct values the dense array may span.
+   */
+  public static final int MAX_DENSE_SPAN = 1 << 16;
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final long NOT_AN_INT = Long.MIN_VALUE;
+
+  private long[] dense = new long[0];
+  private int base;
+  private int[] sparseKeys;
+  private long[] sparseCounts;
+  private int sparseSize;
+  private final CountTable others = new CountTable();
+  private long count;
+  private int min = Integer.MAX_VALUE;
+  private int max = Integer.MIN_VALUE;
+
+  /**
+   * Counts one occurrence of an integer value.
+   *
+   * @param value The value to be counted.
+   */
+  public void add(int value) {
+    add(value, 1);
+  }
+
+  /**
+   * Adds the given number of occurrences to the count of an integer value.
+   *
+   * @param value The value to be counted.
+   * @param count The number of occurrences to add, which must be positive.
+   */
+  public void add(int value, long count) {
+    if (sparseKeys != null) {
+      addSparse(value, count);
+    } else if (value - (long) base >= 0 && value - (long) base < dense.length) {
+      dense[value - base] += count;
+    } else if (growDense(value)) {
+      dense[value - base] += count;
+    } else {
+      toSparse();
+      addSparse(value, count);
+    }
+    this.count += count;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Adds the given number of occurrences to the count of a value given as text. Integers in
+   * canonical form are counted as numbers, any other text is counted as it is.
+   *
+   * @param value The value to be counted.
+   * @param count The number of occurrences to add, which must be positive.
+   */
+  public void add(String value, long count) {
+    long number = parseInt(value.toCharArray(), 0, value.length());
+    if (number == NOT_AN_INT) {
+      others.add(value, count);
+    } else {
+      add((int) number, count);
+    }
+  }
+
+  /**
+   * Counts a value given as text. Integers in canonical form are counted as numbers, any other
+   * text is counted as it is.
+   */
+  @Override
+  public void increment(char[] chars, int offset, int length) {
+    long value = parseInt(chars, offset, length);
+    if (value == NOT_AN_INT) {
+      others.increment(chars, offset, length);
+    } else {
+      add((int) value);
+    }
+  }
+
+  /**
+   * Adds every count of the other histogram to this histogram.
+   *
+   * @param other The histogram to be merged into this histogram.
+   */
+  public void mergeFrom(NumericHistogram other) {
+    other.forEach(this::add);
+    others.mergeFrom(other.others);
+  }
+
+  /**
+   * Passes every integer value together with its count to the consumer, in ascending order.
+   *
+   * @param consumer The consumer receiving the values.
+   */
+  public void forEach(ValueConsumer consumer) {
+    if (sparseKeys == null) {
+      for (int i = 0; i < dense.length; i++) {
+        if (dense[i] != 0) {
+          consumer.accept(base + i, dense[i]);
+        }
+      }
+      return;
+    }
+    int[] values = new int[sparseSize];
+    int size = 0;
+    for (int slot = 0; slot < sparseKeys.length; slot++) {
+      if (sparseCounts[slot] != 0) {
+        values[size++] = sparseKeys[slot];
+      }
+    }
+    Arrays.sort(values);
+    for (int value : values) {
+      consumer.accept(value, sparseCounts[findSparse(value)]);
+    }
+  }
+
+  /**
+   * Returns the counts as a table keyed by the text of the values, like the counts of any other
+   * attribute. A String is created once per distinct value.
+   *
+   * @return the counts of the integer values and of the other values
+   */
+  public CountTable toCountTable() {
+    CountTable table = new CountTable();
+    table.mergeFrom(others);
+    forEach((value, valueCount) -> table.add(Integer.toString(value), valueCount));
+    return table;
+  }
+
+  /**
+   * Creates a histogram of the values counted in a table. Values that are not integers are kept
+   * as they are.
+   *
+   * @param table The counts of a numeric attribute.
+   * @return the histogram of the counts
+   */
+  public static NumericHistogram of(CountTable table) {
+    NumericHistogram histogram = new NumericHistogram();
+    table.forEach(histogram::add);
+    return histogram;
+  }
+
+  /**
+   * Returns the number of integer values.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the smallest integer value, which is only defined if there is one.
+   */
+  public int getMin() {
+    return min;
+  }
+
+  /**
+   * Returns the largest integer value, which is only defined if there is one.
+   */
+  public int getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the mean of the integer values.
+   *
+   * @return the mean, or NaN if there are no integer values
+   */
+  public double getMean() {
+    double[] sum = new double[1];
+    forEach((value, valueCount) -> sum[0] += (double) value * valueCount);
+    return sum[0] / count;
+  }
+
+  /**
+   * Returns a percentile of the integer values by the nearest-rank method: the smallest value
+   * that is greater than or equal to the given fraction of all values.
+   *
+   * @param fraction The fraction of the values, from 0 to 1.
+   * @return the percentile, which is only defined if there is an integer value
+   */
+  public int getPercentile(double fraction) {
+    long rank = Math.max(1, (long) Math.ceil(fraction * count));
+    long[] seen = new long[1];
+    int[] percentile = {max};
+    forEach((value, valueCount) -> {
+      if (seen[0] < rank && seen[0] + valueCount >= rank) {
+        percentile[0] = value;
+      }
+      seen[0] += valueCount;
+    });
+    return percentile[0];
+  }
+
+  /**
+   * Moves the dense array, so it covers the given value and all counted values with some room on
+   * both sides.
+   *
+   * @return false if the values span more than {@link #MAX_DENSE_SPAN} values
+   */
+  private boolean growDense(int value) {
+    long low = count == 0 ? value : Math.min(min, value);
+    long high = count == 0 ? value : Math.max(max, value);
+    long span = high - low + 1;
+    if (span > MAX_DENSE_SPAN) {
+      return false;
+    }
+    int capacity = (int) Math.min(MAX_DENSE_SPAN, Math.max(INITIAL_CAPACITY, span * 2));
+    long newBase = Math.max(Integer.MIN_VALUE,
+        Math.min(low - (capacity - span) / 2, (long) Integer.MAX_VALUE - capacity + 1));
+    long[] grown = new long[capacity];
+    for (int i = 0; i < dense.length; i++) {
+      if (dense[i] != 0) {
+        grown[(int) (base + i - newBase)] = dense[i];
+      }
+    }
+    dense = grown;
+    base = (int) newBase;
+    return true;
+  }
+
+  private void toSparse() {
+    sparseKeys = new int[INITIAL_CAPACITY];
+    sparseCounts = new long[INITIAL_CAPACITY];
+    long[] oldDense = dense;
+    dense = new long[0];
+    for (int i = 0; i < oldDense.length; i++) {
+      if (oldDense[i] != 0) {
+        addSparse(base + i, oldDense[i]);
+      }
+    }
+  }
+
+  private void addSparse(int value, long valueCount) {
+    int mask = sparseKeys.length - 1;
+    int slot = mix(value) & mask;
+    while (sparseCounts[slot] != 0) {
+      if (sparseKeys[slot] == value) {
+        sparseCounts[slot] += valueCount;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    sparseKeys[slot] = value;
+    sparseCounts[slot] = valueCount;
+    if (++sparseSize * 2 > sparseKeys.length) {
+      resizeSparse();
+    }
+  }
+
+  private int findSparse(int value) {
+    int mask = sparseKeys.length - 1;
+    int slot = mix(value) & mask;
+    while (sparseKeys[slot] != value) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resizeSparse() {
+    int[] oldKeys = sparseKeys;
+    long[] oldCounts = sparseCounts;
+    sparseKeys = new int[oldKeys.length * 2];
+    sparseCounts = new long[oldKeys.length * 2];
+    sparseSize = 0;
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (oldCounts[slot] != 0) {
+        addSparse(oldKeys[slot], oldCounts[slot]);
+      }
+    }
+  }
+
+  /**
+   * Parses an integer in canonical form, without leading zeros, plus sign or negative zero, so
+   * the text of the parsed value is the same as the given text.
+   *
+   * @return the value, or NOT_AN_INT if the text is not a canonical integer
+   */
+  private static long parseInt(char[] chars, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    boolean negative = length > 0 && chars[i] == '-';
+    if (negative) {
+      i++;
+    }
+    int digits = end - i;
+    if (digits == 0 || digits > 10 || chars[i] == '0' && (digits > 1 || negative)) {
+      return NOT_AN_INT;
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      char current = chars[i];
+      if (current < '0' || current > '9') {
+        return NOT_AN_INT;
+      }
+      value = value * 10 + (current - '0');
+    }
+    value = negative ? -value : value;
+    return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? NOT_AN_INT : value;
+  }
+
+  /**
+   * Receives the integer values of a histogram with their counts.
+   */
+  @FunctionalInterface
+  public interface ValueConsumer {
+    void accept(int value, long count);
+  }
+}
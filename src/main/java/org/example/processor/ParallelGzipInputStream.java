@@ -0,0 +1,373 @@
+package org.example.processor;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The ParallelGzipInputStream class decompresses a gzip file that consists of several members,
+ * as written by bgzip or by concatenating gzip files, on several threads. The members are
+ * delivered in file order, so the stream can be parsed like the uncompressed file.
+ * The start of a member can not be found without decompressing the member before it, so members
+ * are decompressed speculatively: every position that looks like a gzip header is decompressed
+ * ahead of the reader, and a member is only delivered if the previous member ends exactly at its
+ * header. Positions that only look like a header inside compressed data fail to decompress or
+ * are skipped.
+ * Files with a single member, and members that decompress to more than the member limit, are
+ * decompressed on the reading thread instead, so memory stays bounded by the lookahead times the
+ * member limit.
+ * Members that are no longer needed are cancelled with a flag instead of an interrupt, since an
+ * interrupt during a read would close the channel the whole stream reads from.
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+  public static final int DEFAULT_MAX_MEMBER_SIZE = 8 * 1024 * 1024;
+
+  private static final int PROBE_SIZE = 4 * 1024 * 1024;
+  private static final int READ_SIZE = 256 * 1024;
+  private static final int CHUNK_SIZE = 256 * 1024;
+  private static final int HEADER_SIZE = 10;
+  private static final int TRAILER_SIZE = 8;
+  private static final int FLAG_HEADER_CRC = 2;
+  private static final int FLAG_EXTRA = 4;
+  private static final int FLAG_NAME = 8;
+  private static final int FLAG_COMMENT = 16;
+  private static final int RESERVED_FLAGS = 0xE0;
+
+  private final FileChannel channel;
+  private final long size;
+  private final ExecutorService executor;
+  private final int lookahead;
+  private final int maxMemberSize;
+  private final ArrayDeque<PendingMember> pending = new ArrayDeque<>();
+  private final ByteBuffer scanBuffer = ByteBuffer.allocate(READ_SIZE);
+  private long scanPosition;
+  private long memberStart;
+  private Iterator<ByteBuffer> chunks;
+  private ByteBuffer current;
+  private InputStream sequential;
+
+  /**
+   * Opens a gzip file.
+   *
+   * @param file          The gzip file.
+   * @param executor      The executor decompressing the members.
+   * @param lookahead     The number of members decompressed ahead of the reader.
+   * @param maxMemberSize The largest decompressed size of a member decompressed ahead.
+   * @throws IOException If the file can not be opened.
+   */
+  public ParallelGzipInputStream(File file, ExecutorService executor, int lookahead,
+                                 int maxMemberSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.executor = executor;
+    this.lookahead = Math.max(1, lookahead);
+    this.maxMemberSize = maxMemberSize;
+    try {
+      size = channel.size();
+      long second = nextCandidate(1);
+      if (second < 0 || second > PROBE_SIZE) {
+        decompressSequentially(0);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    while (true) {
+      if (sequential != null) {
+        return sequential.read(bytes, offset, length);
+      }
+      if (current != null && current.hasRemaining()) {
+        int count = Math.min(length, current.remaining());
+        current.get(bytes, offset, count);
+        return count;
+      }
+      if (chunks != null && chunks.hasNext()) {
+        current = chunks.next();
+      } else if (!nextMember()) {
+        return -1;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    cancelPending();
+    try {
+      if (sequential != null) {
+        sequential.close();
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Takes the decompressed member that starts where the previous member ended.
+   *
+   * @return false at the end of the file
+   */
+  private boolean nextMember() throws IOException {
+    if (memberStart >= size) {
+      return false;
+    }
+    schedule();
+    while (!pending.isEmpty() && pending.peek().start < memberStart) {
+      pending.poll().cancel();
+      schedule();
+    }
+    if (pending.isEmpty() || pending.peek().start != memberStart) {
+      // Like GZIPInputStream, bytes behind the last member that are no gzip header are ignored.
+      return false;
+    }
+    Member member = await(pending.poll());
+    if (member.error != null) {
+      throw member.error;
+    }
+    if (member.chunks == null) {
+      cancelPending();
+      decompressSequentially(memberStart);
+      return true;
+    }
+    chunks = member.chunks.iterator();
+    memberStart = member.end;
+    return true;
+  }
+
+  private void schedule() throws IOException {
+    while (pending.size() < lookahead && scanPosition >= 0) {
+      long candidate = nextCandidate(scanPosition);
+      if (candidate < 0) {
+        scanPosition = -1;
+        return;
+      }
+      scanPosition = candidate + 1;
+      AtomicBoolean cancelled = new AtomicBoolean();
+      pending.add(new PendingMember(candidate, cancelled,
+          executor.submit(() -> inflate(candidate, cancelled))));
+    }
+  }
+
+  private Member await(PendingMember member) throws IOException {
+    try {
+      return member.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Waiting for decompression was interrupted");
+    } catch (ExecutionException e) {
+      throw new IOException("Decompression failed", e.getCause());
+    }
+  }
+
+  private void cancelPending() {
+    while (!pending.isEmpty()) {
+      pending.poll().cancel();
+    }
+  }
+
+  private void decompressSequentially(long position) throws IOException {
+    channel.position(position);
+    sequential = new GZIPInputStream(
+        new BufferedInputStream(Channels.newInputStream(channel), READ_SIZE), READ_SIZE);
+  }
+
+  /**
+   * Finds the next position at or after the given one that starts with a gzip header.
+   *
+   * @return the position, or -1 if there is none
+   */
+  private long nextCandidate(long from) throws IOException {
+    long position = from;
+    while (position + HEADER_SIZE <= size) {
+      scanBuffer.clear();
+      int read = channel.read(scanBuffer, position);
+      if (read < 4) {
+        return -1;
+      }
+      byte[] bytes = scanBuffer.array();
+      for (int i = 0; i + 3 < read; i++) {
+        if (bytes[i] == 0x1F && bytes[i + 1] == (byte) 0x8B && bytes[i + 2] == 8
+            && (bytes[i + 3] & RESERVED_FLAGS) == 0) {
+          return position + i;
+        }
+      }
+      position += read - 3;
+    }
+    return -1;
+  }
+
+  /**
+   * Decompresses the member starting at the given position into memory.
+   *
+   * @param start     The position of the gzip header.
+   * @param cancelled Tells whether the member is no longer needed.
+   * @return the member, a member without chunks if it exceeds the member limit, or a member
+   *     with an error if there is no valid member at the position
+   */
+  private Member inflate(long start, AtomicBoolean cancelled) {
+    Inflater inflater = new Inflater(true);
+    try {
+      long position = skipHeader(start);
+      CRC32 crc = new CRC32();
+      List<ByteBuffer> output = new ArrayList<>();
+      ByteBuffer input = ByteBuffer.allocate(READ_SIZE);
+      byte[] chunk = new byte[CHUNK_SIZE];
+      int filled = 0;
+      long total = 0;
+      while (!inflater.finished()) {
+        if (cancelled.get()) {
+          return Member.failed(new InterruptedIOException("Decompression was cancelled"));
+        }
+        if (inflater.needsInput()) {
+          input.clear();
+          int read = channel.read(input, position);
+          if (read <= 0) {
+            throw new EOFException("Unexpected end of gzip member");
+          }
+          position += read;
+          inflater.setInput(input.flip());
+        }
+        if (filled == chunk.length) {
+          output.add(ByteBuffer.wrap(chunk));
+          chunk = new byte[CHUNK_SIZE];
+          filled = 0;
+        }
+        int inflated = inflater.inflate(chunk, filled, chunk.length - filled);
+        if (inflated == 0 && inflater.needsDictionary()) {
+          throw new ZipException("Invalid gzip member");
+        }
+        crc.update(chunk, filled, inflated);
+        filled += inflated;
+        total += inflated;
+        if (total > maxMemberSize) {
+          return new Member(null, -1, null);
+        }
+      }
+      output.add(ByteBuffer.wrap(chunk, 0, filled));
+      long trailer = position - inflater.getRemaining();
+      ByteBuffer values = readFully(trailer, TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      if ((values.getInt(0) & 0xFFFFFFFFL) != crc.getValue()
+          || (values.getInt(4) & 0xFFFFFFFFL) != (total & 0xFFFFFFFFL)) {
+        throw new ZipException("Corrupt gzip trailer");
+      }
+      return new Member(output, trailer + TRAILER_SIZE, null);
+    } catch (IOException e) {
+      return Member.failed(e);
+    } catch (DataFormatException e) {
+      return Member.failed(new ZipException(e.getMessage()));
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Validates the gzip header at the given position.
+   *
+   * @return the position of the compressed data
+   */
+  private long skipHeader(long start) throws IOException {
+    ByteBuffer header = readFully(start, HEADER_SIZE);
+    int flags = header.get(3) & 0xFF;
+    if (header.get(0) != 0x1F || header.get(1) != (byte) 0x8B || header.get(2) != 8
+        || (flags & RESERVED_FLAGS) != 0) {
+      throw new ZipException("Not in GZIP format");
+    }
+    long position = start + HEADER_SIZE;
+    if ((flags & FLAG_EXTRA) != 0) {
+      ByteBuffer length = readFully(position, 2).order(ByteOrder.LITTLE_ENDIAN);
+      position += 2 + (length.getShort(0) & 0xFFFF);
+    }
+    if ((flags & FLAG_NAME) != 0) {
+      position = skipZeroTerminated(position);
+    }
+    if ((flags & FLAG_COMMENT) != 0) {
+      position = skipZeroTerminated(position);
+    }
+    if ((flags & FLAG_HEADER_CRC) != 0) {
+      position += 2;
+    }
+    return position;
+  }
+
+  private long skipZeroTerminated(long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(256);
+    while (true) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        throw new EOFException("Unexpected end of gzip header");
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == 0) {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+  }
+
+  private ByteBuffer readFully(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of gzip file");
+      }
+    }
+    return buffer;
+  }
+
+  private record PendingMember(long start, AtomicBoolean cancelled, Future<Member> future) {
+
+    private void cancel() {
+      cancelled.set(true);
+      future.cancel(false);
+    }
+  }
+
+  /**
+   * A decompressed member.
+   *
+   * @param chunks The decompressed data, or null if the member exceeds the member limit.
+   * @param end    The position behind the member.
+   * @param error  The reason why there is no valid member, or null.
+   */
+  private record Member(List<ByteBuffer> chunks, long end, IOException error) {
+
+    private static Member failed(IOException error) {
+      return new Member(null, -1, error);
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package org.example.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The PrefetchPipeline class separates reading files from parsing them. Dedicated reader threads
+ * read the ranges ahead of the parser threads into reusable direct buffers, so parsers do not
+ * wait for slow storage as long as the readers keep up.
+ * Ranges are read in the order in which the parsers claim them. At most as many ranges as there
+ * are parsers plus a lookahead of the same size are in flight at any time, and every range queues
+ * a bounded number of chunks, so the buffer budget is never exceeded. A budget too small for that
+ * many ranges lets fewer ranges be in flight, down to a single one. A reader that gets ahead of
+ * its parser waits for the parser to consume a chunk. Since the oldest range in flight always has
+ * a parser, the pipeline can not deadlock.
+ * A range is read until its parser closes the stream, which is usually shortly after the range
+ * end, because the last record of a range may continue behind it.
+ * The readers are a fixed number of platform threads rather than a virtual thread per range,
+ * because the build targets Java 17, which has no virtual threads. Their number bounds the reads
+ * in flight instead.
+ */
+public class PrefetchPipeline implements RangeInput, AutoCloseable {
+
+  /**
+   * The number of chunks a range in flight needs at least: one queued, one being read and one
+   * being parsed.
+   */
+  public static final int MIN_CHUNKS_PER_RANGE = 3;
+
+  private static final ByteBuffer END_OF_RANGE = ByteBuffer.allocate(0);
+
+  private final Map<RangeKey, PrefetchedRange> rangesByKey = new HashMap<>();
+  private List<PrefetchedRange> ranges = List.of();
+  private final AtomicInteger nextRange = new AtomicInteger();
+  private final Semaphore window;
+  private final BufferPool pool;
+  private final int queueCapacity;
+  private final int readers;
+  private final ExecutorService readerService;
+  private final LongAdder parserWaitNanos = new LongAdder();
+  private final LongAdder readerWaitNanos = new LongAdder();
+
+  /**
+   * Constructs a PrefetchPipeline.
+   *
+   * @param readers   The number of platform reader threads.
+   * @param parsers   The number of threads running the processors.
+   * @param chunkSize The size of every buffer in bytes.
+   * @param budget    The total size of all buffers in bytes.
+   * @throws IllegalArgumentException If the budget is smaller than the chunks of a single range.
+   */
+  public PrefetchPipeline(int readers, int parsers, int chunkSize, long budget) {
+    long chunks = budget / chunkSize;
+    if (chunks < MIN_CHUNKS_PER_RANGE) {
+      throw new IllegalArgumentException("The buffer budget of " + budget + " bytes is smaller "
+          + "than the " + MIN_CHUNKS_PER_RANGE + " chunks of " + chunkSize + " bytes a range needs");
+    }
+    int inFlight = (int) Math.min(2L * parsers, chunks / MIN_CHUNKS_PER_RANGE);
+    queueCapacity = (int) (chunks / inFlight - 2);
+    window = new Semaphore(inFlight);
+    pool = new BufferPool(chunkSize, inFlight * (queueCapacity + 2));
+    this.readers = readers;
+    readerService = Executors.newFixedThreadPool(readers, runnable -> {
+      Thread thread = new Thread(runnable, "prefetch-reader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts reading the ranges of the given processors. The processors have to be run in the
+   * same order, otherwise the readers may wait for parsers that never come.
+   *
+   * @param processors The processors in the order in which they are run.
+   */
+  public void start(List<? extends RangeProcessor> processors) {
+    ranges = processors.stream()
+        .map(processor -> new PrefetchedRange(processor.getFile(), processor.getRange().start()))
+        .toList();
+    for (PrefetchedRange range : ranges) {
+      rangesByKey.put(new RangeKey(range.file, range.start), range);
+    }
+    for (int i = 0; i < readers; i++) {
+      readerService.execute(this::readRanges);
+    }
+  }
+
+  /**
+   * Returns the prefetched stream of the range starting at the given position. Every range can
+   * be opened once.
+   *
+   * @throws IOException If no range of the file starts at the position.
+   */
+  @Override
+  public InputStream open(File file, long position) throws IOException {
+    PrefetchedRange range = rangesByKey.get(new RangeKey(file, position));
+    if (range == null || !range.opened.compareAndSet(false, true)) {
+      throw new IOException("Range was not prefetched: " + file.getPath() + "@" + position);
+    }
+    range.stream = range.new PrefetchedStream();
+    return range.stream;
+  }
+
+  /**
+   * Closes the stream of the range starting at the given position, or gives up the range if its
+   * processor failed before opening it, so the window slot of the range is always released.
+   */
+  @Override
+  public void release(File file, long position) {
+    PrefetchedRange range = rangesByKey.get(new RangeKey(file, position));
+    if (range == null) {
+      return;
+    }
+    if (range.opened.compareAndSet(false, true)) {
+      range.stream = range.new PrefetchedStream();
+    }
+    range.stream.close();
+  }
+
+  /**
+   * Returns the total time the parsers waited for chunks that were not read yet.
+   *
+   * @return the wait time in nanoseconds
+   */
+  public long getParserWaitNanos() {
+    return parserWaitNanos.sum();
+  }
+
+  /**
+   * Returns the total time the readers waited for a free window slot, a free buffer or room in
+   * the queue of a range, that is for the parsers.
+   *
+   * @return the wait time in nanoseconds
+   */
+  public long getReaderWaitNanos() {
+    return readerWaitNanos.sum();
+  }
+
+  /**
+   * Stops the reader threads.
+   */
+  @Override
+  public void close() {
+    readerService.shutdownNow();
+  }
+
+  private void readRanges() {
+    int index;
+    while ((index = nextRange.getAndIncrement()) < ranges.size()) {
+      long waitStart = System.nanoTime();
+      try {
+        window.acquire();
+      } catch (InterruptedException e) {
+        return;
+      }
+      readerWaitNanos.add(System.nanoTime() - waitStart);
+      ranges.get(index).read();
+    }
+  }
+
+  private record RangeKey(File file, long start) {
+  }
+
+  private class PrefetchedRange {
+
+    private final File file;
+    private final long start;
+    private final BlockingQueue<ByteBuffer> chunks = new ArrayBlockingQueue<>(queueCapacity);
+    private final AtomicBoolean opened = new AtomicBoolean();
+    private final AtomicInteger holders = new AtomicInteger(2);
+    private PrefetchedStream stream;
+    private volatile boolean cancelled;
+    private volatile IOException error;
+
+    private PrefetchedRange(File file, long start) {
+      this.file = file;
+      this.start = start;
+    }
+
+    /**
+     * Reads the range into chunks until the end of the file or until the parser closes the
+     * stream.
+     */
+    private void read() {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        long position = start;
+        while (!cancelled) {
+          long waitStart = System.nanoTime();
+          ByteBuffer buffer = pool.acquire();
+          readerWaitNanos.add(System.nanoTime() - waitStart);
+          int read;
+          try {
+            read = channel.read(buffer, position);
+          } catch (IOException e) {
+            pool.release(buffer);
+            throw e;
+          }
+          if (read < 0) {
+            pool.release(buffer);
+            break;
+          }
+          position += read;
+          waitStart = System.nanoTime();
+          chunks.put(buffer.flip());
+          readerWaitNanos.add(System.nanoTime() - waitStart);
+        }
+      } catch (IOException e) {
+        error = e;
+      } catch (InterruptedException e) {
+        error = new InterruptedIOException("Prefetching was interrupted");
+      }
+      if (cancelled) {
+        drain();
+      } else {
+        try {
+          chunks.put(END_OF_RANGE);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      complete();
+    }
+
+    private void drain() {
+      ByteBuffer buffer;
+      while ((buffer = chunks.poll()) != null) {
+        if (buffer != END_OF_RANGE) {
+          pool.release(buffer);
+        }
+      }
+    }
+
+    /**
+     * Releases the window slot of the range once both the reader and the parser are done with it,
+     * so the buffers of a range are returned before another range may take them.
+     */
+    private void complete() {
+      if (holders.decrementAndGet() == 0) {
+        window.release();
+      }
+    }
+
+    private class PrefetchedStream extends InputStream {
+
+      private ByteBuffer current;
+      private boolean finished;
+      private boolean closed;
+
+      @Override
+      public int read() throws IOException {
+        if (!advance()) {
+          return -1;
+        }
+        return current.get() & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+          return 0;
+        }
+        if (!advance()) {
+          return -1;
+        }
+        int count = Math.min(length, current.remaining());
+        current.get(bytes, offset, count);
+        return count;
+      }
+
+      /**
+       * Makes sure the current chunk has remaining bytes, taking the next chunk if necessary.
+       *
+       * @return false at the end of the range
+       */
+      private boolean advance() throws IOException {
+        while (current == null || !current.hasRemaining()) {
+          if (finished || closed) {
+            return false;
+          }
+          if (current != null) {
+            pool.release(current);
+            current = null;
+          }
+          ByteBuffer next;
+          long waitStart = System.nanoTime();
+          try {
+            next = chunks.take();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Waiting for prefetched data was interrupted");
+          }
+          parserWaitNanos.add(System.nanoTime() - waitStart);
+          if (next == END_OF_RANGE) {
+            finished = true;
+            if (error != null) {
+              throw error;
+            }
+            return false;
+          }
+          current = next;
+        }
+        return true;
+      }
+
+      @Override
+      public void close() {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        cancelled = true;
+        if (current != null) {
+          pool.release(current);
+          current = null;
+        }
+        drain();
+        complete();
+      }
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package org.example.processor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ProcessingTask class runs a list of range processors on a ForkJoinPool and combines their
+ * partial counts. One worker is started per thread of the pool, and every worker repeatedly
+ * claims the next unclaimed processor in list order, so a list sorted by descending size is
+ * processed longest-first and no worker idles while work is left. The workers are forked as a
+ * binary tree and their partial tables are merged pairwise along that tree instead of every
+ * worker merging into a shared map. The FileResult of every processor is kept, so the failed
+ * files are available afterwards. The partial counts of the results are only kept if the task is
+ * asked to, for example to cache the counts of every file; otherwise they are released as soon as
+ * they were merged, so the heap does not hold a second copy of every count.
+ * Sketches of processors running in approximate mode are merged along the same tree and are
+ * available through {@link #getSketches()}, and so are the counts of grouped records, see
+ * {@link #getGroups()}.
+ * With a {@link SpillStore}, every partial table that outgrows its budget is spilled after a
+ * processor or a merge, so the returned tables only hold the counts that were not spilled.
+ * The task times every processor and every worker, and records a {@link RangeEvent} per
+ * processor for flight recordings.
+ */
+@SuppressWarnings("serial")
+public class ProcessingTask extends RecursiveTask<Map<String, CountTable>> {
+
+  private final List<? extends RangeProcessor> processors;
+  private final SpillStore spill;
+  private final boolean keepTables;
+  private final FileResult[] results;
+  private final RangeTiming[] timings;
+  private final AtomicInteger next = new AtomicInteger();
+  private final AtomicLong lastRangeEnd = new AtomicLong(Long.MIN_VALUE);
+  private Map<String, AttributeSketch> sketches = Map.of();
+  private GroupTable groups;
+  private WorkerStatistics[] workers = new WorkerStatistics[0];
+  private long started;
+  private long mergeNanos;
+
+  /**
+   * Constructs a task that runs all the given processors in list order.
+   *
+   * @param processors The processors to run.
+   */
+  public ProcessingTask(List<? extends RangeProcessor> processors) {
+    this(processors, null, false);
+  }
+
+  /**
+   * Constructs a task that runs all the given processors in list order and spills partial
+   * tables that outgrow the budget of the store.
+   *
+   * @param processors The processors to run.
+   * @param spill      The store receiving the spilled tables, or null to keep every count in
+   *                   memory.
+   * @param keepTables Whether the results keep their counts, which requires the counts of
+   *                   every range to stay in memory until the task is completed.
+   */
+  public ProcessingTask(List<? extends RangeProcessor> processors, SpillStore spill,
+                        boolean keepTables) {
+    this.processors = processors;
+    this.spill = spill;
+    this.keepTables = keepTables;
+    this.results = new FileResult[processors.size()];
+    this.timings = new RangeTiming[processors.size()];
+  }
+
+  @Override
+  protected Map<String, CountTable> compute() {
+    started = System.nanoTime();
+    workers = new WorkerStatistics[Math.max(1,
+        Math.min(getPool().getParallelism(), processors.size()))];
+    Partial partial = new WorkerTask(0, workers.length).compute();
+    sketches = partial.sketches;
+    groups = partial.groups;
+    mergeNanos = Math.max(0, System.nanoTime() - Math.max(started, lastRangeEnd.get()));
+    return partial.tables;
+  }
+
+  /**
+   * Returns the merged sketches of the processors running in approximate mode. Must only be
+   * called after the task completed.
+   *
+   * @return the sketches by attribute, empty if no processor is approximate
+   */
+  public Map<String, AttributeSketch> getSketches() {
+    return sketches;
+  }
+
+  /**
+   * Returns the merged counts of the value combinations of processors grouping their records.
+   * Must only be called after the task completed.
+   *
+   * @return the groups, or null if no processor groups its records
+   */
+  public GroupTable getGroups() {
+    return groups;
+  }
+
+  /**
+   * Returns the results of every processor in the order of the processors. The results only
+   * contain their counts if the task keeps them. Must only be called after the task completed.
+   *
+   * @return the list of file results
+   */
+  public List<FileResult> getResults() {
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Returns the timings of every processor in the order of the processors. Must only be called
+   * after the task completed.
+   *
+   * @return the list of timings
+   */
+  public List<RangeTiming> getTimings() {
+    return Arrays.asList(timings);
+  }
+
+  /**
+   * Returns the statistics of every worker. Must only be called after the task completed.
+   *
+   * @return the list of worker statistics
+   */
+  public List<WorkerStatistics> getWorkers() {
+    return Arrays.asList(workers);
+  }
+
+  /**
+   * Returns the time between the end of the last processor and the end of the task, which is
+   * spent merging the partial results of the workers.
+   *
+   * @return the merge time in nanoseconds
+   */
+  public long getMergeNanos() {
+    return mergeNanos;
+  }
+
+  /**
+   * Merges two partial results. The smaller table of every attribute is merged into the larger
+   * one, so the work of a merge is proportional to the smaller side.
+   */
+  private Partial merge(Partial left, Partial right) {
+    for (Map.Entry<String, AttributeSketch> entry : right.sketches.entrySet()) {
+      AttributeSketch leftSketch = left.sketches.putIfAbsent(entry.getKey(), entry.getValue());
+      if (leftSketch != null) {
+        leftSketch.mergeFrom(entry.getValue());
+      }
+    }
+    mergeTables(left.tables, right.tables);
+    if (spill != null) {
+      left.tables.forEach(spill::spillIfFull);
+    }
+    left.groups = mergeGroups(left.groups, right.groups);
+    return left;
+  }
+
+  private static void mergeTables(Map<String, CountTable> left, Map<String, CountTable> right) {
+    for (Map.Entry<String, CountTable> entry : right.entrySet()) {
+      CountTable leftTable = left.get(entry.getKey());
+      CountTable rightTable = entry.getValue();
+      if (leftTable == null) {
+        left.put(entry.getKey(), rightTable);
+      } else if (leftTable.size() >= rightTable.size()) {
+        leftTable.mergeFrom(rightTable);
+      } else {
+        rightTable.mergeFrom(leftTable);
+        left.put(entry.getKey(), rightTable);
+      }
+    }
+  }
+
+  private static GroupTable mergeGroups(GroupTable left, GroupTable right) {
+    if (left == null || right == null) {
+      return left == null ? right : left;
+    }
+    if (left.size() >= right.size()) {
+      left.mergeFrom(right);
+      return left;
+    }
+    right.mergeFrom(left);
+    return right;
+  }
+
+  /**
+   * Runs the workers with the indexes from inclusive to exclusive and merges their results.
+   */
+  @SuppressWarnings("serial")
+  private class WorkerTask extends RecursiveTask<Partial> {
+
+    private final int from;
+    private final int to;
+
+    private WorkerTask(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Partial compute() {
+      if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        WorkerTask right = new WorkerTask(middle, to);
+        right.fork();
+        Partial left = new WorkerTask(from, middle).compute();
+        return merge(left, right.join());
+      }
+      Partial partial = new Partial();
+      long allocatedBefore = allocatedBytes();
+      long busyNanos = 0;
+      int ranges = 0;
+      int index;
+      while ((index = next.getAndIncrement()) < processors.size()) {
+        RangeProcessor processor = processors.get(index);
+        RangeEvent event = new RangeEvent();
+        event.begin();
+        long rangeStart = System.nanoTime();
+        FileResult result = processor.call();
+        results[index] = keepTables ? result : result.withoutTables();
+        for (Map.Entry<String, CountTable> entry : result.tables().entrySet()) {
+          partial.tables.computeIfAbsent(entry.getKey(), attribute -> new CountTable())
+              .mergeFrom(entry.getValue());
+        }
+        if (spill != null) {
+          partial.tables.forEach(spill::spillIfFull);
+        }
+        if (result.groups() != null) {
+          if (partial.groups == null) {
+            partial.groups = new GroupTable(result.groups().getDimensions());
+          }
+          partial.groups.mergeFrom(result.groups());
+        }
+        for (Map.Entry<String, AttributeSketch> entry : result.sketches().entrySet()) {
+          AttributeSketch sketch = partial.sketches.get(entry.getKey());
+          if (sketch == null) {
+            partial.sketches.put(entry.getKey(), entry.getValue().copy());
+          } else {
+            sketch.mergeFrom(entry.getValue());
+          }
+        }
+        long rangeEnd = System.nanoTime();
+        timings[index] = new RangeTiming(rangeStart - started, rangeEnd - rangeStart);
+        lastRangeEnd.accumulateAndGet(rangeEnd, Math::max);
+        busyNanos += rangeEnd - rangeStart;
+        ranges++;
+        event.end();
+        if (event.shouldCommit()) {
+          event.file = processor.getFile().getPath();
+          event.start = processor.getRange().start();
+          event.bytes = processor.getRange().length();
+          event.records = result.records();
+          event.successful = result.isSuccessful();
+          event.commit();
+        }
+      }
+      long allocatedAfter = allocatedBytes();
+      workers[from] = new WorkerStatistics(ranges, busyNanos,
+          allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore);
+      return partial;
+    }
+  }
+
+  /**
+   * Returns the number of bytes the current thread allocated so far.
+   *
+   * @return the number of bytes, or -1 if the JVM does not measure allocations per thread
+   */
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean threads
+        && threads.isThreadAllocatedMemoryEnabled()) {
+      return threads.getCurrentThreadAllocatedBytes();
+    }
+    return -1;
+  }
+
+  /**
+   * The timing of a single processor.
+   *
+   * @param queuedNanos   The time from the start of the task until the processor was started.
+   * @param durationNanos The time the processor ran, including merging its result into the
+   *                      partial result of its worker.
+   */
+  public record RangeTiming(long queuedNanos, long durationNanos) {
+  }
+
+  /**
+   * The statistics of a single worker.
+   *
+   * @param ranges         The number of processors the worker ran.
+   * @param busyNanos      The time the worker spent running processors.
+   * @param allocatedBytes The bytes the worker allocated, or -1 if they are not measured.
+   */
+  public record WorkerStatistics(int ranges, long busyNanos, long allocatedBytes) {
+  }
+
+  /**
+   * The partial counts of a subtree of workers.
+   */
+  private static final class Partial {
+    private final Map<String, CountTable> tables = new HashMap<>();
+    private final Map<String, AttributeSketch> sketches = new HashMap<>();
+    private GroupTable groups;
+  }
+}
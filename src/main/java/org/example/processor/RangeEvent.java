@@ -0,0 +1,38 @@
+package org.example.processor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The RangeEvent is recorded by JFR for every processed file or byte range of a file. Recording
+ * costs nothing unless a flight recording with the event enabled is running.
+ */
+@Name("org.example.Range")
+@Label("Range Processed")
+@Category("JSON Statistics")
+@Description("Parsing and counting a file or a byte range of a file")
+@StackTrace(false)
+public class RangeEvent extends Event {
+
+  @Label("File")
+  public String file;
+
+  @Label("Start")
+  @Description("The offset of the range in the file")
+  public long start;
+
+  @Label("Bytes")
+  @DataAmount
+  public long bytes;
+
+  @Label("Records")
+  public long records;
+
+  @Label("Successful")
+  public boolean successful;
+}
@@ -0,0 +1,33 @@
+package org.example.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The RangeInput interface opens the bytes of a file starting at a given position. It lets the
+ * FileProcessor read a range either straight from the file or from a prefetching pipeline.
+ */
+@FunctionalInterface
+public interface RangeInput {
+
+  /**
+   * Opens a stream over the bytes of the file starting at the given position.
+   *
+   * @param file     The file to read.
+   * @param position The offset of the first byte of the stream.
+   * @return the stream, which has to be closed by the caller
+   * @throws IOException If the file can not be opened.
+   */
+  InputStream open(File file, long position) throws IOException;
+
+  /**
+   * Called once the processor of the range starting at the given position is done, also if it
+   * failed before opening the range. Does nothing by default.
+   *
+   * @param file     The file of the range.
+   * @param position The offset of the first byte of the range.
+   */
+  default void release(File file, long position) {
+  }
+}
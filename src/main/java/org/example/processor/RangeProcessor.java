@@ -0,0 +1,19 @@
+package org.example.processor;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+/**
+ * The RangeProcessor interface is implemented by the counting engines. A processor counts the
+ * attributes of a single file or a single range of a file and never throws: failures are
+ * reported through the returned FileResult.
+ */
+public interface RangeProcessor extends Callable<FileResult> {
+
+  @Override
+  FileResult call();
+
+  File getFile();
+
+  FileRange getRange();
+}
@@ -0,0 +1,461 @@
+package org.example.processor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.example.constants.Constants;
+
+/**
+ * The RecordFilter class is a predicate over the fields of a record, parsed from an expression
+ * such as {@code year_released >= 1990 and (artist = 'Queen' or not genre = 'Pop')}.
+ * Comparisons are {@code = != < <= > >=} between a field and a number or a quoted string, and
+ * are combined with {@code and}, {@code or}, {@code not} and parentheses. Numbers are compared
+ * numerically and strings by their characters. A comparison with a string matches a multiple
+ * attribute if any of its values matches, and {@code !=} matches if none of them is equal.
+ * A comparison with a field that is missing, null, an object or an array never matches.
+ * The filter is evaluated while a record is read: the outcome is known as soon as the fields read
+ * so far decide it, so the rest of a record that does not match can be skipped.
+ */
+public final class RecordFilter {
+
+  private final String expression;
+  private final Node root;
+  private final Map<String, Integer> fieldIndexes;
+
+  private RecordFilter(String expression, Node root, Map<String, Integer> fieldIndexes) {
+    this.expression = expression;
+    this.root = root;
+    this.fieldIndexes = fieldIndexes;
+  }
+
+  /**
+   * Parses a filter expression.
+   *
+   * @param expression The expression to be parsed.
+   * @return the filter
+   * @throws IllegalArgumentException If the expression is not valid.
+   */
+  public static RecordFilter parse(String expression) {
+    Parser parser = new Parser(expression);
+    Node root = parser.parseOr();
+    if (parser.peek() != null) {
+      throw parser.error("unexpected '" + parser.peek() + "'");
+    }
+    return new RecordFilter(expression, root, parser.fieldIndexes);
+  }
+
+  /**
+   * Returns the names of the fields the filter depends on.
+   *
+   * @return the field names in the order they appear in the expression
+   */
+  public List<String> getFields() {
+    String[] fields = new String[fieldIndexes.size()];
+    fieldIndexes.forEach((field, index) -> fields[index] = field);
+    return List.of(fields);
+  }
+
+  /**
+   * Returns the index of a field in the values of a record.
+   *
+   * @return the index, or -1 if the filter does not depend on the field
+   */
+  int indexOf(String field) {
+    Integer index = fieldIndexes.get(field);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Creates the buffer for the field values of a record, which is reused for every record.
+   */
+  RecordValues createValues() {
+    return new RecordValues(fieldIndexes.size());
+  }
+
+  /**
+   * Evaluates the filter against the fields of a record read so far.
+   *
+   * @param values   The fields of the record.
+   * @param complete Whether the whole record was read, so missing fields are known to be missing.
+   * @return the outcome, which is UNKNOWN if it depends on fields that were not read yet
+   */
+  Outcome evaluate(RecordValues values, boolean complete) {
+    return root.evaluate(values, complete);
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  /**
+   * The outcome of a filter for a partially or completely read record.
+   */
+  enum Outcome {
+    MATCH, NO_MATCH, UNKNOWN;
+
+    private static Outcome of(boolean matches) {
+      return matches ? MATCH : NO_MATCH;
+    }
+
+    private Outcome negate() {
+      return this == UNKNOWN ? UNKNOWN : of(this == NO_MATCH);
+    }
+  }
+
+  /**
+   * The values of the fields a filter depends on, copied from the parser as they are read.
+   */
+  static final class RecordValues {
+
+    private final char[][] chars;
+    private final int[] lengths;
+    private final boolean[] seen;
+    private final boolean[] parsed;
+    private final double[] numbers;
+
+    private RecordValues(int size) {
+      chars = new char[size][16];
+      lengths = new int[size];
+      seen = new boolean[size];
+      parsed = new boolean[size];
+      numbers = new double[size];
+    }
+
+    /**
+     * Forgets the values of the previous record.
+     */
+    void clear() {
+      Arrays.fill(seen, false);
+    }
+
+    /**
+     * Copies the value the parser is positioned at. Numbers are read without parsing their text.
+     */
+    void set(int field, JsonParser parser) throws IOException {
+      JsonToken token = parser.currentToken();
+      seen[field] = true;
+      if (!token.isScalarValue() || token == JsonToken.VALUE_NULL) {
+        lengths[field] = -1;
+        return;
+      }
+      int length = parser.getTextLength();
+      if (chars[field].length < length) {
+        chars[field] = new char[Math.max(length, chars[field].length * 2)];
+      }
+      System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), chars[field], 0,
+          length);
+      lengths[field] = length;
+      parsed[field] = token.isNumeric();
+      if (parsed[field]) {
+        numbers[field] = parser.getDoubleValue();
+      }
+    }
+
+    private double number(int field) {
+      if (!parsed[field]) {
+        try {
+          numbers[field] = Double.parseDouble(new String(chars[field], 0, lengths[field]));
+        } catch (NumberFormatException e) {
+          numbers[field] = Double.NaN;
+        }
+        parsed[field] = true;
+      }
+      return numbers[field];
+    }
+  }
+
+  private interface Node {
+    Outcome evaluate(RecordValues values, boolean complete);
+  }
+
+  private record And(Node left, Node right) implements Node {
+    @Override
+    public Outcome evaluate(RecordValues values, boolean complete) {
+      Outcome left = this.left.evaluate(values, complete);
+      if (left == Outcome.NO_MATCH) {
+        return left;
+      }
+      Outcome right = this.right.evaluate(values, complete);
+      return right == Outcome.MATCH ? left : right;
+    }
+  }
+
+  private record Or(Node left, Node right) implements Node {
+    @Override
+    public Outcome evaluate(RecordValues values, boolean complete) {
+      Outcome left = this.left.evaluate(values, complete);
+      if (left == Outcome.MATCH) {
+        return left;
+      }
+      Outcome right = this.right.evaluate(values, complete);
+      return right == Outcome.NO_MATCH ? left : right;
+    }
+  }
+
+  private record Not(Node operand) implements Node {
+    @Override
+    public Outcome evaluate(RecordValues values, boolean complete) {
+      return operand.evaluate(values, complete).negate();
+    }
+  }
+
+  private enum Operator {
+    EQUAL("="), NOT_EQUAL("!="), LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"),
+    GREATER_OR_EQUAL(">=");
+
+    private final String symbol;
+
+    Operator(String symbol) {
+      this.symbol = symbol;
+    }
+
+    private boolean test(int comparison) {
+      return switch (this) {
+        case EQUAL -> comparison == 0;
+        case NOT_EQUAL -> comparison != 0;
+        case LESS -> comparison < 0;
+        case LESS_OR_EQUAL -> comparison <= 0;
+        case GREATER -> comparison > 0;
+        case GREATER_OR_EQUAL -> comparison >= 0;
+      };
+    }
+  }
+
+  /**
+   * Compares a field with a number, or with a string, in which case a multiple attribute is
+   * compared value by value.
+   */
+  private record Comparison(int field, Operator operator, char[] text, double number,
+                            boolean numeric, boolean multiple) implements Node {
+
+    @Override
+    public Outcome evaluate(RecordValues values, boolean complete) {
+      if (!values.seen[field]) {
+        return complete ? Outcome.NO_MATCH : Outcome.UNKNOWN;
+      }
+      int length = values.lengths[field];
+      if (length < 0) {
+        return Outcome.NO_MATCH;
+      }
+      if (numeric) {
+        double value = values.number(field);
+        return Outcome.of(!Double.isNaN(value) && operator.test(Double.compare(value, number)));
+      }
+      char[] chars = values.chars[field];
+      if (!multiple) {
+        return Outcome.of(operator.test(compare(chars, 0, length)));
+      }
+      boolean negated = operator == Operator.NOT_EQUAL;
+      Operator partOperator = negated ? Operator.EQUAL : operator;
+      int partStart = 0;
+      for (int i = 0; i <= length; i++) {
+        if (i == length || i + 1 < length && chars[i] == ',' && chars[i + 1] == ' ') {
+          if (partOperator.test(compare(chars, partStart, i - partStart))) {
+            return Outcome.of(!negated);
+          }
+          partStart = ++i + 1;
+        }
+      }
+      return Outcome.of(negated);
+    }
+
+    private int compare(char[] chars, int offset, int length) {
+      int common = Math.min(length, text.length);
+      for (int i = 0; i < common; i++) {
+        if (chars[offset + i] != text[i]) {
+          return chars[offset + i] - text[i];
+        }
+      }
+      return length - text.length;
+    }
+  }
+
+  /**
+   * A recursive descent parser of filter expressions.
+   */
+  private static final class Parser {
+
+    private final String expression;
+    private final Map<String, Integer> fieldIndexes = new HashMap<>();
+    private final List<String> tokens = new ArrayList<>();
+    private final List<Integer> positions = new ArrayList<>();
+    private int next;
+
+    private Parser(String expression) {
+      this.expression = expression;
+      tokenize();
+    }
+
+    private Node parseOr() {
+      Node node = parseAnd();
+      while (acceptKeyword("or")) {
+        node = new Or(node, parseAnd());
+      }
+      return node;
+    }
+
+    private Node parseAnd() {
+      Node node = parseUnary();
+      while (acceptKeyword("and")) {
+        node = new And(node, parseUnary());
+      }
+      return node;
+    }
+
+    private Node parseUnary() {
+      if (acceptKeyword("not")) {
+        return new Not(parseUnary());
+      }
+      if ("(".equals(peek())) {
+        next++;
+        Node node = parseOr();
+        if (!")".equals(peek())) {
+          throw error("expected ')'");
+        }
+        next++;
+        return node;
+      }
+      return parseComparison();
+    }
+
+    private Node parseComparison() {
+      String field = peek();
+      if (field == null || !isIdentifier(field)) {
+        throw error("expected a field name");
+      }
+      next++;
+      Operator operator = parseOperator();
+      String literal = peek();
+      if (literal == null) {
+        throw error("expected a number or a quoted string");
+      }
+      next++;
+      int index = fieldIndexes.computeIfAbsent(field, key -> fieldIndexes.size());
+      boolean multiple = Constants.MULTIPLE_ATTRIBUTES.contains(field);
+      char first = literal.charAt(0);
+      if (first == '\'' || first == '"') {
+        char[] text = unquote(literal).toCharArray();
+        return new Comparison(index, operator, text, 0, false, multiple);
+      }
+      try {
+        return new Comparison(index, operator, null, Double.parseDouble(literal), true, false);
+      } catch (NumberFormatException e) {
+        next--;
+        throw error("expected a number or a quoted string");
+      }
+    }
+
+    private Operator parseOperator() {
+      String symbol = peek();
+      for (Operator operator : Operator.values()) {
+        if (operator.symbol.equals(symbol) || operator == Operator.EQUAL && "==".equals(symbol)) {
+          next++;
+          return operator;
+        }
+      }
+      throw error("expected a comparison operator");
+    }
+
+    private boolean acceptKeyword(String keyword) {
+      if (keyword.equalsIgnoreCase(peek())) {
+        next++;
+        return true;
+      }
+      return false;
+    }
+
+    private String peek() {
+      return next < tokens.size() ? tokens.get(next) : null;
+    }
+
+    private IllegalArgumentException error(String message) {
+      int position = next < positions.size() ? positions.get(next) : expression.length();
+      return new IllegalArgumentException(String.format(Locale.ROOT,
+          "Invalid filter '%s' at position %d: %s", expression, position + 1, message));
+    }
+
+    /**
+     * Splits the expression into field names, keywords, numbers, quoted strings, operators and
+     * parentheses.
+     */
+    private void tokenize() {
+      int i = 0;
+      while (i < expression.length()) {
+        char current = expression.charAt(i);
+        int start = i;
+        if (Character.isWhitespace(current)) {
+          i++;
+          continue;
+        }
+        if (current == '\'' || current == '"') {
+          i++;
+          while (i < expression.length() && expression.charAt(i) != current) {
+            i += expression.charAt(i) == '\\' ? 2 : 1;
+          }
+          if (i >= expression.length()) {
+            positions.add(start);
+            next = positions.size() - 1;
+            throw error("unterminated string");
+          }
+          i++;
+        } else if (current == '(' || current == ')') {
+          i++;
+        } else if ("=!<>".indexOf(current) >= 0) {
+          i++;
+          if (i < expression.length() && expression.charAt(i) == '=') {
+            i++;
+          }
+        } else {
+          while (i < expression.length() && isWordPart(expression.charAt(i))) {
+            i++;
+          }
+          if (i == start) {
+            positions.add(start);
+            next = positions.size() - 1;
+            throw error("unexpected '" + current + "'");
+          }
+        }
+        tokens.add(expression.substring(start, i));
+        positions.add(start);
+      }
+    }
+
+    private static boolean isWordPart(char current) {
+      return Character.isLetterOrDigit(current) || current == '_' || current == '.'
+          || current == '-' || current == '+';
+    }
+
+    private static boolean isIdentifier(String token) {
+      if (!Character.isLetter(token.charAt(0)) && token.charAt(0) != '_') {
+        return false;
+      }
+      for (int i = 0; i < token.length(); i++) {
+        char current = token.charAt(i);
+        if (!Character.isLetterOrDigit(current) && current != '_') {
+          return false;
+        }
+      }
+      return !token.equalsIgnoreCase("and") && !token.equalsIgnoreCase("or")
+          && !token.equalsIgnoreCase("not");
+    }
+
+    private static String unquote(String literal) {
+      StringBuilder text = new StringBuilder(literal.length());
+      for (int i = 1; i < literal.length() - 1; i++) {
+        char current = literal.charAt(i);
+        if (current == '\\' && i + 2 < literal.length()) {
+          current = literal.charAt(++i);
+        }
+        text.append(current);
+      }
+      return text.toString();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package org.example.processor;
+
+import java.util.Collection;
+
+/**
+ * A RecordSink receives the values of the records a {@link FileProcessor} reads, one record at a
+ * time: {@link #startRecord()} is called before the first field of a record, the values of the
+ * fields the sink collects are passed to their counters, and {@link #endRecord()} is called after
+ * the last field. The values of a multiple attribute are passed one by one.
+ */
+public interface RecordSink {
+
+  /**
+   * Returns the names of the fields the sink collects.
+   *
+   * @return the field names
+   */
+  Collection<String> getFields();
+
+  /**
+   * Returns the counter receiving the values of a field.
+   *
+   * @param field The name of the field.
+   * @return the counter, or null if the sink does not collect the field
+   */
+  ValueCounter getCounter(String field);
+
+  void startRecord();
+
+  void endRecord();
+}
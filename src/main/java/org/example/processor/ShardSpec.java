@@ -0,0 +1,77 @@
+package org.example.processor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * A ShardSpec selects the part of the input one of several independent runs processes, for
+ * example shard 3 of 8. Files are assigned to a shard by a CRC32 hash of their path relative to
+ * the directory, and the ranges of a split file by their position, so every run assigns every
+ * file and range to the same shard regardless of the machine it runs on.
+ *
+ * @param index The number of the shard, from 1 to count.
+ * @param count The number of shards.
+ */
+public record ShardSpec(int index, int count) {
+
+  /**
+   * The single shard containing everything.
+   */
+  public static final ShardSpec ALL = new ShardSpec(1, 1);
+
+  /**
+   * Validates the shard.
+   *
+   * @throws IllegalArgumentException If the index is not between 1 and count.
+   */
+  public ShardSpec {
+    if (count < 1 || index < 1 || index > count) {
+      throw new IllegalArgumentException(
+          "Invalid shard %d/%d, the index must be between 1 and the count".formatted(index,
+              count));
+    }
+  }
+
+  /**
+   * Parses a shard given as index and count separated by a slash, for example "3/8".
+   *
+   * @throws IllegalArgumentException If the text is not a valid shard.
+   */
+  public static ShardSpec parse(String spec) {
+    String[] parts = spec.trim().split("/", -1);
+    try {
+      if (parts.length == 2) {
+        return new ShardSpec(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException(
+        "Invalid shard '%s', expected <index>/<count> such as 3/8".formatted(spec));
+  }
+
+  /**
+   * Tells whether a whole file belongs to this shard.
+   *
+   * @param relativePath The path of the file relative to the directory, with '/' as separator.
+   */
+  public boolean containsFile(String relativePath) {
+    CRC32 crc = new CRC32();
+    crc.update(relativePath.getBytes(StandardCharsets.UTF_8));
+    return crc.getValue() % count == index - 1;
+  }
+
+  /**
+   * Tells whether a range of a split file belongs to this shard.
+   *
+   * @param range The position of the range in the file, starting at 0.
+   */
+  public boolean containsRange(int range) {
+    return range % count == index - 1;
+  }
+
+  @Override
+  public String toString() {
+    return index + "/" + count;
+  }
+}
@@ -0,0 +1,211 @@
+package org.example.processor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SpaceSaving class approximates the most frequent values of a stream with a fixed number of
+ * counters (Metwally et al., Space-Saving). A value that is already monitored increments its
+ * counter. A new value takes over the counter with the smallest count once all counters are in
+ * use, inheriting that count as its error. Every reported count is therefore an upper bound of
+ * the true count, and the count minus the error is a lower bound. A value that is not monitored
+ * occurred at most {@link #unmonitoredBound()} times, which is never more than the number of
+ * counted values divided by the capacity.
+ * The counters are kept in a min-heap, so an update takes logarithmic time in the capacity.
+ * Sketches are merged by adding the counts of common values and the bound of the other sketch to
+ * values only one of them monitors, keeping the largest counts (Cafaro et al.), which preserves
+ * both bounds.
+ */
+public class SpaceSaving {
+
+  private static final Comparator<Estimate> ORDER = Comparator.comparingLong(Estimate::count)
+      .reversed().thenComparing(Estimate::value);
+
+  private final int capacity;
+  private final String[] values;
+  private final long[] counts;
+  private final long[] errors;
+  private final Map<String, Integer> positions = new HashMap<>();
+  private int size;
+  private long floor;
+
+  /**
+   * Constructs an empty sketch.
+   *
+   * @param capacity The number of counters.
+   */
+  public SpaceSaving(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    values = new String[capacity];
+    counts = new long[capacity];
+    errors = new long[capacity];
+  }
+
+  /**
+   * Counts one occurrence of the given value.
+   *
+   * @param value The value to be counted.
+   */
+  public void increment(String value) {
+    Integer position = positions.get(value);
+    if (position != null) {
+      counts[position]++;
+      siftDown(position);
+      return;
+    }
+    long bound = unmonitoredBound();
+    int slot;
+    if (size < capacity) {
+      slot = size++;
+    } else {
+      slot = 0;
+      positions.remove(values[0]);
+    }
+    values[slot] = value;
+    counts[slot] = bound + 1;
+    errors[slot] = bound;
+    positions.put(value, slot);
+    siftUp(slot);
+    siftDown(positions.get(value));
+  }
+
+  /**
+   * Returns the largest number of occurrences a value that is not monitored may have had.
+   */
+  public long unmonitoredBound() {
+    return size == capacity ? Math.max(counts[0], floor) : floor;
+  }
+
+  /**
+   * Merges the other sketch into this sketch.
+   *
+   * @param other The sketch to be merged.
+   */
+  public void mergeFrom(SpaceSaving other) {
+    long boundThis = unmonitoredBound();
+    long boundOther = other.unmonitoredBound();
+    Map<String, long[]> combined = new HashMap<>(2 * (size + other.size));
+    for (int i = 0; i < size; i++) {
+      combined.put(values[i], new long[] {counts[i] + boundOther, errors[i] + boundOther});
+    }
+    for (int i = 0; i < other.size; i++) {
+      long[] entry = combined.get(other.values[i]);
+      if (entry == null) {
+        combined.put(other.values[i],
+            new long[] {other.counts[i] + boundThis, other.errors[i] + boundThis});
+      } else {
+        entry[0] += other.counts[i] - boundOther;
+        entry[1] += other.errors[i] - boundOther;
+      }
+    }
+    List<Estimate> estimates = new ArrayList<>(combined.size());
+    combined.forEach((value, entry) -> estimates.add(new Estimate(value, entry[0], entry[1])));
+    estimates.sort(ORDER);
+    floor = boundThis + boundOther;
+    if (estimates.size() > capacity) {
+      floor = Math.max(floor, estimates.get(capacity).count());
+    }
+    positions.clear();
+    size = Math.min(capacity, estimates.size());
+    for (int i = 0; i < size; i++) {
+      Estimate estimate = estimates.get(size - 1 - i);
+      values[i] = estimate.value();
+      counts[i] = estimate.count();
+      errors[i] = estimate.error();
+      positions.put(estimate.value(), i);
+    }
+    for (int i = size; i < capacity; i++) {
+      values[i] = null;
+    }
+  }
+
+  /**
+   * Returns the monitored values with the largest counts, ordered by count descending and by
+   * value for equal counts.
+   *
+   * @param limit The maximum number of values to return.
+   * @return the estimates of the values with the largest counts, largest first
+   */
+  public List<Estimate> top(int limit) {
+    List<Estimate> estimates = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      estimates.add(new Estimate(values[i], counts[i], errors[i]));
+    }
+    estimates.sort(ORDER);
+    return estimates.size() > limit ? estimates.subList(0, limit) : estimates;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public SpaceSaving copy() {
+    SpaceSaving copy = new SpaceSaving(capacity);
+    System.arraycopy(values, 0, copy.values, 0, size);
+    System.arraycopy(counts, 0, copy.counts, 0, size);
+    System.arraycopy(errors, 0, copy.errors, 0, size);
+    copy.positions.putAll(positions);
+    copy.size = size;
+    copy.floor = floor;
+    return copy;
+  }
+
+  private void siftUp(int position) {
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (counts[parent] <= counts[position]) {
+        return;
+      }
+      swap(position, parent);
+      position = parent;
+    }
+  }
+
+  private void siftDown(int position) {
+    while (true) {
+      int smallest = position;
+      int left = 2 * position + 1;
+      if (left < size && counts[left] < counts[smallest]) {
+        smallest = left;
+      }
+      if (left + 1 < size && counts[left + 1] < counts[smallest]) {
+        smallest = left + 1;
+      }
+      if (smallest == position) {
+        return;
+      }
+      swap(position, smallest);
+      position = smallest;
+    }
+  }
+
+  private void swap(int first, int second) {
+    String value = values[first];
+    long count = counts[first];
+    long error = errors[first];
+    values[first] = values[second];
+    counts[first] = counts[second];
+    errors[first] = errors[second];
+    values[second] = value;
+    counts[second] = count;
+    errors[second] = error;
+    positions.put(values[first], first);
+    positions.put(values[second], second);
+  }
+
+  /**
+   * The estimated count of a value.
+   *
+   * @param value The value.
+   * @param count The upper bound of the number of occurrences.
+   * @param error The maximum overestimation, so count - error is a lower bound.
+   */
+  public record Estimate(String value, long count, long error) {
+  }
+}
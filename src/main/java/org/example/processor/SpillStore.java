@@ -0,0 +1,450 @@
+package org.example.processor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * The SpillStore class bounds the heap used by exact counts of attributes with very many distinct
+ * values. A table that grows beyond the budget of a single table is sorted by value, written to a
+ * run file in a temporary directory and emptied. Since every run is sorted, the runs of an
+ * attribute are combined afterwards by a k-way merge that adds up the counts of equal values and
+ * keeps a single entry per run in memory. Ordering the merged values by count works the same
+ * way: they are sorted in chunks of the table budget, and the sorted chunks are merged again.
+ * A merge reads at most {@link #getFanIn()} runs at once, each through a buffer, and the buffers
+ * of a merge fit into the budget of a table, which is free again once the tables were spilled.
+ * If there are more runs, the oldest runs are merged into intermediate runs in passes first, so
+ * neither the heap nor the open files grow with the number of runs.
+ * The store is thread-safe, but a table must only be spilled by the thread that owns it.
+ */
+public class SpillStore implements Closeable {
+
+  private static final Comparator<Map.Entry<String, Long>> BY_COUNT =
+      Map.Entry.<String, Long>comparingByValue().reversed()
+          .thenComparing(Map.Entry.comparingByKey());
+  private static final Comparator<RunReader> BY_READER_KEY =
+      Comparator.comparing((RunReader reader) -> reader.key);
+  private static final Comparator<RunReader> BY_READER_COUNT =
+      Comparator.comparingLong((RunReader reader) -> reader.count).reversed()
+          .thenComparing(reader -> reader.key);
+  private static final int ENTRY_BYTES = 96;
+  private static final int MAX_BUFFER_SIZE = 64 * 1024;
+  private static final int MIN_BUFFER_SIZE = 4 * 1024;
+  private static final int MAX_FAN_IN = 64;
+  private static final int MIN_FAN_IN = 8;
+  private static final int END_OF_RUN = -1;
+
+  private final Path directory;
+  private final long tableBudget;
+  private final int bufferSize;
+  private final int fanIn;
+  private final Map<String, List<Path>> runs = new ConcurrentHashMap<>();
+  private final List<RunReader> readers = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicInteger runCount = new AtomicInteger();
+  private final AtomicLong spilledBytes = new AtomicLong();
+
+  /**
+   * Creates a store with its own temporary directory.
+   *
+   * @param parent      The directory the temporary directory is created in.
+   * @param tableBudget The estimated number of bytes a table may occupy before it is spilled.
+   * @throws IOException If the temporary directory can not be created.
+   */
+  public SpillStore(Path parent, long tableBudget) throws IOException {
+    this.directory = Files.createTempDirectory(parent, "spill");
+    this.tableBudget = tableBudget;
+    this.bufferSize = (int) Math.max(MIN_BUFFER_SIZE,
+        Math.min(MAX_BUFFER_SIZE, tableBudget / (MAX_FAN_IN + 1)));
+    this.fanIn = (int) Math.max(MIN_FAN_IN,
+        Math.min(MAX_FAN_IN, tableBudget / bufferSize - 1));
+  }
+
+  public long getTableBudget() {
+    return tableBudget;
+  }
+
+  /**
+   * Returns the maximum number of runs read at once. Together with the run being written, their
+   * buffers fit into the budget of a table unless the budget is very small.
+   */
+  public int getFanIn() {
+    return fanIn;
+  }
+
+  /**
+   * Returns the number of run files written so far, including the sorted chunks of merged runs.
+   */
+  public int getRuns() {
+    return runCount.get();
+  }
+
+  /**
+   * Returns the number of bytes written to run files so far.
+   */
+  public long getSpilledBytes() {
+    return spilledBytes.get();
+  }
+
+  /**
+   * Tells whether counts of the attribute were spilled, so they can only be read through
+   * {@link #merge} or {@link #sorted}.
+   *
+   * @param attribute The attribute.
+   */
+  public boolean hasRuns(String attribute) {
+    return runs.containsKey(attribute);
+  }
+
+  /**
+   * Spills the table if its estimated size exceeds the budget of a table.
+   *
+   * @param attribute The attribute the table counts.
+   * @param table     The table, which is empty afterwards if it was spilled.
+   * @return whether the table was spilled
+   * @throws UncheckedIOException If the run can not be written.
+   */
+  public boolean spillIfFull(String attribute, CountTable table) {
+    if (table.estimatedBytes() <= tableBudget) {
+      return false;
+    }
+    spill(attribute, table);
+    return true;
+  }
+
+  /**
+   * Writes the counts of the table to a new run of the attribute, ordered by value, and empties
+   * the table. Only the values are copied to be sorted, the counts are looked up while writing.
+   *
+   * @param attribute The attribute the table counts.
+   * @param table     The table to be spilled.
+   * @throws UncheckedIOException If the run can not be written.
+   */
+  public void spill(String attribute, CountTable table) {
+    String[] keys = new String[table.size()];
+    int[] index = new int[1];
+    table.forEach((key, count) -> keys[index[0]++] = key);
+    Arrays.sort(keys);
+    Path run = writeRun(output -> {
+      for (String key : keys) {
+        writeEntry(output, key, table.get(key));
+      }
+    });
+    runs.computeIfAbsent(attribute, key -> Collections.synchronizedList(new ArrayList<>()))
+        .add(run);
+    table.clear();
+  }
+
+  /**
+   * Merges every run of the attribute and the counts still held in memory, and passes every
+   * value with its total count to the consumer, ordered by value.
+   *
+   * @param attribute The attribute.
+   * @param rest      The counts that were not spilled, which are spilled as a last run.
+   * @param consumer  The consumer receiving the merged counts.
+   * @throws UncheckedIOException If a run can not be read or written.
+   */
+  public void merge(String attribute, CountTable rest, ObjLongConsumer<String> consumer) {
+    if (!rest.isEmpty()) {
+      spill(attribute, rest);
+    }
+    try {
+      List<Path> merged = reduce(runs.getOrDefault(attribute, List.of()), BY_READER_KEY);
+      runs.put(attribute, Collections.synchronizedList(new ArrayList<>(merged)));
+      mergeRuns(merged, BY_READER_KEY, consumer);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can not read the spilled counts of " + attribute, e);
+    }
+  }
+
+  /**
+   * Returns the merged counts of the attribute ordered by count descending and by value for
+   * equal counts, like {@link CountTable#top(int)}. If the number of values is limited, only a
+   * heap of that size is kept; otherwise the merged counts are sorted in chunks of the table
+   * budget, and the returned entries are read from the merged chunks while they are iterated,
+   * until the store is closed.
+   *
+   * @param attribute The attribute.
+   * @param rest      The counts that were not spilled, which are spilled as a last run.
+   * @param limit     The maximum number of values to return.
+   * @param merged    The consumer receiving every merged count ordered by value, or null.
+   * @return the entries with the largest counts, largest first
+   * @throws UncheckedIOException If a run can not be read or written.
+   */
+  public Iterable<Map.Entry<String, Long>> sorted(String attribute, CountTable rest, int limit,
+                                                  ObjLongConsumer<String> merged) {
+    if (limit < Integer.MAX_VALUE) {
+      PriorityQueue<Map.Entry<String, Long>> heap =
+          new PriorityQueue<>(Math.min(limit, 1024) + 1, BY_COUNT.reversed());
+      merge(attribute, rest, (key, count) -> {
+        if (merged != null) {
+          merged.accept(key, count);
+        }
+        heap.add(Map.entry(key, count));
+        if (heap.size() > limit) {
+          heap.poll();
+        }
+      });
+      List<Map.Entry<String, Long>> entries = new ArrayList<>(heap);
+      entries.sort(BY_COUNT);
+      return entries;
+    }
+    List<Map.Entry<String, Long>> chunk = new ArrayList<>();
+    List<Path> chunks = new ArrayList<>();
+    long[] chunkBytes = new long[1];
+    merge(attribute, rest, (key, count) -> {
+      if (merged != null) {
+        merged.accept(key, count);
+      }
+      chunk.add(Map.entry(key, count));
+      chunkBytes[0] += ENTRY_BYTES + key.length();
+      if (chunkBytes[0] > tableBudget) {
+        chunks.add(writeChunk(chunk));
+        chunk.clear();
+        chunkBytes[0] = 0;
+      }
+    });
+    if (chunks.isEmpty()) {
+      chunk.sort(BY_COUNT);
+      return chunk;
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(writeChunk(chunk));
+    }
+    List<Path> sortedChunks;
+    try {
+      sortedChunks = reduce(chunks, BY_READER_COUNT);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can not read the sorted counts of " + attribute, e);
+    }
+    return () -> new ChunkIterator(sortedChunks);
+  }
+
+  /**
+   * Closes the runs that are still open and deletes the temporary directory.
+   */
+  @Override
+  public void close() {
+    synchronized (readers) {
+      new ArrayList<>(readers).forEach(RunReader::close);
+    }
+    try (var files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        Files.deleteIfExists(file);
+      }
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      System.out.println("Error occurred while deleting spilled counts in " + directory);
+    }
+  }
+
+  /**
+   * Merges the oldest runs into intermediate runs, at most {@link #fanIn} at a time, until at
+   * most {@link #fanIn} runs are left. The merged runs are deleted.
+   *
+   * @param runs  The runs, each sorted in the given order.
+   * @param order The order of the runs.
+   * @return the runs left, sorted in the same order
+   */
+  private List<Path> reduce(List<Path> runs, Comparator<RunReader> order) throws IOException {
+    List<Path> remaining = new ArrayList<>(runs);
+    while (remaining.size() > fanIn) {
+      List<Path> pass = new ArrayList<>(remaining.subList(0, fanIn));
+      remaining.subList(0, fanIn).clear();
+      remaining.add(writeRun(output -> mergeRuns(pass, order, (key, count) -> {
+        try {
+          writeEntry(output, key, count);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      })));
+      for (Path run : pass) {
+        Files.deleteIfExists(run);
+      }
+    }
+    return remaining;
+  }
+
+  /**
+   * Merges the runs, which are sorted in the given order, and passes every entry to the consumer
+   * in that order. The counts of equal values following each other are added up.
+   */
+  private void mergeRuns(List<Path> runs, Comparator<RunReader> order,
+                         ObjLongConsumer<String> consumer) throws IOException {
+    PriorityQueue<RunReader> queue = new PriorityQueue<>(order);
+    try {
+      for (Path run : runs) {
+        RunReader reader = new RunReader(run);
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+      String key = null;
+      long count = 0;
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        if (key != null && !key.equals(reader.key)) {
+          consumer.accept(key, count);
+          count = 0;
+        }
+        key = reader.key;
+        count += reader.count;
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+      if (key != null) {
+        consumer.accept(key, count);
+      }
+    } finally {
+      queue.forEach(RunReader::close);
+    }
+  }
+
+  private Path writeChunk(List<Map.Entry<String, Long>> chunk) {
+    chunk.sort(BY_COUNT);
+    return writeRun(output -> {
+      for (Map.Entry<String, Long> entry : chunk) {
+        writeEntry(output, entry.getKey(), entry.getValue());
+      }
+    });
+  }
+
+  /**
+   * Writes a run of entries, which ends with a marker since the number of entries of a merged
+   * run is not known in advance.
+   */
+  private Path writeRun(EntryWriter entries) {
+    Path run = directory.resolve("run-%06d".formatted(runCount.incrementAndGet()));
+    try {
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(run), bufferSize))) {
+        entries.writeTo(output);
+        output.writeInt(END_OF_RUN);
+      }
+      spilledBytes.addAndGet(Files.size(run));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can not write spilled counts to " + run, e);
+    }
+    return run;
+  }
+
+  private static void writeEntry(DataOutputStream output, String key, long count)
+      throws IOException {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+    output.writeLong(count);
+  }
+
+  @FunctionalInterface
+  private interface EntryWriter {
+    void writeTo(DataOutputStream output) throws IOException;
+  }
+
+  /**
+   * Reads the entries of a run one by one. The run is closed as soon as it is exhausted.
+   */
+  private final class RunReader {
+
+    private final DataInputStream input;
+    private String key;
+    private long count;
+
+    private RunReader(Path run) throws IOException {
+      input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), bufferSize));
+      readers.add(this);
+    }
+
+    /**
+     * Reads the next entry of the run.
+     *
+     * @return false if the run is exhausted
+     */
+    private boolean next() throws IOException {
+      int length = input.readInt();
+      if (length == END_OF_RUN) {
+        close();
+        return false;
+      }
+      byte[] bytes = new byte[length];
+      input.readFully(bytes);
+      key = new String(bytes, StandardCharsets.UTF_8);
+      count = input.readLong();
+      return true;
+    }
+
+    private void close() {
+      readers.remove(this);
+      try {
+        input.close();
+      } catch (IOException e) {
+        // nothing is lost, the run was read completely or is abandoned
+      }
+    }
+  }
+
+  /**
+   * Merges the sorted chunks of an attribute while it is iterated.
+   */
+  private final class ChunkIterator implements Iterator<Map.Entry<String, Long>> {
+
+    private final PriorityQueue<RunReader> queue = new PriorityQueue<>(BY_READER_COUNT);
+
+    private ChunkIterator(List<Path> chunks) {
+      try {
+        for (Path chunk : chunks) {
+          RunReader reader = new RunReader(chunk);
+          if (reader.next()) {
+            queue.add(reader);
+          }
+        }
+      } catch (IOException e) {
+        queue.forEach(RunReader::close);
+        throw new UncheckedIOException("Can not read the sorted counts", e);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<String, Long> next() {
+      RunReader reader = queue.poll();
+      if (reader == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, Long> entry = Map.entry(reader.key, reader.count);
+      try {
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      } catch (IOException e) {
+        queue.forEach(RunReader::close);
+        throw new UncheckedIOException("Can not read the sorted counts", e);
+      }
+      return entry;
+    }
+  }
+}
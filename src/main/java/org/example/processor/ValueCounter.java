@@ -0,0 +1,17 @@
+package org.example.processor;
+
+/**
+ * The ValueCounter interface is implemented by the structures the processors count attribute
+ * values in, so the same parsing code can count exactly or approximately.
+ */
+public interface ValueCounter {
+
+  /**
+   * Counts one occurrence of the value stored in the given part of a character array.
+   *
+   * @param chars  The array containing the value.
+   * @param offset The index of the first character of the value.
+   * @param length The number of characters of the value.
+   */
+  void increment(char[] chars, int offset, int length);
+}
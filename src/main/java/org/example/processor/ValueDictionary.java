@@ -0,0 +1,98 @@
+package org.example.processor;
+
+import static org.example.processor.Hashing.hash;
+import static org.example.processor.Hashing.mix;
+import static org.example.processor.Hashing.regionEquals;
+
+import java.util.Arrays;
+
+/**
+ * The ValueDictionary class maps the values of an attribute to consecutive ids, starting at 0 in
+ * the order the values are seen. Values passed as character slices are only turned into a String
+ * when they are seen for the first time.
+ * The dictionary is not thread-safe.
+ */
+public final class ValueDictionary {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private String[] values = new String[INITIAL_CAPACITY];
+  private int[] valueHashes = new int[INITIAL_CAPACITY];
+  private int[] slots = new int[INITIAL_CAPACITY * 2];
+  private int size;
+
+  /**
+   * Returns the id of a value given as a character slice, adding the value if it is new.
+   */
+  public int idOf(char[] chars, int offset, int length) {
+    int hash = hash(chars, offset, length);
+    int slotMask = slots.length - 1;
+    for (int slot = hash & slotMask; slots[slot] != 0; slot = (slot + 1) & slotMask) {
+      int id = slots[slot] - 1;
+      if (valueHashes[id] == hash && regionEquals(values[id], chars, offset, length)) {
+        return id;
+      }
+    }
+    return insert(new String(chars, offset, length), hash);
+  }
+
+  /**
+   * Returns the id of a value, adding the value if it is new.
+   */
+  public int idOf(String value) {
+    int id = find(value);
+    return id >= 0 ? id : insert(value, mix(value.hashCode()));
+  }
+
+  /**
+   * Returns the id of a value.
+   *
+   * @return the id, or -1 if the value is not in the dictionary
+   */
+  public int find(String value) {
+    int hash = mix(value.hashCode());
+    int slotMask = slots.length - 1;
+    for (int slot = hash & slotMask; slots[slot] != 0; slot = (slot + 1) & slotMask) {
+      int id = slots[slot] - 1;
+      if (valueHashes[id] == hash && values[id].equals(value)) {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the value with the given id.
+   */
+  public String get(int id) {
+    return values[id];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private int insert(String value, int hash) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+      valueHashes = Arrays.copyOf(valueHashes, size * 2);
+      slots = new int[size * 4];
+      for (int id = 0; id < size; id++) {
+        place(id);
+      }
+    }
+    values[size] = value;
+    valueHashes[size] = hash;
+    place(size);
+    return size++;
+  }
+
+  private void place(int id) {
+    int slotMask = slots.length - 1;
+    int slot = valueHashes[id] & slotMask;
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & slotMask;
+    }
+    slots[slot] = id + 1;
+  }
+}
@@ -0,0 +1,23 @@
+package org.example.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The PhaseEvent is recorded by JFR for every phase of a run, such as the discovery of the files
+ * or writing the statistics.
+ */
+@Name("org.example.Phase")
+@Label("Phase")
+@Category("JSON Statistics")
+@Description("A phase of a statistics run")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+  @Label("Phase")
+  public String phase;
+}
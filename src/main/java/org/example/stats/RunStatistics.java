@@ -0,0 +1,341 @@
+package org.example.stats;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.example.processor.FileResult;
+import org.example.processor.PrefetchPipeline;
+import org.example.processor.ProcessingTask;
+
+/**
+ * The RunStatistics class collects where the time of a run goes and writes it as a JSON report:
+ * the wall time of every phase, the throughput of every file, and the utilization and allocations
+ * of every worker thread. Files are listed slowest first, so stragglers are on top.
+ * Phases are also recorded as {@link PhaseEvent}s for flight recordings.
+ */
+public class RunStatistics {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final double NANOS_PER_MILLI = 1e6;
+  private static final double NANOS_PER_SECOND = 1e9;
+  private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  private final int threads;
+  private final long started = System.nanoTime();
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+  private final Map<File, FileStatistics> files = new LinkedHashMap<>();
+  private final List<ProcessingTask.WorkerStatistics> workers = new ArrayList<>();
+  private long processingNanos;
+  private int cachedFiles;
+  private long parserWaitNanos = -1;
+  private long readerWaitNanos = -1;
+  private int spilledRuns = -1;
+  private long spilledBytes;
+
+  /**
+   * Constructs the statistics of a run.
+   *
+   * @param threads The number of threads processing the files.
+   */
+  public RunStatistics(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * Starts timing a phase. The time is added to the phase when the returned phase is closed, so a
+   * phase that runs several times is reported with its total time.
+   *
+   * @param name The name of the phase.
+   * @return the running phase
+   */
+  public Phase phase(String name) {
+    return new Phase(name);
+  }
+
+  /**
+   * Runs an action as a phase, see {@link #phase(String)}.
+   *
+   * @param name   The name of the phase.
+   * @param action The action.
+   * @throws E If the action fails, after the time is added to the phase.
+   */
+  public <E extends Exception> void time(String name, PhaseAction<E> action) throws E {
+    Phase phase = phase(name);
+    try {
+      action.run();
+    } finally {
+      phase.close();
+    }
+  }
+
+  /**
+   * Computes a value as a phase, see {@link #phase(String)}.
+   *
+   * @param name        The name of the phase.
+   * @param computation The computation.
+   * @return the computed value
+   * @throws E If the computation fails, after the time is added to the phase.
+   */
+  public <T, E extends Exception> T time(String name, PhaseComputation<T, E> computation)
+      throws E {
+    Phase phase = phase(name);
+    try {
+      return computation.compute();
+    } finally {
+      phase.close();
+    }
+  }
+
+  /**
+   * Adds time to a phase that was measured by the caller.
+   *
+   * @param name  The name of the phase.
+   * @param nanos The time in nanoseconds.
+   */
+  public void addPhase(String name, long nanos) {
+    phases.merge(name, nanos, Long::sum);
+  }
+
+  /**
+   * Adds the results, timings and worker statistics of a completed task.
+   *
+   * @param task      The completed task.
+   * @param wallNanos The time the task ran.
+   */
+  public void addTask(ProcessingTask task, long wallNanos) {
+    List<FileResult> results = task.getResults();
+    List<ProcessingTask.RangeTiming> timings = task.getTimings();
+    for (int i = 0; i < results.size(); i++) {
+      FileResult result = results.get(i);
+      ProcessingTask.RangeTiming timing = timings.get(i);
+      FileStatistics statistics = files.computeIfAbsent(result.file(), FileStatistics::new);
+      statistics.ranges++;
+      statistics.bytes += result.range().length();
+      statistics.records += result.records();
+      statistics.parseNanos += timing.durationNanos();
+      statistics.queuedNanos = Math.min(statistics.queuedNanos, timing.queuedNanos());
+      if (!result.isSuccessful()) {
+        statistics.error = String.valueOf(result.error().getMessage());
+      }
+    }
+    workers.addAll(task.getWorkers());
+    processingNanos += wallNanos;
+  }
+
+  /**
+   * Adds a file that failed before it could be processed, for example while it was split.
+   *
+   * @param result The failed result.
+   */
+  public void addFailure(FileResult result) {
+    files.computeIfAbsent(result.file(), FileStatistics::new).error =
+        String.valueOf(result.error().getMessage());
+  }
+
+  /**
+   * Adds the time the parsers and readers of a prefetch pipeline waited for each other.
+   *
+   * @param pipeline The closed pipeline.
+   */
+  public void addPipeline(PrefetchPipeline pipeline) {
+    parserWaitNanos = Math.max(0, parserWaitNanos) + pipeline.getParserWaitNanos();
+    readerWaitNanos = Math.max(0, readerWaitNanos) + pipeline.getReaderWaitNanos();
+  }
+
+  /**
+   * Adds the runs that were written while counting with a bounded memory.
+   *
+   * @param runs  The number of run files.
+   * @param bytes The number of bytes written to run files.
+   */
+  public void addSpill(int runs, long bytes) {
+    spilledRuns = Math.max(0, spilledRuns) + runs;
+    spilledBytes += bytes;
+  }
+
+  public void addCachedFiles(int count) {
+    cachedFiles += count;
+  }
+
+  /**
+   * Writes the report to a file.
+   *
+   * @param path The file to be written.
+   * @throws IOException If the file can not be written.
+   */
+  public void write(Path path) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      write(writer);
+    }
+  }
+
+  /**
+   * Writes the report as a JSON object.
+   *
+   * @param writer The writer receiving the report, which is not closed.
+   * @throws IOException If the report can not be written.
+   */
+  public void write(Writer writer) throws IOException {
+    try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+      json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      json.useDefaultPrettyPrinter();
+      json.writeStartObject();
+      json.writeNumberField("threads", threads);
+      json.writeNumberField("wallMillis", millis(System.nanoTime() - started));
+      json.writeObjectFieldStart("phaseMillis");
+      for (Map.Entry<String, Long> phase : phases.entrySet()) {
+        json.writeNumberField(phase.getKey(), millis(phase.getValue()));
+      }
+      json.writeEndObject();
+      writeFiles(json);
+      writeWorkers(json);
+      if (parserWaitNanos >= 0) {
+        json.writeObjectFieldStart("queueWaitMillis");
+        json.writeNumberField("parsers", millis(parserWaitNanos));
+        json.writeNumberField("readers", millis(readerWaitNanos));
+        json.writeEndObject();
+      }
+      if (spilledRuns >= 0) {
+        json.writeObjectFieldStart("spill");
+        json.writeNumberField("runs", spilledRuns);
+        json.writeNumberField("megabytes", round(spilledBytes / BYTES_PER_MEGABYTE));
+        json.writeEndObject();
+      }
+      json.writeEndObject();
+    }
+    writer.write(System.lineSeparator());
+    writer.flush();
+  }
+
+  private void writeFiles(JsonGenerator json) throws IOException {
+    json.writeNumberField("processedFiles", files.size());
+    json.writeNumberField("cachedFiles", cachedFiles);
+    json.writeArrayFieldStart("files");
+    List<FileStatistics> slowestFirst = new ArrayList<>(files.values());
+    slowestFirst.sort(Comparator.comparingLong((FileStatistics file) -> file.parseNanos)
+        .reversed());
+    for (FileStatistics file : slowestFirst) {
+      json.writeStartObject();
+      json.writeStringField("path", file.file.getPath());
+      json.writeNumberField("bytes", file.bytes);
+      json.writeNumberField("ranges", file.ranges);
+      json.writeNumberField("records", file.records);
+      json.writeNumberField("parseMillis", millis(file.parseNanos));
+      if (file.ranges > 0) {
+        json.writeNumberField("queuedMillis", millis(file.queuedNanos));
+      }
+      if (file.parseNanos > 0) {
+        double seconds = file.parseNanos / NANOS_PER_SECOND;
+        json.writeNumberField("recordsPerSecond", Math.round(file.records / seconds));
+        json.writeNumberField("megabytesPerSecond",
+            round(file.bytes / BYTES_PER_MEGABYTE / seconds));
+      }
+      if (file.error != null) {
+        json.writeStringField("error", file.error);
+      }
+      json.writeEndObject();
+    }
+    json.writeEndArray();
+  }
+
+  /**
+   * Writes every worker with the share of the processing time it was busy. A low utilization of
+   * some workers means that they ran out of ranges while others were still busy.
+   */
+  private void writeWorkers(JsonGenerator json) throws IOException {
+    long busyNanos = 0;
+    json.writeArrayFieldStart("workers");
+    for (ProcessingTask.WorkerStatistics worker : workers) {
+      json.writeStartObject();
+      json.writeNumberField("ranges", worker.ranges());
+      json.writeNumberField("busyMillis", millis(worker.busyNanos()));
+      json.writeNumberField("utilization", utilization(worker.busyNanos(), processingNanos));
+      if (worker.allocatedBytes() >= 0) {
+        json.writeNumberField("allocatedBytes", worker.allocatedBytes());
+      }
+      json.writeEndObject();
+      busyNanos += worker.busyNanos();
+    }
+    json.writeEndArray();
+    json.writeNumberField("utilization", utilization(busyNanos, processingNanos * threads));
+  }
+
+  private static double utilization(long busyNanos, long availableNanos) {
+    return availableNanos > 0 ? round((double) busyNanos / availableNanos) : 0;
+  }
+
+  private static double millis(long nanos) {
+    return round(nanos / NANOS_PER_MILLI);
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 1000) / 1000.0;
+  }
+
+  /**
+   * A running phase, which is timed until it is closed.
+   */
+  public final class Phase implements AutoCloseable {
+
+    private final String name;
+    private final PhaseEvent event = new PhaseEvent();
+    private final long start;
+
+    private Phase(String name) {
+      this.name = name;
+      event.begin();
+      start = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+      addPhase(name, System.nanoTime() - start);
+      event.end();
+      if (event.shouldCommit()) {
+        event.phase = name;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * The work of a phase.
+   */
+  @FunctionalInterface
+  public interface PhaseAction<E extends Exception> {
+    void run() throws E;
+  }
+
+  /**
+   * The work of a phase that computes a value.
+   */
+  @FunctionalInterface
+  public interface PhaseComputation<T, E extends Exception> {
+    T compute() throws E;
+  }
+
+  private static final class FileStatistics {
+
+    private final File file;
+    private long bytes;
+    private int ranges;
+    private long records;
+    private long parseNanos;
+    private long queuedNanos = Long.MAX_VALUE;
+    private String error;
+
+    private FileStatistics(File file) {
+      this.file = file;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.example.constants.Constants;
+import org.example.processor.AttributeSketch;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.HyperLogLog;
+import org.example.processor.SpaceSaving;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttributeSketchTest {
+
+  @Test
+  public void testSpaceSavingBoundsTrueCounts() {
+    CountTable exact = new CountTable();
+    SpaceSaving sketch = new SpaceSaving(100);
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      String value = "value" + skewed(random, 10_000);
+      exact.increment(value);
+      sketch.increment(value);
+    }
+
+    assertBounds(exact, sketch, 100_000);
+    assertEquals(exact.top(3).stream().map(Map.Entry::getKey).toList(),
+        sketch.top(3).stream().map(SpaceSaving.Estimate::value).toList());
+  }
+
+  @Test
+  public void testMergedSpaceSavingBoundsTrueCounts() {
+    CountTable exact = new CountTable();
+    SpaceSaving merged = new SpaceSaving(100);
+    Random random = new Random(7);
+    for (int part = 0; part < 8; part++) {
+      SpaceSaving sketch = new SpaceSaving(100);
+      for (int i = 0; i < 20_000; i++) {
+        String value = "value" + (skewed(random, 5_000) + part * 3);
+        exact.increment(value);
+        sketch.increment(value);
+      }
+      merged.mergeFrom(sketch);
+    }
+
+    assertBounds(exact, merged, 160_000);
+  }
+
+  @Test
+  public void testExactWhileCapacitySuffices() {
+    SpaceSaving sketch = new SpaceSaving(10);
+    SpaceSaving other = new SpaceSaving(10);
+    sketch.increment("Queen");
+    sketch.increment("Queen");
+    other.increment("Queen");
+    other.increment("Abba");
+
+    sketch.mergeFrom(other);
+
+    assertEquals(List.of(new SpaceSaving.Estimate("Queen", 3, 0),
+        new SpaceSaving.Estimate("Abba", 1, 0)), sketch.top(10));
+    assertEquals(0, sketch.unmonitoredBound());
+  }
+
+  @Test
+  public void testHyperLogLogEstimatesDistinctValues() {
+    AttributeSketch first = new AttributeSketch(10);
+    AttributeSketch second = new AttributeSketch(10);
+    for (int i = 0; i < 200_000; i++) {
+      first.increment("value" + i);
+      second.increment("value" + (i + 100_000));
+    }
+
+    first.mergeFrom(second);
+
+    assertEquals(400_000, first.getTotal());
+    assertEquals(300_000, first.getDistinct(), 300_000 * 4 * first.getDistinctError());
+  }
+
+  @Test
+  public void testHyperLogLogIsAlmostExactForFewValues() {
+    HyperLogLog sketch = new HyperLogLog(14);
+    Random random = new Random(1);
+    for (int i = 0; i < 100; i++) {
+      sketch.add(random.nextLong());
+    }
+
+    assertEquals(100, sketch.estimate(), 1);
+  }
+
+  @Test
+  public void testApproximateProcessingMatchesExactForSmallCardinality() throws IOException {
+    File file = new File("src/test/resources/testData/splitDataFile.json");
+    JsonFactory factory = new JsonFactory();
+    FileRange range = new FileRange(0, file.length());
+    Map<String, CountTable> exact = FileProcessor.builder(file, factory)
+        .attributes(Constants.ATTRIBUTES).range(range).build().process();
+
+    Map<String, AttributeSketch> sketches = FileProcessor.builder(file, factory)
+        .attributes(Constants.ATTRIBUTES).range(range).sketchCapacity(1_000).build()
+        .processApproximately();
+
+    for (String attribute : Constants.ATTRIBUTES) {
+      AttributeSketch sketch = sketches.get(attribute);
+      CountTable estimated = new CountTable();
+      sketch.top(Integer.MAX_VALUE).forEach(estimate -> {
+        assertEquals(0, estimate.error());
+        estimated.add(estimate.value(), estimate.count());
+      });
+      assertEquals(exact.get(attribute), estimated);
+      assertEquals(exact.get(attribute).size(), sketch.getDistinct());
+    }
+  }
+
+  private static void assertBounds(CountTable exact, SpaceSaving sketch, long total) {
+    for (SpaceSaving.Estimate estimate : sketch.top(Integer.MAX_VALUE)) {
+      long trueCount = exact.get(estimate.value());
+      assertTrue(estimate.count() >= trueCount, estimate.toString());
+      assertTrue(estimate.count() - estimate.error() <= trueCount, estimate.toString());
+    }
+    assertTrue(sketch.unmonitoredBound() <= total / 100);
+    exact.forEach((value, count) -> {
+      if (sketch.top(Integer.MAX_VALUE).stream().noneMatch(e -> e.value().equals(value))) {
+        assertTrue(count <= sketch.unmonitoredBound(), value);
+      }
+    });
+  }
+
+  private static int skewed(Random random, int cardinality) {
+    return (int) (cardinality * Math.pow(random.nextDouble(), 4));
+  }
+}
@@ -0,0 +1,112 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import org.example.constants.Constants;
+import org.example.processor.ByteFileProcessor;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.FileSplitter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteFileProcessorTest {
+
+  private static final ExecutorService service = Executors.newFixedThreadPool(2);
+
+  private final JsonFactory factory = new JsonFactory();
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideFilesAndAttributes")
+  public void testCountsMatchJacksonEngine(String path, String attribute) throws IOException {
+    File file = new File(path);
+    Map<String, CountTable> expected = FileProcessor.builder(file, factory)
+        .attributes(List.of(attribute)).build().process();
+
+    Map<String, CountTable> actual = new ByteFileProcessor(List.of(attribute), file,
+        new FileRange(0, file.length())).process();
+
+    assertEquals(expected, actual);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 5, 13})
+  public void testSplitRangesMatchWholeFile(int parts) throws IOException {
+    File file = new File("src/test/resources/testData/splitDataFile.json");
+    Map<String, CountTable> expected = new ByteFileProcessor(Constants.ATTRIBUTES, file,
+        new FileRange(0, file.length())).process();
+
+    Map<String, CountTable> actual = createResultMaps();
+    for (FileRange range : new FileSplitter(service).split(file, parts)) {
+      new ByteFileProcessor(Constants.ATTRIBUTES, file, range).process()
+          .forEach((attribute, table) -> actual.get(attribute).mergeFrom(table));
+    }
+
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testEmptyDataFile() throws IOException {
+    File file = new File("src/test/resources/testData/emptyDataFile.json");
+    Map<String, CountTable> resultMaps = new ByteFileProcessor(Constants.ATTRIBUTES, file,
+        new FileRange(0, file.length())).process();
+
+    resultMaps.values().forEach(resultMap -> assertTrue(resultMap.isEmpty()));
+  }
+
+  @Test
+  public void testInvalidDataFile() {
+    File file = new File("src/test/resources/testData/invalidDataFile.json");
+    var processor = new ByteFileProcessor(Constants.ATTRIBUTES, file,
+        new FileRange(0, file.length()));
+
+    assertThrows(IOException.class, processor::process);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"Qu\\u00", "Qu\\u00zzen", "Qu\\xen", "Queen\\"})
+  public void testInvalidEscapesAreReported(String artist, @TempDir Path directory)
+      throws IOException {
+    Path file = directory.resolve("invalid.json");
+    Files.writeString(file, "[{\"artist\": \"" + artist + "\"}]");
+    var processor = new ByteFileProcessor(List.of("artist"), file.toFile(),
+        new FileRange(0, Files.size(file)));
+
+    assertThrows(IOException.class, processor::process);
+  }
+
+  private static Map<String, CountTable> createResultMaps() {
+    Map<String, CountTable> resultMaps = new LinkedHashMap<>();
+    for (String attribute : Constants.ATTRIBUTES) {
+      resultMaps.put(attribute, new CountTable());
+    }
+    return resultMaps;
+  }
+
+  private static Stream<Arguments> provideFilesAndAttributes() {
+    return Stream.of("validDataFile.json", "splitDataFile.json", "nestedDataFile.json",
+            "escapedDataFile.json")
+        .flatMap(name -> Constants.ATTRIBUTES.stream()
+            .map(attribute -> Arguments.of("src/test/resources/testData/" + name, attribute)));
+  }
+}
@@ -0,0 +1,211 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.example.constants.Constants;
+import org.example.processor.CountTable;
+import org.example.processor.Decompressor;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileResult;
+import org.example.processor.ParallelGzipInputStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedInputTest {
+
+  private static final ExecutorService service = Executors.newFixedThreadPool(3);
+
+  private static byte[] data;
+  private static Map<String, CountTable> expected;
+
+  private final JsonFactory factory = new JsonFactory();
+
+  @TempDir
+  Path directory;
+
+  @BeforeAll
+  public static void readData() throws IOException {
+    File file = new File("src/test/resources/testData/splitDataFile.json");
+    data = Files.readAllBytes(file.toPath());
+    expected = FileProcessor.builder(file, new JsonFactory()).attributes(Constants.ATTRIBUTES)
+        .build().process();
+  }
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @ParameterizedTest
+  @CsvSource({"3000, 1, 1048576", "97, 1, 1048576", "250, 4, 1048576", "1000, 3, 1048576",
+      "97, 2, 50"})
+  @Timeout(10)
+  public void testMultiMemberGzipMatchesUncompressed(int memberSize, int lookahead,
+                                                     int maxMemberSize) throws IOException {
+    Path file = directory.resolve("data.json.gz");
+    Files.write(file, gzipMembers(memberSize));
+
+    assertArrayEquals(data, readParallel(file, lookahead, maxMemberSize));
+  }
+
+  @Test
+  @Timeout(10)
+  public void testLargeMemberFallsBackToSequentialDecompression() throws IOException {
+    ByteArrayOutputStream members = new ByteArrayOutputStream();
+    int[] cuts = {0, 100, 200, 300, 2500, data.length};
+    for (int i = 1; i < cuts.length; i++) {
+      members.write(gzip(cuts[i - 1], cuts[i]));
+    }
+    Path file = directory.resolve("data.json.gz");
+    Files.write(file, members.toByteArray());
+
+    assertArrayEquals(data, readParallel(file, 2, 500));
+  }
+
+  /**
+   * The first member exceeds the member limit but decompresses quickly, so it is handed to the
+   * reading thread while the incompressible members behind it are still being read ahead.
+   */
+  @Test
+  @Timeout(60)
+  public void testMembersAboveTheLimitLeaveTheFileReadable() throws IOException {
+    Random random = new Random(42);
+    byte[] member = new byte[ParallelGzipInputStream.DEFAULT_MAX_MEMBER_SIZE + 1024 * 1024];
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    ByteArrayOutputStream members = new ByteArrayOutputStream();
+    for (int i = 0; i < 4; i++) {
+      if (i == 0) {
+        Arrays.fill(member, (byte) 'a');
+      } else {
+        random.nextBytes(member);
+      }
+      content.write(member);
+      try (OutputStream output = new GZIPOutputStream(members)) {
+        output.write(member);
+      }
+    }
+    Path file = directory.resolve("large.json.gz");
+    Files.write(file, members.toByteArray());
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      for (int run = 0; run < 15; run++) {
+        try (InputStream input = new ParallelGzipInputStream(file.toFile(), pool, 8,
+            ParallelGzipInputStream.DEFAULT_MAX_MEMBER_SIZE)) {
+          assertArrayEquals(content.toByteArray(), input.readAllBytes());
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testGzipCountsMatchUncompressed() throws IOException {
+    Path file = directory.resolve("data.json.gz");
+    Files.write(file, gzipMembers(128));
+
+    assertEquals(expected, process(file, null));
+    try (Decompressor decompressor = new Decompressor(2)) {
+      assertEquals(expected, process(file, decompressor));
+    }
+  }
+
+  @Test
+  public void testZipEntriesAreCounted() throws IOException {
+    Path file = directory.resolve("data.zip");
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+      for (String name : new String[] {"first.json", "notes.txt", "nested/second.json"}) {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+      }
+    }
+
+    Map<String, CountTable> actual;
+    try (Decompressor decompressor = new Decompressor(2)) {
+      actual = process(file, decompressor);
+    }
+
+    for (String attribute : Constants.ATTRIBUTES) {
+      CountTable doubled = new CountTable();
+      doubled.mergeFrom(expected.get(attribute));
+      doubled.mergeFrom(expected.get(attribute));
+      assertEquals(doubled, actual.get(attribute));
+    }
+  }
+
+  @Test
+  @Timeout(10)
+  public void testCorruptGzipFails() throws IOException {
+    byte[] members = gzipMembers(200);
+    members[members.length / 2] ^= 0x55;
+    members[members.length / 2 + 1] ^= 0x55;
+    Path corrupt = directory.resolve("corrupt.json.gz");
+    Files.write(corrupt, members);
+    Path plain = directory.resolve("plain.json.gz");
+    Files.write(plain, data);
+
+    assertThrows(IOException.class, () -> readParallel(corrupt, 2, 1048576));
+    try (Decompressor decompressor = new Decompressor(2)) {
+      for (Path file : new Path[] {corrupt, plain}) {
+        FileResult result = FileProcessor.builder(file.toFile(), factory)
+            .attributes(Constants.ATTRIBUTES).input(decompressor).build().call();
+        assertFalse(result.isSuccessful());
+      }
+    }
+  }
+
+  private Map<String, CountTable> process(Path file, Decompressor decompressor)
+      throws IOException {
+    return FileProcessor.builder(file.toFile(), factory).attributes(Constants.ATTRIBUTES)
+        .input(decompressor).build().process();
+  }
+
+  private static byte[] readParallel(Path file, int lookahead, int maxMemberSize)
+      throws IOException {
+    try (InputStream input = new ParallelGzipInputStream(file.toFile(), service, lookahead,
+        maxMemberSize)) {
+      return input.readAllBytes();
+    }
+  }
+
+  /**
+   * Compresses the test data as consecutive gzip members that are cut at arbitrary bytes, not at
+   * record boundaries.
+   */
+  private static byte[] gzipMembers(int memberSize) throws IOException {
+    ByteArrayOutputStream members = new ByteArrayOutputStream();
+    for (int start = 0; start < data.length; start += memberSize) {
+      members.write(gzip(start, Math.min(data.length, start + memberSize)));
+    }
+    return members.toByteArray();
+  }
+
+  private static byte[] gzip(int start, int end) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream output = new GZIPOutputStream(bytes)) {
+      output.write(data, start, end - start);
+    }
+    return bytes.toByteArray();
+  }
+}
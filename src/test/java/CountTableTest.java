@@ -0,0 +1,87 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.example.processor.CountTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountTableTest {
+
+  @Test
+  public void testSlicesAndStringsShareKeys() {
+    CountTable table = new CountTable();
+    char[] chars = "Rock, Pop".toCharArray();
+
+    table.increment(chars, 0, 4);
+    table.increment("Rock");
+    table.increment(chars, 6, 3);
+
+    assertEquals(2, table.size());
+    assertEquals(2, table.get("Rock"));
+    assertEquals(1, table.get("Pop"));
+    assertEquals(0, table.get("Jazz"));
+  }
+
+  @Test
+  public void testResizeKeepsCounts() {
+    CountTable table = new CountTable();
+    for (int i = 0; i < 10_000; i++) {
+      table.increment("value" + i % 1_000);
+    }
+
+    assertEquals(1_000, table.size());
+    for (Map.Entry<String, Long> entry : table.entries()) {
+      assertEquals(10, entry.getValue());
+    }
+  }
+
+  @Test
+  public void testMergeDoesNotOverflowIntegerCounts() {
+    CountTable first = new CountTable();
+    CountTable second = new CountTable();
+    first.add("Queen", Integer.MAX_VALUE);
+    second.add("Queen", Integer.MAX_VALUE);
+    second.increment("Eagles");
+
+    first.mergeFrom(second);
+
+    assertEquals(2L * Integer.MAX_VALUE, first.get("Queen"));
+    assertEquals(1, first.get("Eagles"));
+  }
+
+  @Test
+  public void testBinaryRoundTrip() throws IOException {
+    CountTable table = new CountTable();
+    table.add("Queen", 3L * Integer.MAX_VALUE);
+    table.increment("Mötley Crüe");
+    table.increment("");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    table.writeTo(new DataOutputStream(bytes));
+    CountTable read = CountTable.readFrom(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(table, read);
+  }
+
+  @Test
+  public void testTopKeepsLargestCounts() {
+    CountTable table = new CountTable();
+    for (int i = 0; i < 1_000; i++) {
+      table.add("value" + i, i % 100);
+    }
+    table.add("Queen", 500);
+
+    List<Map.Entry<String, Long>> top = table.top(4);
+
+    assertEquals(List.of(Map.entry("Queen", 500L), Map.entry("value199", 99L),
+        Map.entry("value299", 99L), Map.entry("value399", 99L)), top);
+    assertEquals(1_001, table.top(Integer.MAX_VALUE).size());
+    assertEquals(table.top(Integer.MAX_VALUE).subList(0, 4), top);
+  }
+}
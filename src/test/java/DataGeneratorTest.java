@@ -0,0 +1,114 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.example.constants.Constants;
+import org.example.generator.DataGenerator;
+import org.example.processor.ByteFileProcessor;
+import org.example.processor.CountTable;
+import org.example.processor.FileRange;
+import org.example.processor.FileResult;
+import org.example.processor.InputFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataGeneratorTest {
+
+  private static final long SEED = 7;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testSameSeedGeneratesSameFiles() throws IOException {
+    List<File> single = generator(directory.resolve("single"), 1).generate();
+    List<File> parallel = generator(directory.resolve("parallel"), 4).generate();
+
+    assertEquals(3, single.size());
+    for (int i = 0; i < single.size(); i++) {
+      assertArrayEquals(Files.readAllBytes(single.get(i).toPath()),
+          Files.readAllBytes(parallel.get(i).toPath()));
+    }
+  }
+
+  @Test
+  public void testFormatsContainTheSameRecords() throws IOException {
+    DataGenerator arrays = generator(directory.resolve("array"), 2);
+    DataGenerator lines = generator(directory.resolve("lines"), 2);
+    lines.setFormat(InputFormat.NDJSON);
+    List<File> arrayFiles = arrays.generate();
+    List<File> lineFiles = lines.generate();
+
+    long records = 0;
+    for (int i = 0; i < arrayFiles.size(); i++) {
+      FileResult array = count(arrayFiles.get(i));
+      FileResult line = count(lineFiles.get(i));
+      assertTrue(lineFiles.get(i).getName().endsWith(".ndjson"));
+      assertEquals(array.tables(), line.tables());
+      assertEquals(array.records(), line.records());
+      records += array.records();
+    }
+    assertEquals(1000, records);
+  }
+
+  @Test
+  public void testFilesGrowToTargetSize() throws IOException {
+    DataGenerator generator = generator(directory, 2);
+    generator.setFileSize(1);
+    List<File> files = generator.generate();
+
+    assertEquals(3, files.size());
+    for (File file : files) {
+      assertTrue(file.length() >= 1 << 20, file + " is too small");
+      assertTrue(file.length() < (1 << 20) + (1 << 16), file + " is too large");
+      assertTrue(count(file).isSuccessful());
+    }
+  }
+
+  @Test
+  public void testSkewAndCardinality() throws IOException {
+    DataGenerator uniform = generator(directory.resolve("uniform"), 1);
+    uniform.setSkew(0);
+    DataGenerator skewed = generator(directory.resolve("skewed"), 1);
+    skewed.setSkew(1.5);
+
+    CountTable uniformArtists = countArtists(uniform.generate());
+    CountTable skewedArtists = countArtists(skewed.generate());
+
+    assertEquals(50, uniformArtists.size());
+    assertTrue(skewedArtists.size() <= 50);
+    long uniformTop = uniformArtists.top(1).get(0).getValue();
+    assertEquals("Queen", skewedArtists.top(1).get(0).getKey());
+    assertTrue(skewedArtists.get("Queen") > 3 * uniformTop);
+  }
+
+  private static DataGenerator generator(Path directory, int threads) {
+    DataGenerator generator = new DataGenerator(SEED);
+    generator.setDirectory(directory);
+    generator.setNumberOfFiles(3);
+    generator.setNumberOfRecords(1000);
+    generator.setArtists(50);
+    generator.setThreadNumber(threads);
+    return generator;
+  }
+
+  private static CountTable countArtists(List<File> files) throws IOException {
+    CountTable artists = new CountTable();
+    for (File file : files) {
+      Map<String, CountTable> tables = count(file).tables();
+      artists.mergeFrom(tables.get("artist"));
+    }
+    return artists;
+  }
+
+  private static FileResult count(File file) {
+    FileResult result = new ByteFileProcessor(Constants.ATTRIBUTES, file,
+        new FileRange(0, file.length()), InputFormat.AUTO).call();
+    assertTrue(result.isSuccessful(), () -> String.valueOf(result.error()));
+    return result;
+  }
+}
@@ -0,0 +1,81 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.example.input.FileDiscovery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDiscoveryTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @TempDir
+  Path directory;
+
+  @BeforeEach
+  public void createFiles() throws IOException {
+    for (String path : List.of("top.json", "notes.txt", "2023/a.json", "2023/b.JSON",
+        "2024/c.json", "2024/archive/d.json", "2024/archive/e.json.bak")) {
+      Path file = directory.resolve(path);
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, "[]");
+    }
+  }
+
+  @Test
+  public void testTopLevelOnly() {
+    assertEquals(Set.of("top.json"), discover(false, List.of(), List.of()));
+  }
+
+  @Test
+  public void testRecursive() {
+    assertEquals(Set.of("top.json", "2023/a.json", "2023/b.JSON", "2024/c.json",
+        "2024/archive/d.json"), discover(true, List.of(), List.of()));
+  }
+
+  @Test
+  public void testIncludeAndExclude() {
+    assertEquals(Set.of("2024/c.json"), discover(true, List.of("2024/**"), List.of("**/archive")));
+    assertEquals(Set.of("top.json", "2023/a.json", "2023/b.JSON"),
+        discover(true, List.of(), List.of("2024")));
+  }
+
+  @Test
+  public void testCompressedAndLineFiles() throws IOException {
+    for (String path : List.of("data.json.gz", "data.zip", "data.gz", "data.tar.gz",
+        "lines.jsonl", "lines.NDJSON", "lines.ndjson.gz", "lines.txt")) {
+      Files.writeString(directory.resolve(path), "");
+    }
+
+    assertEquals(Set.of("top.json", "data.json.gz", "data.zip", "lines.jsonl", "lines.NDJSON",
+        "lines.ndjson.gz"),
+        discover(false, List.of(), List.of()));
+  }
+
+  @Test
+  public void testAcceptsMatchesDiscovery() {
+    FileDiscovery discovery = new FileDiscovery(pool, true, List.of("2024/**"), List.of("**/archive"));
+
+    assertTrue(discovery.accepts(directory, directory.resolve("2024/c.json")));
+    assertFalse(discovery.accepts(directory, directory.resolve("2024/archive/d.json")));
+    assertFalse(discovery.accepts(directory, directory.resolve("2023/a.json")));
+    assertFalse(discovery.accepts(directory, directory.resolve("2024/notes.txt")));
+    assertFalse(new FileDiscovery(pool, false, List.of(), List.of())
+        .accepts(directory, directory.resolve("2023/a.json")));
+  }
+
+  private Set<String> discover(boolean recursive, List<String> includes, List<String> excludes) {
+    List<File> files = new FileDiscovery(pool, recursive, includes, excludes).discover(directory);
+    return files.stream()
+        .map(file -> directory.relativize(file.toPath()).toString().replace(File.separatorChar, '/'))
+        .collect(Collectors.toSet());
+  }
+}
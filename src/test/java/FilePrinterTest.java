@@ -0,0 +1,46 @@
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.example.output.FilePrinter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilePrinterTest {
+
+  private static final String DECLARATION =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testEntriesAreWrittenInOrder() throws Exception {
+    List<Map.Entry<String, Long>> entries = List.of(Map.entry("Rock", 3L),
+        Map.entry("Rhythm & <Blues>", 2L), Map.entry("Mötley Crüe", 1L));
+
+    new FilePrinter(entries, directory.toString(), "genre").print();
+
+    assertEquals(DECLARATION + "<statistics>"
+            + "<item><value>Rock</value><count>3</count></item>"
+            + "<item><value>Rhythm &amp; &lt;Blues></value><count>2</count></item>"
+            + "<item><value>Mötley Crüe</value><count>1</count></item>"
+            + "</statistics>",
+        Files.readString(directory.resolve("statistics_by_genre.xml")));
+    try (var files = Files.list(directory)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  public void testEmptyStatistics() throws Exception {
+    StringWriter writer = new StringWriter();
+
+    new FilePrinter(List.of(), directory.toString(), "genre").write(writer);
+
+    assertEquals(DECLARATION + "<statistics/>", writer.toString());
+  }
+}
@@ -1,11 +1,13 @@
 import com.fasterxml.jackson.core.JsonFactory;
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
+import org.example.constants.Constants;
+import org.example.processor.CountTable;
 import org.example.processor.FileProcessor;
-import org.junit.jupiter.api.AfterEach;
+import org.example.processor.FileResult;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -15,23 +17,15 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class FileProcessorTest {
 
-  private final ConcurrentHashMap<String, Integer> resultMap = new ConcurrentHashMap<>();
-
   private final JsonFactory factory = new JsonFactory();
-  private final CountDownLatch latch = new CountDownLatch(1);
-
-  @AfterEach
-  public void clearMap(){
-    resultMap.clear();
-  }
 
   @ParameterizedTest
   @MethodSource("provideAttributesForEmptyFile")
   public void testEmptyDataFiles(String attribute, int expectedSize) throws IOException {
     File file = new File("src/test/resources/testData/emptyDataFile.json");
-    var fileProcessor = new FileProcessor(resultMap, attribute, file, latch, factory);
+    var fileProcessor = FileProcessor.builder(file, factory).attributes(List.of(attribute)).build();
 
-    fileProcessor.process();
+    CountTable resultMap = fileProcessor.process().get(attribute);
 
     assertEquals(resultMap.size(), expectedSize);
     assertTrue(resultMap.isEmpty());
@@ -41,7 +35,7 @@ public class FileProcessorTest {
   public void testInvalidDataFile() throws IOException {
     File file = new File("src/test/resources/testData/invalidDataFile.json");
     var attribute = "artist";
-    var fileProcessor = new FileProcessor(resultMap, attribute, file, latch, factory);
+    var fileProcessor = FileProcessor.builder(file, factory).attributes(List.of(attribute)).build();
 
     assertThrows(IOException.class, fileProcessor::process);
   }
@@ -51,12 +45,40 @@ public class FileProcessorTest {
   public void testValidDataFile(String attribute, String fieldValue, int numberOfOccurrences) throws IOException{
     File file = new File("src/test/resources/testData/validDataFile.json");
 
-    var fileProcessor = new FileProcessor(resultMap, attribute, file, latch, factory);
-    fileProcessor.process();
+    var fileProcessor = FileProcessor.builder(file, factory).attributes(List.of(attribute)).build();
+    CountTable resultMap = fileProcessor.process().get(attribute);
 
     assertEquals(resultMap.get(fieldValue), numberOfOccurrences);
   }
 
+  @ParameterizedTest
+  @MethodSource("provideAttributesForValidFile")
+  public void testAllAttributesInSinglePass(String attribute, String fieldValue, int numberOfOccurrences) throws IOException {
+    File file = new File("src/test/resources/testData/validDataFile.json");
+    var fileProcessor = FileProcessor.builder(file, factory).attributes(Constants.ATTRIBUTES).build();
+    Map<String, CountTable> resultMaps = fileProcessor.process();
+
+    assertEquals(resultMaps.get(attribute).get(fieldValue), numberOfOccurrences);
+  }
+
+  @Test
+  public void testNestedValuesAreSkipped() throws IOException {
+    File file = new File("src/test/resources/testData/nestedDataFile.json");
+    var fileProcessor = FileProcessor.builder(file, factory).attributes(Constants.ATTRIBUTES).build();
+    FileResult result = fileProcessor.call();
+
+    assertTrue(result.isSuccessful());
+    assertEquals(4, result.records());
+    assertEquals(1, result.tables().get("artist").get("Queen"));
+    assertEquals(2, result.tables().get("artist").get("Nirvana"));
+    assertEquals(2, result.tables().get("artist").size());
+    assertEquals(2, result.tables().get("year_released").get("1991"));
+    assertEquals(0, result.tables().get("year_released").get("1900"));
+    assertEquals(2, result.tables().get("year_released").size());
+    assertEquals(2, result.tables().get("genre").get("Grunge"));
+    assertEquals(0, result.tables().get("genre").get("Not Counted"));
+    assertEquals(5, result.tables().get("genre").size());
+  }
 
   private static Stream<Arguments> provideAttributesForEmptyFile() {
     return Stream.of(
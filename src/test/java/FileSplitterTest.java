@@ -0,0 +1,71 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.FileSplitter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSplitterTest {
+
+  private static final File SPLIT_FILE = new File("src/test/resources/testData/splitDataFile.json");
+  private static final ExecutorService service = Executors.newFixedThreadPool(4);
+
+  private final JsonFactory factory = new JsonFactory();
+  private final FileSplitter splitter = new FileSplitter(service);
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 3, 7, 16, 64, 500})
+  public void testRangesCoverFileWithoutGaps(int parts) throws IOException {
+    List<FileRange> ranges = splitter.split(SPLIT_FILE, parts);
+
+    assertTrue(ranges.size() > 1);
+    assertEquals(0, ranges.get(0).start());
+    assertEquals(SPLIT_FILE.length(), ranges.get(ranges.size() - 1).end());
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(ranges.get(i - 1).end(), ranges.get(i).start());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"artist", "genre", "year_released"})
+  public void testSplitCountsMatchWholeFile(String attribute) throws IOException {
+    CountTable expected = FileProcessor.builder(SPLIT_FILE, factory)
+        .attributes(List.of(attribute)).build().process().get(attribute);
+
+    for (int parts : new int[] {2, 5, 13, 100}) {
+      CountTable actual = new CountTable();
+      for (FileRange range : splitter.split(SPLIT_FILE, parts)) {
+        actual.mergeFrom(FileProcessor.builder(SPLIT_FILE, factory)
+            .attributes(List.of(attribute)).range(range).build().process().get(attribute));
+      }
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testInvalidRootIsRejected() {
+    File file = new File("src/test/resources/testData/invalidDataFile.json");
+
+    assertThrows(IOException.class, () -> {
+      for (FileRange range : splitter.split(file, 2)) {
+        FileProcessor.builder(file, factory).attributes(List.of("artist")).range(range).build()
+            .process();
+      }
+    });
+  }
+}
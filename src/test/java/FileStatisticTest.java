@@ -1,7 +1,12 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Map;
 import java.util.stream.Stream;
 import org.example.input.FilesStatistic;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -14,16 +19,34 @@ public class FileStatisticTest {
   private static final String FILES_DIRECTORY = "src/test/resources/testData/multiThreadData";
   private static final int NUMBER_OF_ATTEMPTS = 3;
 
+  @TempDir
+  static Path directory;
+
+  /**
+   * Copies the data files, so the statistics are written to a temporary directory instead of the
+   * test resources.
+   */
+  @BeforeAll
+  public static void copyData() throws IOException {
+    try (Stream<Path> files = Files.list(Path.of(FILES_DIRECTORY))) {
+      for (Path file : files.toList()) {
+        if (!file.getFileName().toString().startsWith("statistics_by_")) {
+          Files.copy(file, directory.resolve(file.getFileName()));
+        }
+      }
+    }
+  }
+
   @ParameterizedTest
   @MethodSource("provideAttributesForMultiThreadTest")
-  public void testMultiThreadExecution(String attribute, int numberOfElements){
+  public void testMultiThreadExecution(String attribute, long numberOfElements){
     var fileStatistic = new FilesStatistic();
     fileStatistic.setAttribute(attribute);
-    fileStatistic.setDirectoryPath(FILES_DIRECTORY);
+    fileStatistic.setDirectoryPath(directory.toString());
     fileStatistic.run();
 
-    int executedNumberOfElements = 0;
-    for (Map.Entry<String, Integer> elem : fileStatistic.getResultMap().entrySet()){
+    long executedNumberOfElements = 0;
+    for (Map.Entry<String, Long> elem : fileStatistic.getResultMap().entries()){
       executedNumberOfElements += elem.getValue();
     }
 
@@ -39,7 +62,7 @@ public class FileStatisticTest {
       var fileStatistic = new FilesStatistic();
       fileStatistic.setThreadNumber(numberOfThreads);
       fileStatistic.setAttribute(attribute);
-      fileStatistic.setDirectoryPath(FILES_DIRECTORY);
+      fileStatistic.setDirectoryPath(directory.toString());
       long start = System.currentTimeMillis();
       fileStatistic.run();
       long finish = System.currentTimeMillis();
@@ -0,0 +1,190 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import org.example.constants.Constants;
+import org.example.input.FilesStatistic;
+import org.example.output.FilePrinter;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.FileSplitter;
+import org.example.processor.GroupTable;
+import org.example.processor.InputFormat;
+import org.example.processor.ProcessingTask;
+import org.example.processor.RangeProcessor;
+import org.example.processor.RecordFilter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupTableTest {
+
+  private static final File FILE = new File("src/test/resources/testData/splitDataFile.json");
+  private static final List<String> GENRE_BY_YEAR = List.of("genre", "year_released");
+  private static final ExecutorService service = Executors.newFixedThreadPool(2);
+
+  private final JsonFactory factory = new JsonFactory();
+
+  @TempDir
+  Path directory;
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @Test
+  public void testEveryCombinationOfARecordIsCounted() {
+    GroupTable groups = new GroupTable(GENRE_BY_YEAR);
+    record(groups, "Rock, Pop", "1975");
+    record(groups, "Rock", "1975");
+    record(groups, "Rock", null);
+
+    assertEquals(2, groups.size());
+    assertEquals(2, groups.get("Rock", "1975"));
+    assertEquals(1, groups.get("Pop", "1975"));
+    assertEquals(0, groups.get("Pop", "1991"));
+  }
+
+  @Test
+  public void testMergeTranslatesValues() {
+    GroupTable left = new GroupTable(GENRE_BY_YEAR);
+    left.add(List.of("Rock", "1975"), 2);
+    left.add(List.of("Pop", "1991"), 1);
+    GroupTable right = new GroupTable(GENRE_BY_YEAR);
+    right.add(List.of("Pop", "1975"), 4);
+    right.add(List.of("Rock", "1975"), 3);
+
+    left.mergeFrom(right);
+
+    assertEquals(3, left.size());
+    assertEquals(5, left.get("Rock", "1975"));
+    assertEquals(4, left.get("Pop", "1975"));
+    assertEquals(1, left.get("Pop", "1991"));
+    assertThrows(IllegalArgumentException.class,
+        () -> left.mergeFrom(new GroupTable(List.of("artist", "genre"))));
+  }
+
+  @Test
+  public void testGroupsAreNestedAndLimited() throws Exception {
+    GroupTable groups = new GroupTable(GENRE_BY_YEAR);
+    groups.add(List.of("Rock", "1975"), 2);
+    groups.add(List.of("Rock", "1991"), 3);
+    groups.add(List.of("Rock", "2017"), 1);
+    groups.add(List.of("Pop", "1991"), 4);
+    groups.add(List.of("Soul", "1980"), 1);
+
+    assertEquals(List.of(
+            new GroupTable.Group("Rock", 6, List.of(
+                new GroupTable.Group("1991", 3, List.of()),
+                new GroupTable.Group("1975", 2, List.of()))),
+            new GroupTable.Group("Pop", 4, List.of(
+                new GroupTable.Group("1991", 4, List.of())))),
+        groups.top(2));
+
+    StringWriter writer = new StringWriter();
+    new FilePrinter(groups, 1, directory.toString()).write(writer);
+    assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+            + "<statistics groupBy=\"genre,year_released\">"
+            + "<item><value>Rock</value><count>6</count>"
+            + "<item><value>1991</value><count>3</count></item></item>"
+            + "</statistics>",
+        writer.toString());
+  }
+
+  @Test
+  public void testSplitRangesGroupLikeTheWholeFile() throws IOException {
+    List<String> dimensions = List.of("artist", "genre", "year_released");
+    List<RangeProcessor> processors = new ArrayList<>();
+    for (FileRange range : new FileSplitter(service).split(FILE, 4, InputFormat.ARRAY)) {
+      processors.add(FileProcessor.builder(FILE, factory).attributes(Constants.ATTRIBUTES)
+          .range(range).groupBy(dimensions).build());
+    }
+    ProcessingTask task = new ProcessingTask(processors);
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      pool.invoke(task);
+    } finally {
+      pool.shutdown();
+    }
+
+    GroupTable expected = new GroupTable(dimensions);
+    for (JsonNode record : new ObjectMapper().readTree(FILE)) {
+      for (String genre : record.get("genre").asText().split(", ")) {
+        expected.add(List.of(record.get("artist").asText(), genre,
+            record.get("year_released").asText()), 1);
+      }
+    }
+    assertTrue(processors.size() > 1);
+    assertEquals(expected, task.getGroups());
+  }
+
+  @Test
+  public void testOnlyMatchingRecordsAreGrouped() throws IOException {
+    FileProcessor processor = FileProcessor.builder(FILE, factory)
+        .filter(RecordFilter.parse("year_released < 1990"))
+        .groupBy(List.of("artist", "year_released")).build();
+    processor.process();
+
+    GroupTable expected = new GroupTable(List.of("artist", "year_released"));
+    for (JsonNode record : new ObjectMapper().readTree(FILE)) {
+      if (record.get("year_released").asInt() < 1990) {
+        expected.add(List.of(record.get("artist").asText(),
+            record.get("year_released").asText()), 1);
+      }
+    }
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, processor.getGroups());
+  }
+
+  @Test
+  public void testGroupedStatisticsAreWritten() throws IOException {
+    Files.copy(FILE.toPath(), directory.resolve("songs.json"),
+        StandardCopyOption.REPLACE_EXISTING);
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setDirectoryPath(directory.toString());
+    statistic.setGroupBy("Year_Released, genre");
+    statistic.setThreadNumber(2);
+
+    statistic.run();
+
+    GroupTable expected = new GroupTable(List.of("year_released", "genre"));
+    for (JsonNode record : new ObjectMapper().readTree(FILE)) {
+      for (String genre : record.get("genre").asText().split(", ")) {
+        expected.add(List.of(record.get("year_released").asText(), genre), 1);
+      }
+    }
+    assertEquals(expected, statistic.getResultGroups());
+    assertTrue(statistic.getResultTables().isEmpty());
+    assertTrue(statistic.getResultMap().isEmpty());
+    String xml = Files.readString(
+        directory.resolve("statistics_by_year_released_and_genre.xml"));
+    assertTrue(xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+        + "<statistics groupBy=\"year_released,genre\"><item><value>"));
+  }
+
+  private static void record(GroupTable groups, String genre, String year) {
+    groups.startRecord();
+    if (genre != null) {
+      for (String part : genre.split(", ")) {
+        groups.getDimensionCounter(0).increment(part.toCharArray(), 0, part.length());
+      }
+    }
+    if (year != null) {
+      groups.getDimensionCounter(1).increment(year.toCharArray(), 0, year.length());
+    }
+    groups.endRecord();
+  }
+}
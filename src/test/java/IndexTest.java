@@ -0,0 +1,124 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.example.constants.Constants;
+import org.example.index.Index;
+import org.example.input.FilesStatistic;
+import org.example.input.IndexCommand;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.InputFormat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexTest {
+
+  private static final Path ARRAY_FILE = Path.of("src/test/resources/testData/splitDataFile.json");
+  private static final Path NDJSON_FILE =
+      Path.of("src/test/resources/testData/splitDataFile.ndjson");
+  private static final ExecutorService service = Executors.newFixedThreadPool(2);
+
+  @TempDir
+  Path directory;
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @Test
+  public void testIndexCountsLikeParsing() throws IOException {
+    List<File> files = copyFiles();
+    Path indexDirectory = directory.resolve("index");
+
+    Index.build(indexDirectory, files, Constants.ATTRIBUTES, InputFormat.AUTO, service);
+    Index index = Index.open(indexDirectory);
+
+    assertEquals(Constants.ATTRIBUTES, index.getAttributes());
+    assertEquals(2, index.size());
+    assertEquals(parse(files), index.count(Constants.ATTRIBUTES, service));
+    assertEquals(48, index.getRecords());
+    assertTrue(index.findChanges(files).isEmpty());
+  }
+
+  @Test
+  public void testChangedFilesAreReported() throws IOException {
+    List<File> files = copyFiles();
+    Path indexDirectory = directory.resolve("index");
+    Index.build(indexDirectory, files.subList(0, 1), List.of("artist"), InputFormat.AUTO,
+        service);
+    Index index = Index.open(indexDirectory);
+
+    assertEquals(List.of(files.get(1).getPath() + " (new)"), index.findChanges(files));
+    Files.writeString(files.get(0).toPath(), "[]");
+    assertEquals(List.of(files.get(0).getPath() + " (changed)"),
+        index.findChanges(files.subList(0, 1)));
+    assertEquals(1, index.findChanges(List.of()).size());
+    assertThrows(IllegalArgumentException.class, () -> index.count(List.of("genre"), service));
+  }
+
+  @Test
+  public void testRebuildReplacesTheIndex() throws IOException {
+    List<File> files = copyFiles();
+    Path indexDirectory = directory.resolve("index");
+    Index.build(indexDirectory, files, Constants.ATTRIBUTES, InputFormat.AUTO, service);
+    Files.delete(files.get(1).toPath());
+
+    Index index = Index.build(indexDirectory, files.subList(0, 1), List.of("genre"),
+        InputFormat.AUTO, service);
+
+    assertEquals(parse(files.subList(0, 1)).get("genre"),
+        index.count(List.of("genre"), service).get("genre"));
+    try (var columns = Files.list(indexDirectory)) {
+      assertEquals(2, columns.count());
+    }
+    assertThrows(IOException.class, () -> Index.open(directory));
+  }
+
+  @Test
+  public void testStatisticsAreCountedFromTheIndex() throws IOException {
+    List<File> files = copyFiles();
+    IndexCommand command = new IndexCommand();
+    command.setDirectoryPath(directory.toString());
+    command.setThreadNumber(2);
+    command.run();
+    assertEquals(2, command.getIndex().size());
+
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setDirectoryPath(directory.toString());
+    statistic.setAttribute("all");
+    statistic.setIndexPath(directory.resolve(IndexCommand.DEFAULT_DIRECTORY));
+    statistic.setThreadNumber(2);
+    statistic.run();
+
+    assertEquals(parse(files), statistic.getResultTables());
+    assertTrue(Files.exists(directory.resolve("statistics_by_genre.xml")));
+  }
+
+  private List<File> copyFiles() throws IOException {
+    Path array = Files.copy(ARRAY_FILE, directory.resolve("songs.json"));
+    Path ndjson = Files.copy(NDJSON_FILE, directory.resolve("songs.ndjson"));
+    return List.of(array.toFile(), ndjson.toFile());
+  }
+
+  private static Map<String, CountTable> parse(List<File> files) throws IOException {
+    Map<String, CountTable> tables = new HashMap<>();
+    JsonFactory factory = new JsonFactory();
+    for (File file : files) {
+      FileProcessor.builder(file, factory).attributes(Constants.ATTRIBUTES)
+          .format(InputFormat.AUTO).build().process().forEach((attribute, table) ->
+          tables.computeIfAbsent(attribute, key -> new CountTable()).mergeFrom(table));
+    }
+    return tables;
+  }
+}
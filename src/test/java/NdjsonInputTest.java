@@ -0,0 +1,147 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.example.constants.Constants;
+import org.example.input.FilesStatistic;
+import org.example.processor.ByteFileProcessor;
+import org.example.processor.CountTable;
+import org.example.processor.Engine;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.FileSplitter;
+import org.example.processor.InputFormat;
+import org.example.processor.RangeProcessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NdjsonInputTest {
+
+  private static final String TEST_DATA = "src/test/resources/testData/";
+  private static final File LINES_FILE = new File(TEST_DATA + "splitDataFile.ndjson");
+  private static final ExecutorService service = Executors.newFixedThreadPool(4);
+
+  private static Map<String, CountTable> expected;
+
+  private final JsonFactory factory = new JsonFactory();
+  private final FileSplitter splitter = new FileSplitter(service);
+
+  @TempDir
+  Path directory;
+
+  @BeforeAll
+  public static void countArrayFile() throws IOException {
+    File file = new File(TEST_DATA + "splitDataFile.json");
+    expected = FileProcessor.builder(file, new JsonFactory()).attributes(Constants.ATTRIBUTES)
+        .build().process();
+  }
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @Test
+  public void testFormatIsDetected() throws IOException {
+    Path empty = Files.writeString(directory.resolve("empty.json"), "");
+    Path array = Files.writeString(directory.resolve("array.json"), "\uFEFF \n [{}]");
+
+    assertEquals(InputFormat.NDJSON, InputFormat.detect(LINES_FILE));
+    assertEquals(InputFormat.ARRAY, InputFormat.detect(new File(TEST_DATA + "splitDataFile.json")));
+    assertEquals(InputFormat.ARRAY, InputFormat.detect(array.toFile()));
+    assertEquals(InputFormat.NDJSON, InputFormat.detect(empty.toFile()));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 3, 7, 16, 500})
+  public void testRangesStartAtLines(int parts) throws IOException {
+    byte[] bytes = Files.readAllBytes(LINES_FILE.toPath());
+    List<FileRange> ranges = splitter.split(LINES_FILE, parts, InputFormat.AUTO);
+
+    assertTrue(ranges.size() > 1);
+    assertEquals(0, ranges.get(0).start());
+    assertEquals(LINES_FILE.length(), ranges.get(ranges.size() - 1).end());
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(ranges.get(i - 1).end(), ranges.get(i).start());
+      assertEquals('\n', bytes[(int) ranges.get(i).start() - 1]);
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = InputFormat.class, names = {"AUTO", "NDJSON"})
+  public void testSplitCountsMatchArrayFile(InputFormat format) throws IOException {
+    for (int parts : new int[] {1, 2, 5, 13, 100}) {
+      Map<String, CountTable> jackson = createResultMaps();
+      Map<String, CountTable> bytes = createResultMaps();
+      for (FileRange range : splitter.split(LINES_FILE, parts, format)) {
+        merge(jackson, FileProcessor.builder(LINES_FILE, factory)
+            .attributes(Constants.ATTRIBUTES).range(range).format(format).build());
+        merge(bytes, new ByteFileProcessor(Constants.ATTRIBUTES, LINES_FILE, range, format));
+      }
+      assertEquals(expected, jackson);
+      assertEquals(expected, bytes);
+    }
+  }
+
+  @Test
+  public void testArrayFormatRejectsLines() {
+    var processor = FileProcessor.builder(LINES_FILE, factory)
+        .attributes(Constants.ATTRIBUTES).format(InputFormat.ARRAY).build();
+
+    assertThrows(IOException.class, processor::process);
+  }
+
+  @Test
+  public void testLineThatIsNoObjectIsRejected() throws IOException {
+    File file = Files.writeString(directory.resolve("lines.json"),
+        "{\"artist\": \"Queen\"}\n[\"Eagles\"]\n").toFile();
+    FileRange range = new FileRange(0, file.length());
+
+    assertThrows(IOException.class, () -> FileProcessor.builder(file, factory)
+        .attributes(Constants.ATTRIBUTES).range(range).format(InputFormat.AUTO).build().process());
+    assertThrows(IOException.class, () -> new ByteFileProcessor(Constants.ATTRIBUTES, file, range,
+        InputFormat.AUTO).process());
+  }
+
+  @ParameterizedTest
+  @EnumSource(Engine.class)
+  public void testMixedDirectoryIsDetectedPerFile(Engine engine) throws IOException {
+    Files.copy(Path.of(TEST_DATA, "splitDataFile.json"), directory.resolve("array.json"));
+    Files.copy(LINES_FILE.toPath(), directory.resolve("lines.ndjson"));
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setAttribute("artist");
+    statistic.setDirectoryPath(directory.toString());
+    statistic.setEngine(engine);
+    statistic.run();
+
+    CountTable doubled = new CountTable();
+    doubled.mergeFrom(expected.get("artist"));
+    doubled.mergeFrom(expected.get("artist"));
+    assertEquals(doubled, statistic.getResultMap());
+  }
+
+  private static void merge(Map<String, CountTable> tables, RangeProcessor processor) {
+    processor.call().tables().forEach((attribute, table) -> tables.get(attribute).mergeFrom(table));
+  }
+
+  private static Map<String, CountTable> createResultMaps() {
+    Map<String, CountTable> resultMaps = new LinkedHashMap<>();
+    for (String attribute : Constants.ATTRIBUTES) {
+      resultMaps.put(attribute, new CountTable());
+    }
+    return resultMaps;
+  }
+}
@@ -0,0 +1,142 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.example.constants.Constants;
+import org.example.input.FilesStatistic;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.NumericHistogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NumericHistogramTest {
+
+  private static final File FILE = new File("src/test/resources/testData/splitDataFile.json");
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testValuesAreCountedLikeTheirText() {
+    NumericHistogram histogram = new NumericHistogram();
+    CountTable expected = new CountTable();
+    for (String value : List.of("1975", "1991", "1975", "-3", "0", "\"1975\"", "1975.0", "01",
+        "-0", "2147483648", "abc", "")) {
+      histogram.increment(value.toCharArray(), 0, value.length());
+      expected.increment(value);
+    }
+    histogram.add(1991);
+
+    expected.increment("1991");
+    assertEquals(expected, histogram.toCountTable());
+    assertEquals(6, histogram.getCount());
+  }
+
+  @Test
+  public void testWideRangesAreCountedExactly() {
+    NumericHistogram histogram = new NumericHistogram();
+    CountTable expected = new CountTable();
+    SplittableRandom random = new SplittableRandom(7);
+    for (int i = 0; i < 10_000; i++) {
+      int value = i % 3 == 0 ? random.nextInt() : 1950 + random.nextInt(75);
+      histogram.add(value);
+      expected.increment(Integer.toString(value));
+    }
+    histogram.add(Integer.MIN_VALUE);
+    histogram.add(Integer.MAX_VALUE);
+    expected.increment(Integer.toString(Integer.MIN_VALUE));
+    expected.increment(Integer.toString(Integer.MAX_VALUE));
+
+    assertEquals(expected, histogram.toCountTable());
+    List<Integer> values = new ArrayList<>();
+    histogram.forEach((value, count) -> values.add(value));
+    assertEquals(values.stream().sorted().toList(), values);
+    assertEquals(Integer.MIN_VALUE, histogram.getMin());
+    assertEquals(Integer.MAX_VALUE, histogram.getMax());
+  }
+
+  @Test
+  public void testSummaries() {
+    NumericHistogram histogram = new NumericHistogram();
+    for (int value = 1; value <= 100; value++) {
+      histogram.add(value);
+    }
+    histogram.add(1000, 100);
+
+    assertEquals(200, histogram.getCount());
+    assertEquals(1, histogram.getMin());
+    assertEquals(1000, histogram.getMax());
+    assertEquals((5050 + 100_000) / 200.0, histogram.getMean(), 1e-9);
+    assertEquals(1, histogram.getPercentile(0));
+    assertEquals(100, histogram.getPercentile(0.5));
+    assertEquals(1000, histogram.getPercentile(0.51));
+    assertEquals(1000, histogram.getPercentile(1));
+    assertTrue(Double.isNaN(new NumericHistogram().getMean()));
+  }
+
+  @Test
+  public void testMergeAndTableRoundTrip() {
+    NumericHistogram left = new NumericHistogram();
+    left.add(1975, 2);
+    left.increment("x".toCharArray(), 0, 1);
+    NumericHistogram right = new NumericHistogram();
+    right.add(1975);
+    right.add(1_000_000);
+
+    left.mergeFrom(right);
+
+    CountTable table = left.toCountTable();
+    assertEquals(3, table.get("1975"));
+    assertEquals(1, table.get("1000000"));
+    assertEquals(1, table.get("x"));
+    assertEquals(table, NumericHistogram.of(table).toCountTable());
+    assertEquals(4, NumericHistogram.of(table).getCount());
+  }
+
+  @Test
+  public void testNumericAttributesAreCountedLikeText() throws IOException {
+    Map<String, CountTable> tables = FileProcessor.builder(FILE, new JsonFactory())
+        .attributes(Constants.ATTRIBUTES).build().process();
+
+    CountTable expected = new CountTable();
+    for (JsonNode record : new ObjectMapper().readTree(FILE)) {
+      expected.increment(record.get("year_released").asText());
+    }
+    assertEquals(expected, tables.get("year_released"));
+  }
+
+  @Test
+  public void testSummaryIsWritten() throws IOException {
+    Files.copy(FILE.toPath(), directory.resolve("songs.json"),
+        StandardCopyOption.REPLACE_EXISTING);
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setDirectoryPath(directory.toString());
+    statistic.setAttribute("year_released,artist");
+    statistic.setSummary(true);
+    statistic.setThreadNumber(2);
+
+    statistic.run();
+
+    NumericHistogram expected = new NumericHistogram();
+    for (JsonNode record : new ObjectMapper().readTree(FILE)) {
+      expected.add(record.get("year_released").asInt());
+    }
+    String xml = Files.readString(directory.resolve("statistics_by_year_released.xml"));
+    assertTrue(xml.contains("<statistics count=\"%d\" min=\"%d\" max=\"%d\" mean=\""
+        .formatted(expected.getCount(), expected.getMin(), expected.getMax())), xml);
+    assertTrue(xml.contains("p50=\"%d\"".formatted(expected.getPercentile(0.5))), xml);
+    assertTrue(Files.readString(directory.resolve("statistics_by_artist.xml"))
+        .contains("<statistics><item>"));
+  }
+}
@@ -0,0 +1,171 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import org.example.constants.Constants;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.FileResult;
+import org.example.processor.FileSplitter;
+import org.example.processor.PrefetchPipeline;
+import org.example.processor.ProcessingTask;
+import org.example.processor.RangeProcessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefetchPipelineTest {
+
+  private static final String TEST_DATA = "src/test/resources/testData/";
+  private static final ExecutorService service = Executors.newFixedThreadPool(2);
+
+  private final JsonFactory factory = new JsonFactory();
+
+  @TempDir
+  Path directory;
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @ParameterizedTest
+  @CsvSource({"1, 1, 7, 21", "2, 3, 16, 64", "4, 2, 1024, 1048576"})
+  @Timeout(10)
+  public void testCountsMatchDirectReading(int readers, int parsers, int chunkSize, long budget)
+      throws IOException {
+    File file = new File(TEST_DATA + "splitDataFile.json");
+    Map<String, CountTable> expected = FileProcessor.builder(file, factory)
+        .attributes(Constants.ATTRIBUTES).build().process();
+
+    List<RangeProcessor> processors = new ArrayList<>();
+    Map<String, CountTable> actual;
+    try (PrefetchPipeline pipeline = new PrefetchPipeline(readers, parsers, chunkSize, budget)) {
+      for (FileRange range : new FileSplitter(service).split(file, 9)) {
+        processors.add(FileProcessor.builder(file, factory).attributes(Constants.ATTRIBUTES)
+            .range(range).input(pipeline).build());
+      }
+      pipeline.start(processors);
+      actual = new ForkJoinPool(parsers).invoke(new ProcessingTask(processors));
+    }
+
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  @Timeout(10)
+  public void testInvalidFileIsReportedAsFailure() {
+    File invalid = new File(TEST_DATA + "invalidDataFile.json");
+    File valid = new File(TEST_DATA + "validDataFile.json");
+    ProcessingTask task;
+    try (PrefetchPipeline pipeline = new PrefetchPipeline(1, 1, 8, 24)) {
+      List<RangeProcessor> processors = List.of(
+          FileProcessor.builder(invalid, factory).attributes(Constants.ATTRIBUTES)
+              .input(pipeline).build(),
+          FileProcessor.builder(valid, factory).attributes(Constants.ATTRIBUTES)
+              .input(pipeline).build());
+      pipeline.start(processors);
+      task = new ProcessingTask(processors);
+      new ForkJoinPool(1).invoke(task);
+    }
+
+    List<FileResult> results = task.getResults();
+    assertFalse(results.get(0).isSuccessful());
+    assertTrue(results.get(1).isSuccessful());
+  }
+
+  @Test
+  @Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+  public void testRangeFailingBeforeItIsOpenedReleasesItsSlot() throws IOException {
+    Path missing = directory.resolve("missing.json");
+    Files.copy(Path.of(TEST_DATA + "splitDataFile.json"), missing);
+    File valid = new File(TEST_DATA + "validDataFile.json");
+    ProcessingTask task;
+    try (PrefetchPipeline pipeline = new PrefetchPipeline(1, 1, 8, 24)) {
+      List<RangeProcessor> processors = List.of(
+          FileProcessor.builder(missing.toFile(), factory).attributes(Constants.ATTRIBUTES)
+              .range(new FileRange(100, Files.size(missing))).input(pipeline).build(),
+          FileProcessor.builder(valid, factory).attributes(Constants.ATTRIBUTES)
+              .input(pipeline).build());
+      Files.delete(missing);
+      pipeline.start(processors);
+      task = new ProcessingTask(processors);
+      new ForkJoinPool(1).invoke(task);
+    }
+
+    List<FileResult> results = task.getResults();
+    assertFalse(results.get(0).isSuccessful());
+    assertTrue(results.get(1).isSuccessful());
+  }
+
+  @Test
+  @Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+  public void testParsersFailingBeforeOpenReleaseTheirSlots() {
+    File valid = new File(TEST_DATA + "validDataFile.json");
+    ProcessingTask task;
+    try (PrefetchPipeline pipeline = new PrefetchPipeline(1, 1, 8, 24)) {
+      List<RangeProcessor> processors = new ArrayList<>();
+      for (String name : List.of("splitDataFile.json", "emptyDataFile.json", "nestedDataFile.json")) {
+        processors.add(new FailingProcessor(new File(TEST_DATA + name), pipeline));
+      }
+      processors.add(FileProcessor.builder(valid, factory).attributes(Constants.ATTRIBUTES)
+          .input(pipeline).build());
+      pipeline.start(processors);
+      task = new ProcessingTask(processors);
+      new ForkJoinPool(1).invoke(task);
+    }
+
+    List<FileResult> results = task.getResults();
+    for (int i = 0; i < 3; i++) {
+      assertFalse(results.get(i).isSuccessful());
+    }
+    assertTrue(results.get(3).isSuccessful());
+  }
+
+  @Test
+  public void testBudgetBelowOneRangeIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new PrefetchPipeline(1, 1, 8, 23));
+  }
+
+  /**
+   * A processor whose parser fails before it opens its range, which it releases the same way a
+   * FileProcessor does.
+   */
+  private record FailingProcessor(File file, PrefetchPipeline pipeline)
+      implements RangeProcessor {
+
+    @Override
+    public FileResult call() {
+      try {
+        throw new IllegalStateException("The parser failed before opening the range");
+      } catch (IllegalStateException e) {
+        return FileResult.failure(file, getRange(), e);
+      } finally {
+        pipeline.release(file, 0);
+      }
+    }
+
+    @Override
+    public File getFile() {
+      return file;
+    }
+
+    @Override
+    public FileRange getRange() {
+      return new FileRange(0, file.length());
+    }
+  }
+}
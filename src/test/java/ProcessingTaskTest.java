@@ -0,0 +1,75 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.example.constants.Constants;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileResult;
+import org.example.processor.ProcessingTask;
+import org.example.processor.RangeProcessor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessingTaskTest {
+
+  private static final String TEST_DATA = "src/test/resources/testData/";
+
+  private final JsonFactory factory = new JsonFactory();
+
+  @Test
+  public void testPartialCountsAreReduced() throws IOException {
+    File file = new File(TEST_DATA + "validDataFile.json");
+    List<RangeProcessor> processors = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      processors.add(FileProcessor.builder(file, factory).attributes(Constants.ATTRIBUTES).build());
+    }
+    Map<String, CountTable> expected = FileProcessor.builder(file, factory).attributes(Constants.ATTRIBUTES).build().process();
+
+    Map<String, CountTable> actual = new ForkJoinPool(4).invoke(new ProcessingTask(processors));
+
+    for (String attribute : Constants.ATTRIBUTES) {
+      expected.get(attribute).forEach((value, count) -> assertEquals(count * 7, actual.get(attribute).get(value)));
+      assertEquals(expected.get(attribute).size(), actual.get(attribute).size());
+    }
+  }
+
+  @Test
+  public void testFailuresAreReportedPerFile() {
+    File valid = new File(TEST_DATA + "validDataFile.json");
+    File invalid = new File(TEST_DATA + "invalidDataFile.json");
+    ProcessingTask task = new ProcessingTask(List.of(
+        FileProcessor.builder(valid, factory).attributes(List.of("artist")).build(),
+        FileProcessor.builder(invalid, factory).attributes(List.of("artist")).build()));
+
+    Map<String, CountTable> result = new ForkJoinPool(2).invoke(task);
+
+    assertEquals(2, result.get("artist").get("Nirvana"));
+    List<FileResult> results = task.getResults();
+    assertTrue(results.get(0).isSuccessful());
+    assertFalse(results.get(1).isSuccessful());
+    assertEquals(invalid, results.get(1).file());
+    assertInstanceOf(IOException.class, results.get(1).error());
+  }
+
+  @Test
+  public void testResultsOnlyKeepTheirCountsOnRequest() {
+    File file = new File(TEST_DATA + "validDataFile.json");
+    List<String> artist = List.of("artist");
+    ProcessingTask released = new ProcessingTask(
+        List.of(FileProcessor.builder(file, factory).attributes(artist).build()));
+    ProcessingTask kept = new ProcessingTask(
+        List.of(FileProcessor.builder(file, factory).attributes(artist).build()), null, true);
+
+    ForkJoinPool pool = new ForkJoinPool(2);
+    assertEquals(pool.invoke(released), pool.invoke(kept));
+
+    assertTrue(released.getResults().get(0).tables().isEmpty());
+    assertEquals(7, released.getResults().get(0).records());
+    assertEquals(2, kept.getResults().get(0).tables().get("artist").get("Nirvana"));
+  }
+}
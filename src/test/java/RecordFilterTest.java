@@ -0,0 +1,171 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.example.constants.Constants;
+import org.example.processor.CountTable;
+import org.example.processor.FileProcessor;
+import org.example.processor.FileRange;
+import org.example.processor.FileSplitter;
+import org.example.processor.InputFormat;
+import org.example.processor.RecordFilter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordFilterTest {
+
+  private static final File FILE = new File("src/test/resources/testData/splitDataFile.json");
+  private static final ExecutorService service = Executors.newFixedThreadPool(2);
+
+  private final JsonFactory factory = new JsonFactory();
+
+  @TempDir
+  Path directory;
+
+  @AfterAll
+  public static void shutdown() {
+    service.shutdown();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideFilters")
+  public void testOnlyMatchingRecordsAreCounted(String expression, Predicate<JsonNode> expected)
+      throws IOException {
+    Map<String, CountTable> tables = count(FILE, new FileRange(0, FILE.length()), expression);
+
+    assertEquals(countMatching(expected), tables);
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideFilters")
+  public void testSplitRangesCountTheSameRecords(String expression, Predicate<JsonNode> expected)
+      throws IOException {
+    Map<String, CountTable> tables = new HashMap<>();
+    for (FileRange range : new FileSplitter(service).split(FILE, 4, InputFormat.ARRAY)) {
+      count(FILE, range, expression).forEach((attribute, table) ->
+          tables.computeIfAbsent(attribute, key -> new CountTable()).mergeFrom(table));
+    }
+
+    assertEquals(countMatching(expected), tables);
+  }
+
+  @Test
+  public void testFieldsAfterTheAttributesAreBuffered() throws IOException {
+    Path file = Files.writeString(directory.resolve("order.json"), """
+        [{"artist": "Queen", "genre": "Rock, Pop", "year_released": 1975},
+         {"artist": "Eagles", "nested": {"artist": "Queen"}, "genre": "Rock", "year_released": 1990},
+         {"year_released": 1991, "tags": ["a", {"b": 1}], "artist": "Queen", "genre": "Pop"},
+         {"artist": "Nobody", "genre": "Pop", "year_released": null}]
+        """);
+
+    Map<String, CountTable> tables = count(file.toFile(), new FileRange(0, Files.size(file)),
+        "year_released >= 1990 or genre = 'Rock'");
+
+    assertEquals(2, tables.get("artist").get("Queen"));
+    assertEquals(1, tables.get("artist").get("Eagles"));
+    assertEquals(0, tables.get("artist").get("Nobody"));
+    assertEquals(2, tables.get("genre").get("Rock"));
+    assertEquals(2, tables.get("genre").get("Pop"));
+  }
+
+  @Test
+  public void testMissingFieldsNeverMatch() throws IOException {
+    Path file = Files.writeString(directory.resolve("missing.ndjson"),
+        "{\"artist\": \"Queen\"}\n{\"artist\": \"Eagles\", \"label\": \"EMI\"}\n");
+
+    CountTable artists = count(file.toFile(), new FileRange(0, Files.size(file)),
+        "label != 'Asylum'").get("artist");
+    CountTable negated = count(file.toFile(), new FileRange(0, Files.size(file)),
+        "not label = 'Asylum'").get("artist");
+
+    assertEquals(0, artists.get("Queen"));
+    assertEquals(1, artists.get("Eagles"));
+    assertEquals(1, negated.get("Queen"));
+    assertEquals(1, negated.get("Eagles"));
+  }
+
+  @Test
+  public void testFieldsOfTheExpression() {
+    RecordFilter filter = RecordFilter.parse(
+        "year_released >= 1990 AND (artist == \"Queen\" or not year_released < 2000)");
+
+    assertEquals(List.of("year_released", "artist"), filter.getFields());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "artist", "artist =", "= 'Queen'", "artist = Queen",
+                          "artist ~ 'Queen'", "artist = 'Queen", "(artist = 'Queen'",
+                          "artist = 'Queen' and", "and = 1", "artist = 'Queen' 'Eagles'"})
+  public void testInvalidExpressions(String expression) {
+    assertThrows(IllegalArgumentException.class, () -> RecordFilter.parse(expression));
+  }
+
+  private Map<String, CountTable> count(File file, FileRange range, String expression)
+      throws IOException {
+    return FileProcessor.builder(file, factory).attributes(Constants.ATTRIBUTES).range(range)
+        .format(InputFormat.AUTO).filter(RecordFilter.parse(expression)).build().process();
+  }
+
+  private static Map<String, CountTable> countMatching(Predicate<JsonNode> filter)
+      throws IOException {
+    Map<String, CountTable> tables = new HashMap<>();
+    for (String attribute : Constants.ATTRIBUTES) {
+      tables.put(attribute, new CountTable());
+    }
+    for (JsonNode record : new ObjectMapper().readTree(FILE)) {
+      if (!filter.test(record)) {
+        continue;
+      }
+      for (String attribute : Constants.ATTRIBUTES) {
+        String value = record.get(attribute).asText();
+        String[] values = Constants.MULTIPLE_ATTRIBUTES.contains(attribute)
+            ? value.split(", ") : new String[] {value};
+        for (String part : values) {
+          tables.get(attribute).increment(part);
+        }
+      }
+    }
+    return tables;
+  }
+
+  private static boolean hasGenre(JsonNode record, String genre) {
+    return List.of(record.get("genre").asText().split(", ")).contains(genre);
+  }
+
+  private static Stream<Arguments> provideFilters() {
+    return Stream.of(
+        Arguments.of("year_released >= 1990",
+            (Predicate<JsonNode>) record -> record.get("year_released").asInt() >= 1990),
+        Arguments.of("artist = 'Queen' or year_released < 1981",
+            (Predicate<JsonNode>) record -> record.get("artist").asText().equals("Queen")
+                || record.get("year_released").asInt() < 1981),
+        Arguments.of("genre = 'Rock' and not (year_released > 1980)",
+            (Predicate<JsonNode>) record -> hasGenre(record, "Rock")
+                && record.get("year_released").asInt() <= 1980),
+        Arguments.of("genre != 'Pop'",
+            (Predicate<JsonNode>) record -> !hasGenre(record, "Pop")),
+        Arguments.of("artist > 'M' and title != 'Plain title'",
+            (Predicate<JsonNode>) record -> record.get("artist").asText().compareTo("M") > 0
+                && !record.get("title").asText().equals("Plain title")),
+        Arguments.of("year_released = '1991'",
+            (Predicate<JsonNode>) record -> record.get("year_released").asText().equals("1991")),
+        Arguments.of("unknown = 1", (Predicate<JsonNode>) record -> false));
+  }
+}
@@ -0,0 +1,140 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import org.example.cache.ResultCache;
+import org.example.input.FilesStatistic;
+import org.example.processor.CountTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultCacheTest {
+
+  private static final String RECORD = "{\"artist\": \"%s\", \"genre\": \"Rock, Pop\"}";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testUnchangedFilesAreServedFromCache() throws IOException {
+    File file = writeRecords("a.json", "Queen", "Queen");
+    ResultCache cache = ResultCache.load(directory.resolve("cache.bin"), false);
+    assertNull(cache.lookup(file, List.of("artist")));
+    cache.store(file, Map.of("artist", count("Queen", 2)));
+    cache.save();
+
+    ResultCache reloaded = ResultCache.load(directory.resolve("cache.bin"), false);
+
+    assertEquals(Map.of("artist", count("Queen", 2)), reloaded.lookup(file, List.of("artist")));
+    assertNull(reloaded.lookup(file, List.of("artist", "genre")));
+  }
+
+  @Test
+  public void testChangedFilesAreProcessedAgain() throws IOException {
+    File file = writeRecords("a.json", "Queen");
+    ResultCache cache = ResultCache.load(directory.resolve("cache.bin"), false);
+    cache.lookup(file, List.of("artist"));
+    cache.store(file, Map.of("artist", count("Queen", 1)));
+
+    writeRecords("a.json", "Queen", "Eagles");
+
+    assertNull(cache.lookup(file, List.of("artist")));
+  }
+
+  @Test
+  public void testContentHashDetectsChangesWithSameSizeAndTime() throws IOException {
+    File file = writeRecords("a.json", "Queen");
+    FileTime modified = Files.getLastModifiedTime(file.toPath());
+    ResultCache cache = ResultCache.load(directory.resolve("cache.bin"), true);
+    cache.lookup(file, List.of("artist"));
+    cache.store(file, Map.of("artist", count("Queen", 1)));
+
+    writeRecords("a.json", "Abba!");
+    Files.setLastModifiedTime(file.toPath(), modified);
+
+    assertNull(cache.lookup(file, List.of("artist")));
+  }
+
+  @Test
+  public void testDeletedFilesAreEvicted() throws IOException {
+    File file = writeRecords("a.json", "Queen");
+    ResultCache cache = ResultCache.load(directory.resolve("cache.bin"), false);
+    cache.lookup(file, List.of("artist"));
+    cache.store(file, Map.of("artist", count("Queen", 1)));
+
+    Files.delete(file.toPath());
+
+    assertEquals(1, cache.evictDeleted());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testMemoryCacheEvictsTheLeastRecentlyUsedFiles() throws IOException {
+    File first = writeRecords("a.json", "Queen");
+    File second = writeRecords("b.json", "Eagles");
+    File third = writeRecords("c.json", "Adele");
+    long fileBytes = count("Queen", 1).estimatedBytes();
+    ResultCache cache = ResultCache.inMemory(false, 2 * fileBytes + fileBytes / 2);
+    for (File file : List.of(first, second)) {
+      cache.lookup(file, List.of("artist"));
+      cache.store(file, Map.of("artist", count("Queen", 1)));
+    }
+    assertNotNull(cache.lookup(first, List.of("artist")));
+
+    cache.lookup(third, List.of("artist"));
+    cache.store(third, Map.of("artist", count("Queen", 1)));
+
+    assertEquals(2, cache.size());
+    assertTrue(cache.estimatedBytes() <= 2 * fileBytes + fileBytes / 2);
+    assertNotNull(cache.lookup(first, List.of("artist")));
+    assertNull(cache.lookup(second, List.of("artist")));
+    assertNotNull(cache.lookup(third, List.of("artist")));
+  }
+
+  @Test
+  public void testIncrementalRunsMatchFullRun() throws IOException {
+    Path data = Files.createDirectory(directory.resolve("data"));
+    writeRecords("data/a.json", "Queen", "Eagles");
+    writeRecords("data/b.json", "Queen");
+    Path cachePath = directory.resolve("cache.bin");
+    assertEquals(2, run(data, cachePath).get("Queen"));
+
+    writeRecords("data/c.json", "Queen", "Abba");
+    Files.delete(data.resolve("a.json"));
+    CountTable incremental = run(data, cachePath);
+
+    assertEquals(run(data, null), incremental);
+    assertEquals(2, incremental.get("Queen"));
+    assertEquals(2, ResultCache.load(cachePath, false).size());
+  }
+
+  private CountTable run(Path data, Path cachePath) {
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setAttribute("artist");
+    statistic.setDirectoryPath(data.toString());
+    statistic.setCachePath(cachePath);
+    statistic.run();
+    return statistic.getResultMap();
+  }
+
+  private File writeRecords(String name, String... artists) throws IOException {
+    StringBuilder json = new StringBuilder("[");
+    for (String artist : artists) {
+      json.append(json.length() > 1 ? "," : "").append(RECORD.formatted(artist));
+    }
+    Path file = directory.resolve(name);
+    Files.writeString(file, json.append("]"));
+    return file.toFile();
+  }
+
+  private static CountTable count(String value, long count) {
+    CountTable table = new CountTable();
+    table.add(value, count);
+    return table;
+  }
+}
@@ -0,0 +1,57 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.example.input.FilesStatistic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunStatisticsTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testReportDescribesRun() throws IOException {
+    Files.writeString(directory.resolve("a.json"),
+        "[{\"artist\": \"Queen\"}, {\"artist\": \"Eagles\"}, {\"artist\": \"Queen\"}]");
+    Files.writeString(directory.resolve("b.json"), "{\"artist\": \"Queen\"}\n");
+    Files.writeString(directory.resolve("broken.json"), "[{\"artist\": ");
+    Path report = directory.resolve("report.json");
+
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setAttribute("artist");
+    statistic.setDirectoryPath(directory.toString());
+    statistic.setThreadNumber(2);
+    statistic.setStatsPath(report);
+    statistic.run();
+
+    JsonNode json = new ObjectMapper().readTree(report.toFile());
+    assertEquals(2, json.get("threads").asInt());
+    List<String> phases = new ArrayList<>();
+    json.get("phaseMillis").fieldNames().forEachRemaining(phases::add);
+    assertEquals(List.of("discovery", "split", "parse", "merge", "sort", "write"), phases);
+    assertEquals(3, json.get("processedFiles").asInt());
+    long records = 0;
+    for (JsonNode file : json.get("files")) {
+      String name = Path.of(file.get("path").asText()).getFileName().toString();
+      assertEquals(Files.size(directory.resolve(name)), file.get("bytes").asLong());
+      assertEquals(name.equals("broken.json"), file.has("error"));
+      records += file.get("records").asLong();
+    }
+    assertEquals(4, records);
+    assertEquals(2, json.get("workers").size());
+    int ranges = 0;
+    for (JsonNode worker : json.get("workers")) {
+      ranges += worker.get("ranges").asInt();
+      assertTrue(worker.get("utilization").asDouble() <= 1);
+    }
+    assertEquals(3, ranges);
+    assertFalse(json.has("queueWaitMillis"));
+  }
+}
@@ -0,0 +1,169 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import org.example.input.FilesStatistic;
+import org.example.input.ServeCommand;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ServeTest {
+
+  private static final Path ARRAY_FILE = Path.of("src/test/resources/testData/splitDataFile.json");
+  private static final Path NDJSON_FILE =
+      Path.of("src/test/resources/testData/splitDataFile.ndjson");
+  private static final String TOKEN = "0123456789abcdef";
+
+  @TempDir
+  Path directory;
+  private ServerSocket server;
+  private ServeCommand command;
+  private Thread serving;
+
+  @BeforeEach
+  public void start() throws IOException {
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    command = new ServeCommand();
+    command.setThreadNumber(2);
+    serving = new Thread(() -> command.serve(server, TOKEN));
+    serving.start();
+  }
+
+  @AfterEach
+  public void stop() throws Exception {
+    server.close();
+    serving.join(10_000);
+    assertFalse(serving.isAlive());
+  }
+
+  @Test
+  public void testQueriesWriteTheSameStatisticsAsARun() throws IOException {
+    Files.copy(ARRAY_FILE, directory.resolve("songs.json"));
+    Files.copy(NDJSON_FILE, directory.resolve("songs.ndjson"));
+    Path served = Files.createDirectory(directory.resolve("served"));
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setDirectoryPath(directory.toString());
+    statistic.setAttribute("genre");
+    statistic.run();
+    Files.move(directory.resolve("statistics_by_genre.xml"), served.resolve("expected.xml"));
+
+    try (Socket socket = connect()) {
+      List<String> first = query(socket, "-d \"" + directory + "\" -a genre");
+      List<String> second = query(socket, "-d \"" + directory + "\" -a genre --top 2");
+
+      assertEquals("exit 0", first.get(first.size() - 1));
+      assertEquals("exit 0", second.get(second.size() - 1));
+      assertTrue(second.contains("Reusing cached counts of 2 files, processing 0 files"),
+          second.toString());
+    }
+    String expected = Files.readString(served.resolve("expected.xml"));
+    String top = Files.readString(directory.resolve("statistics_by_genre.xml"));
+    assertTrue(expected.startsWith(top.substring(0, top.lastIndexOf("</item>"))));
+    assertTrue(top.length() < expected.length());
+  }
+
+  @Test
+  public void testInvalidQueriesAreReported() throws IOException {
+    try (Socket socket = connect()) {
+      List<String> missing = query(socket, "-a genre");
+      List<String> watch = query(socket, "-d \"" + directory + "\" -a genre --watch");
+      List<String> serve = query(socket, "serve");
+      List<String> index = query(socket, "index -d \"" + directory + "\"");
+
+      assertTrue(missing.get(0).contains("Missing required option"), missing.toString());
+      assertEquals("exit 2", missing.get(missing.size() - 1));
+      assertTrue(watch.get(0).contains("'--watch' can not be used"), watch.toString());
+      assertEquals("exit 2", serve.get(serve.size() - 1));
+      assertTrue(index.get(0).contains("can not run the 'index' command"), index.toString());
+    }
+  }
+
+  @Test
+  public void testConnectionsWithoutTheTokenAreRejected() throws IOException {
+    Files.copy(ARRAY_FILE, directory.resolve("songs.json"));
+    try (Socket socket = new Socket(server.getInetAddress(), server.getLocalPort())) {
+      List<String> answer = query(socket, "-d \"" + directory + "\" -a genre");
+
+      assertTrue(answer.get(0).contains("has to start with the line 'token <token>'"),
+          answer.toString());
+      assertEquals("exit 2", answer.get(answer.size() - 1));
+      assertEquals(-1, socket.getInputStream().read());
+    }
+    assertFalse(Files.exists(directory.resolve("statistics_by_genre.xml")));
+  }
+
+  @Test
+  public void testTheTokenFileIsOnlyReadableByTheOwner() throws IOException {
+    Path file = directory.resolve("token");
+    Files.writeString(file, "old");
+
+    String token = ServeCommand.createTokenFile(file);
+
+    assertEquals(token, Files.readString(file).strip());
+    assertEquals(32, token.length());
+    assertNotEquals(token, ServeCommand.createTokenFile(file));
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    assertEquals(PosixFilePermissions.fromString("rw-------"),
+        Files.getPosixFilePermissions(file));
+  }
+
+  @Test
+  @Timeout(10)
+  public void testAnIdleConnectionDoesNotBlockOthers() throws IOException {
+    try (Socket idle = connect(); Socket socket = connect()) {
+      idle.getOutputStream().write("-d ".getBytes(StandardCharsets.UTF_8));
+      idle.getOutputStream().flush();
+
+      List<String> answer = query(socket, "-a genre");
+
+      assertEquals("exit 2", answer.get(answer.size() - 1));
+    }
+  }
+
+  @Test
+  @Timeout(10)
+  public void testIdleConnectionsAreClosed() throws IOException {
+    command.setIdleTimeout(200);
+    try (Socket socket = connect()) {
+      assertEquals(-1, socket.getInputStream().read());
+    }
+  }
+
+  private Socket connect() throws IOException {
+    Socket socket = new Socket(server.getInetAddress(), server.getLocalPort());
+    new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)
+        .println("token " + TOKEN);
+    return socket;
+  }
+
+  private static List<String> query(Socket socket, String query) throws IOException {
+    PrintWriter output = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+    output.println(query);
+    BufferedReader input = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    List<String> lines = new ArrayList<>();
+    String line;
+    do {
+      line = input.readLine();
+      assertNotNull(line, "the server closed the connection after " + lines);
+      lines.add(line);
+    } while (!line.startsWith("exit "));
+    return lines;
+  }
+}
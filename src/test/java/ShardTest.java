@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.example.input.FilesStatistic;
+import org.example.input.MergeCommand;
+import org.example.output.PartialResult;
+import org.example.processor.CountTable;
+import org.example.processor.ShardSpec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardTest {
+
+  private static final String RECORD =
+      "{\"artist\": \"Artist %d\", \"year_released\": %d, \"genre\": \"Rock, Pop\"}%n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testEveryFileAndRangeBelongsToOneShard() {
+    List<ShardSpec> shards = new ArrayList<>();
+    for (int index = 1; index <= 5; index++) {
+      shards.add(new ShardSpec(index, 5));
+    }
+    int[] files = new int[5];
+    for (int i = 0; i < 1000; i++) {
+      String path = "2024/" + i + ".json";
+      assertEquals(1, shards.stream().filter(shard -> shard.containsFile(path)).count());
+      int range = i;
+      assertEquals(1, shards.stream().filter(shard -> shard.containsRange(range)).count());
+      for (int shard = 0; shard < 5; shard++) {
+        files[shard] += shards.get(shard).containsFile(path) ? 1 : 0;
+      }
+    }
+    for (int count : files) {
+      assertTrue(count > 150, "unbalanced shards " + Arrays.toString(files));
+    }
+    assertEquals(new ShardSpec(3, 8), ShardSpec.parse(" 3 / 8"));
+    assertEquals("3/8", new ShardSpec(3, 8).toString());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "3", "3/", "a/8", "0/8", "9/8", "3/8/1", "1/0"})
+  public void testInvalidShardsAreRejected(String spec) {
+    assertThrows(IllegalArgumentException.class, () -> ShardSpec.parse(spec));
+  }
+
+  @Test
+  public void testMergedShardsCountLikeASingleRun() throws IOException {
+    for (int file = 0; file < 20; file++) {
+      StringBuilder records = new StringBuilder();
+      for (int record = 0; record <= file; record++) {
+        records.append(RECORD.formatted(record % 7, 1990 + record % 5));
+      }
+      Files.writeString(directory.resolve("songs" + file + ".ndjson"), records);
+    }
+    FilesStatistic whole = new FilesStatistic();
+    whole.setDirectoryPath(directory.toString());
+    whole.setAttribute("all");
+    whole.run();
+
+    List<Path> partials = new ArrayList<>();
+    for (int index = 1; index <= 3; index++) {
+      FilesStatistic shard = new FilesStatistic();
+      shard.setDirectoryPath(directory.toString());
+      shard.setAttribute("all");
+      shard.setShard(index + "/3");
+      shard.run();
+      partials.add(directory.resolve("statistics_shard_%d_of_3.partial".formatted(index)));
+      assertEquals(new ShardSpec(index, 3), PartialResult.read(partials.get(index - 1)).shard());
+    }
+    Path output = Files.createDirectory(directory.resolve("merged"));
+    MergeCommand merge = new MergeCommand();
+    merge.setDirectoryPath(output.toString());
+    merge.setPartials(partials);
+    merge.run();
+
+    assertEquals(whole.getResultTables(), merge.getResultTables());
+    assertEquals(Files.readString(directory.resolve("statistics_by_artist.xml")),
+        Files.readString(output.resolve("statistics_by_artist.xml")));
+  }
+
+  @Test
+  public void testPartialResultsMustFitTogether() {
+    Map<String, CountTable> artists = Map.of("artist", new CountTable());
+    PartialResult first = new PartialResult(new ShardSpec(1, 2), artists);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> PartialResult.merge(List.of(first, first)));
+    assertThrows(IllegalArgumentException.class, () -> PartialResult.merge(
+        List.of(first, new PartialResult(new ShardSpec(2, 3), artists))));
+    assertThrows(IllegalArgumentException.class, () -> PartialResult.merge(
+        List.of(first, new PartialResult(new ShardSpec(2, 2), Map.of()))));
+    assertEquals(artists, PartialResult.merge(
+        List.of(first, new PartialResult(new ShardSpec(2, 2), artists))));
+  }
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.example.input.FilesStatistic;
+import org.example.processor.CountTable;
+import org.example.processor.SpillStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpillTest {
+
+  private static final String RECORD =
+      "{\"artist\": \"Artist %d\", \"year_released\": %d, \"genre\": \"Rock, Genre %d\"}%n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testSpilledRunsMergeLikeOneTable() throws IOException {
+    CountTable expected = new CountTable();
+    try (SpillStore store = new SpillStore(directory, 1)) {
+      for (int run = 0; run < 5; run++) {
+        CountTable table = new CountTable();
+        for (int value = run; value < 100; value += run + 1) {
+          table.add("value " + value, value + run);
+          expected.add("value " + value, value + run);
+        }
+        assertTrue(store.spillIfFull("artist", table));
+        assertTrue(table.isEmpty());
+      }
+      CountTable rest = new CountTable();
+      rest.add("value 7", 3);
+      expected.add("value 7", 3);
+
+      CountTable merged = new CountTable();
+      List<String> order = new ArrayList<>();
+      store.merge("artist", rest, (key, count) -> {
+        merged.add(key, count);
+        order.add(key);
+      });
+
+      assertEquals(expected, merged);
+      assertEquals(order.stream().sorted().toList(), order);
+      assertEquals(6, store.getRuns());
+      assertFalse(store.hasRuns("genre"));
+    }
+    try (var files = Files.list(directory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void testSpilledCountsAreSortedLikeTop() throws IOException {
+    CountTable expected = new CountTable();
+    try (SpillStore store = new SpillStore(directory, 1000)) {
+      for (int run = 0; run < 4; run++) {
+        CountTable table = new CountTable();
+        for (int value = 0; value < 200; value++) {
+          table.add("value " + (value * 7 + run) % 300, value % 13 + 1);
+        }
+        expected.mergeFrom(table);
+        store.spill("artist", table);
+      }
+      assertEquals(expected.top(5), store.sorted("artist", new CountTable(), 5, null));
+      List<Map.Entry<String, Long>> sorted = new ArrayList<>();
+      store.sorted("artist", new CountTable(), Integer.MAX_VALUE, null).forEach(sorted::add);
+      assertEquals(expected.top(Integer.MAX_VALUE), sorted);
+    }
+  }
+
+  @Test
+  public void testRunsBeyondTheFanInAreMergedInPasses() throws IOException {
+    CountTable expected = new CountTable();
+    try (SpillStore store = new SpillStore(directory, 1)) {
+      int runs = 3 * store.getFanIn() + 1;
+      for (int run = 0; run < runs; run++) {
+        CountTable table = new CountTable();
+        for (int value = run % 5; value < 50; value += 5) {
+          table.add("value " + value, run + 1);
+          expected.add("value " + value, run + 1);
+        }
+        store.spill("artist", table);
+      }
+
+      CountTable merged = new CountTable();
+      store.merge("artist", new CountTable(), merged::add);
+
+      assertEquals(expected, merged);
+      assertTrue(store.getRuns() > runs);
+      try (var stores = Files.list(directory); var files = Files.list(stores.findFirst().get())) {
+        assertTrue(files.count() <= store.getFanIn());
+      }
+      CountTable again = new CountTable();
+      store.merge("artist", new CountTable(), again::add);
+      assertEquals(expected, again);
+    }
+  }
+
+  @Test
+  public void testBoundedMemoryWritesTheSameStatistics() throws IOException {
+    for (int file = 0; file < 3; file++) {
+      StringBuilder records = new StringBuilder();
+      for (int record = 0; record < 3000; record++) {
+        int value = file * 2000 + record;
+        records.append(RECORD.formatted(value, 1900 + value % 300, value % 1500));
+      }
+      Files.writeString(directory.resolve("songs" + file + ".ndjson"), records);
+    }
+    Path unbounded = Files.createDirectory(directory.resolve("unbounded"));
+    Path bounded = Files.createDirectory(directory.resolve("bounded"));
+    for (Path output : List.of(unbounded, bounded)) {
+      FilesStatistic statistic = new FilesStatistic();
+      statistic.setDirectoryPath(directory.toString());
+      statistic.setAttribute("all");
+      statistic.setSummary(true);
+      statistic.setThreadNumber(2);
+      statistic.setStatsPath(output.resolve("stats.json"));
+      statistic.setMaxMemory(output == bounded ? 1 : 0);
+      statistic.run();
+      for (String attribute : List.of("artist", "year_released", "genre")) {
+        String name = "statistics_by_" + attribute + ".xml";
+        Files.move(directory.resolve(name), output.resolve(name));
+      }
+    }
+
+    for (String attribute : List.of("artist", "year_released", "genre")) {
+      String name = "statistics_by_" + attribute + ".xml";
+      assertEquals(Files.readString(unbounded.resolve(name)),
+          Files.readString(bounded.resolve(name)));
+    }
+    assertFalse(Files.readString(unbounded.resolve("stats.json")).contains("\"spill\""));
+    String stats = Files.readString(bounded.resolve("stats.json"));
+    assertTrue(stats.contains("\"spill\""));
+    assertFalse(stats.contains("\"runs\" : 0,"));
+  }
+}
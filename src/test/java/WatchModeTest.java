@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.example.input.FilesStatistic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatchModeTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testStatisticsFollowDirectoryChanges() throws Exception {
+    Files.writeString(directory.resolve("a.json"), "[{\"artist\": \"Queen\"}]");
+    FilesStatistic statistic = new FilesStatistic();
+    statistic.setAttribute("artist");
+    statistic.setDirectoryPath(directory.toString());
+    statistic.setWatch(true);
+    statistic.setDebounce(100);
+    Thread thread = new Thread(statistic);
+    thread.start();
+    try {
+      awaitOutput("<value>Queen</value><count>1</count>");
+
+      Files.writeString(directory.resolve("b.json"),
+          "[{\"artist\": \"Queen\"}, {\"artist\": \"Abba\"}]");
+      awaitOutput("<value>Queen</value><count>2</count>");
+      assertTrue(readOutput().contains("<value>Abba</value><count>1</count>"));
+
+      Files.delete(directory.resolve("a.json"));
+      awaitOutput("<value>Queen</value><count>1</count>");
+      assertTrue(readOutput().contains("<value>Abba</value><count>1</count>"));
+    } finally {
+      thread.interrupt();
+      thread.join(TIMEOUT.toMillis());
+    }
+    assertFalse(thread.isAlive());
+  }
+
+  private void awaitOutput(String expected) throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!readOutput().contains(expected)) {
+      assertTrue(System.nanoTime() < deadline, "Statistics were not updated: " + readOutput());
+      Thread.sleep(50);
+    }
+  }
+
+  private String readOutput() throws IOException {
+    Path output = directory.resolve("statistics_by_artist.xml");
+    return Files.exists(output) ? Files.readString(output) : "";
+  }
+}